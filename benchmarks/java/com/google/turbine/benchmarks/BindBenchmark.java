@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.turbine.binder.Binder;
+import com.google.turbine.binder.Binder.BindingResult;
+import com.google.turbine.binder.ClassPath;
+import com.google.turbine.binder.ClassPathBinder;
+import com.google.turbine.binder.JimageClassBinder;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.parse.Parser;
+import com.google.turbine.tree.Tree.CompUnit;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks binding, including binding the classpath. The classpath is bound for each
+ * compilation, since the classpath's environment is populated lazily as it is used.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BindBenchmark {
+
+  @Param({"CLASSES", "HIERARCHY", "CONSTANTS"})
+  Corpus.Shape shape;
+
+  @Param({"1000"})
+  int size;
+
+  /** The number of jars on the classpath. */
+  @Param({"0", "200"})
+  int classPathJars;
+
+  @Param({"100"})
+  int classesPerJar;
+
+  private Path tmp;
+  private ImmutableList<CompUnit> units;
+  private ImmutableList<Path> classPath;
+  private ClassPath bootClassPath;
+
+  @Setup
+  public void setup() throws IOException {
+    tmp = Files.createTempDirectory("bind-benchmark");
+    ImmutableList.Builder<CompUnit> units = ImmutableList.builder();
+    for (SourceFile source : Corpus.sources(shape, size, classPathJars)) {
+      units.add(Parser.parse(source));
+    }
+    this.units = units.build();
+    classPath = Corpus.classPath(tmp, classPathJars, classesPerJar);
+    bootClassPath = JimageClassBinder.bindDefault();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    MoreFiles.deleteRecursively(tmp, RecursiveDeleteOption.ALLOW_INSECURE);
+  }
+
+  @Benchmark
+  public BindingResult bind() throws IOException {
+    return Binder.bind(
+        units,
+        ClassPathBinder.bindClasspath(classPath),
+        bootClassPath,
+        /* moduleVersion= */ Optional.empty());
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.turbine.bytecode.ClassReader;
+import com.google.turbine.bytecode.LazyClassFile;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks {@link ClassReader} over every class in a module of the host JDK's jimage. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassReaderBenchmark {
+
+  /** The module to read classes from. */
+  @Param({"java.base"})
+  String module;
+
+  private ImmutableList<byte[]> classes;
+
+  @Setup
+  public void setup() throws IOException {
+    Path root = FileSystems.getFileSystem(URI.create("jrt:/")).getPath("/modules", module);
+    ImmutableList.Builder<byte[]> classes = ImmutableList.builder();
+    try (Stream<Path> paths = Files.walk(root)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        if (path.getFileName().toString().endsWith(".class")) {
+          classes.add(Files.readAllBytes(path));
+        }
+      }
+    }
+    this.classes = classes.build();
+  }
+
+  @Benchmark
+  public void read(Blackhole bh) {
+    for (byte[] bytes : classes) {
+      bh.consume(ClassReader.read(bytes));
+    }
+  }
+
+  /** Reads only the parts of each class that are needed for hierarchy binding. */
+  @Benchmark
+  public void readHeader(Blackhole bh) {
+    for (byte[] bytes : classes) {
+      LazyClassFile classFile = ClassReader.readLazy(null, bytes);
+      bh.consume(classFile.access());
+      bh.consume(classFile.superName());
+      bh.consume(classFile.interfaces());
+      bh.consume(classFile.innerClasses());
+    }
+  }
+}
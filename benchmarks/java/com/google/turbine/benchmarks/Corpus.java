@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import static com.google.common.base.StandardSystemProperty.JAVA_SPECIFICATION_VERSION;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.main.Main;
+import com.google.turbine.options.TurbineOptions;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/** Generates synthetic compilation units and classpaths for benchmarks. */
+public final class Corpus {
+
+  /** The shape of a generated corpus. */
+  public enum Shape {
+    /** Many independent classes with fields, methods and nested classes. */
+    CLASSES,
+    /** Deep generic class hierarchies. */
+    HIERARCHY,
+    /** Many interdependent compile-time constant fields. */
+    CONSTANTS
+  }
+
+  /** The maximum depth of the class hierarchies generated for {@link Shape#HIERARCHY}. */
+  private static final int HIERARCHY_DEPTH = 50;
+
+  /** The length of the chains of constant references generated for {@link Shape#CONSTANTS}. */
+  private static final int CONSTANT_CHAIN_LENGTH = 10;
+
+  /** The number of members of each kind in a generated class. */
+  private static final int MEMBERS = 20;
+
+  /**
+   * Returns {@code size} compilation units of the given shape. If {@code classPathJars} is
+   * non-zero, the units reference classes in a classpath created by {@link #classPath}.
+   */
+  public static ImmutableList<SourceFile> sources(Shape shape, int size, int classPathJars) {
+    ImmutableList.Builder<SourceFile> sources = ImmutableList.builder();
+    for (int i = 0; i < size; i++) {
+      StringBuilder sb = new StringBuilder();
+      String name;
+      switch (shape) {
+        case CLASSES:
+          name = "C" + i;
+          classes(sb, name, i);
+          break;
+        case HIERARCHY:
+          name = "H" + i;
+          hierarchy(sb, name, i);
+          break;
+        case CONSTANTS:
+          name = "K" + i;
+          constants(sb, name, i);
+          break;
+        default:
+          throw new AssertionError(shape);
+      }
+      if (classPathJars > 0) {
+        // reference a class from one of the classpath jars
+        sb.append(String.format("  public cp.j%d.D%d dep;\n", i % classPathJars, i % MEMBERS));
+      }
+      sb.append("}\n");
+      sources.add(new SourceFile("p/" + name + ".java", sb.toString()));
+    }
+    return sources.build();
+  }
+
+  /** Returns the {@code .java} files in the given directory and its subdirectories. */
+  public static ImmutableList<SourceFile> sources(Path dir) throws IOException {
+    ImmutableList.Builder<SourceFile> sources = ImmutableList.builder();
+    try (Stream<Path> paths = Files.walk(dir)) {
+      for (Path path : (Iterable<Path>) paths.sorted()::iterator) {
+        if (path.toString().endsWith(".java") && Files.isRegularFile(path)) {
+          sources.add(new SourceFile(path.toString(), new String(Files.readAllBytes(path), UTF_8)));
+        }
+      }
+    }
+    return sources.build();
+  }
+
+  private static void classes(StringBuilder sb, String name, int i) {
+    sb.append("package p;\n");
+    sb.append("import java.util.ArrayList;\n");
+    sb.append("import java.util.List;\n");
+    sb.append("import java.util.Map;\n");
+    sb.append("/** Class number ").append(i).append(". */\n");
+    sb.append("public class ").append(name).append("<T extends Comparable<T>> {\n");
+    sb.append("  public static final int ID = ").append(i).append(";\n");
+    for (int j = 0; j < MEMBERS; j++) {
+      sb.append(String.format("  private final List<String> f%d = new ArrayList<>();\n", j));
+      sb.append(String.format("  @Deprecated public Map<String, T> m%d(", j));
+      sb.append("List<? extends T> xs, int y) throws Exception {\n");
+      sb.append("    if (y > 0) { return m").append(j).append("(xs, y - 1); }\n");
+      sb.append("    return null;\n");
+      sb.append("  }\n");
+    }
+    for (int j = 0; j < MEMBERS / 4; j++) {
+      sb.append(String.format("  public static class Inner%d implements Runnable {\n", j));
+      sb.append("    @Override public void run() {}\n");
+      sb.append("  }\n");
+    }
+  }
+
+  private static void hierarchy(StringBuilder sb, String name, int i) {
+    sb.append("package p;\n");
+    sb.append("public class ").append(name).append("<T> ");
+    if (i % HIERARCHY_DEPTH != 0) {
+      sb.append("extends H").append(i - 1).append("<java.util.List<T>> ");
+    }
+    sb.append("implements java.io.Serializable, Comparable<").append(name).append("<T>> {\n");
+    sb.append(String.format("  public T f%d;\n", i));
+    sb.append(String.format("  public <U extends T> U m%d(U u) { return u; }\n", i));
+    sb.append(String.format("  @Override public int compareTo(%s<T> o) { return 0; }\n", name));
+    sb.append("  public class Inner extends java.util.AbstractList<T> {\n");
+    sb.append("    @Override public T get(int i) { return null; }\n");
+    sb.append("    @Override public int size() { return 0; }\n");
+    sb.append("  }\n");
+  }
+
+  private static void constants(StringBuilder sb, String name, int i) {
+    sb.append("package p;\n");
+    sb.append("public class ").append(name).append(" {\n");
+    for (int j = 0; j < MEMBERS; j++) {
+      if (i % CONSTANT_CHAIN_LENGTH == 0) {
+        sb.append(String.format("  public static final int I%d = %d << 2 | 1;\n", j, j));
+        sb.append(String.format("  public static final String S%d = \"s\" + %d;\n", j, j));
+      } else {
+        String previous = "K" + (i - 1);
+        sb.append(
+            String.format(
+                "  public static final int I%d = %s.I%d * 31 + %d;\n", j, previous, j, j));
+        sb.append(
+            String.format("  public static final String S%d = %s.S%d + I%d;\n", j, previous, j, j));
+      }
+      sb.append(String.format("  public static final long L%d = (long) I%d << 32;\n", j, j));
+      sb.append(
+          String.format("  public static final boolean B%d = I%d > 0 && L%d != 0;\n", j, j, j));
+    }
+  }
+
+  /**
+   * Compiles a classpath of {@code jars} jars in the given directory, each containing {@code
+   * classesPerJar} classes (and at least as many as are referenced by {@link #sources}), and
+   * returns the paths to the jars.
+   */
+  public static ImmutableList<Path> classPath(Path dir, int jars, int classesPerJar)
+      throws IOException {
+    ImmutableList.Builder<Path> result = ImmutableList.builder();
+    for (int j = 0; j < jars; j++) {
+      Path sourceDir = Files.createDirectories(dir.resolve("src/cp/j" + j));
+      ImmutableList.Builder<String> sources = ImmutableList.builder();
+      for (int i = 0; i < Math.max(classesPerJar, MEMBERS); i++) {
+        Path source = sourceDir.resolve("D" + i + ".java");
+        Files.write(
+            source,
+            String.format(
+                    "package cp.j%d;\n"
+                        + "public class D%d<T> extends java.util.ArrayList<T> {\n"
+                        + "  public static final int ID = %d;\n"
+                        + "  public T f;\n"
+                        + "  public <U extends T> U m(U u) { return u; }\n"
+                        + "  public static class Nested {}\n"
+                        + "}\n",
+                    j, i, i)
+                .getBytes(UTF_8));
+        sources.add(source.toString());
+      }
+      Path jar = dir.resolve("j" + j + ".jar");
+      Main.compile(
+          TurbineOptions.builder()
+              .setSources(sources.build())
+              .setRelease(JAVA_SPECIFICATION_VERSION.value())
+              .setOutput(jar.toString())
+              .build());
+      result.add(jar);
+    }
+    return result.build();
+  }
+
+  private Corpus() {}
+}
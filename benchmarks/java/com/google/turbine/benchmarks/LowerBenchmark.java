@@ -0,0 +1,83 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.turbine.binder.Binder;
+import com.google.turbine.binder.Binder.BindingResult;
+import com.google.turbine.binder.ClassPathBinder;
+import com.google.turbine.binder.JimageClassBinder;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.lower.Lower;
+import com.google.turbine.lower.Lower.Lowered;
+import com.google.turbine.parse.Parser;
+import com.google.turbine.tree.Tree.CompUnit;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Benchmarks lowering bound classes to bytecode. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LowerBenchmark {
+
+  @Param({"CLASSES", "HIERARCHY", "CONSTANTS"})
+  Corpus.Shape shape;
+
+  @Param({"1000"})
+  int size;
+
+  /** The number of threads to lower with, see {@code --parallelism}. */
+  @Param({"1"})
+  int parallelism;
+
+  private BindingResult bound;
+
+  @Setup
+  public void setup() throws IOException {
+    ImmutableList.Builder<CompUnit> units = ImmutableList.builder();
+    for (SourceFile source : Corpus.sources(shape, size, /* classPathJars= */ 0)) {
+      units.add(Parser.parse(source));
+    }
+    bound =
+        Binder.bind(
+            units.build(),
+            ClassPathBinder.bindClasspath(ImmutableList.of()),
+            JimageClassBinder.bindDefault(),
+            /* moduleVersion= */ Optional.empty());
+  }
+
+  @Benchmark
+  public Lowered lower() {
+    return Lower.lowerAll(bound.units(), bound.modules(), bound.classPathEnv(), parallelism);
+  }
+}
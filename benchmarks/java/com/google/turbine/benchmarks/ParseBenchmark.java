@@ -0,0 +1,98 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.parse.IdentifierTable;
+import com.google.turbine.parse.Parser;
+import com.google.turbine.parse.StreamLexer;
+import com.google.turbine.parse.Token;
+import com.google.turbine.parse.UnicodeEscapePreprocessor;
+import com.google.turbine.tree.Tree.CompUnit;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** Benchmarks lexing and parsing. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseBenchmark {
+
+  @Param({"CLASSES", "HIERARCHY", "CONSTANTS"})
+  Corpus.Shape shape;
+
+  @Param({"1000"})
+  int size;
+
+  /**
+   * A directory of real-world sources to parse instead of a generated corpus, e.g. a checkout of a
+   * large project. The {@link #shape} and {@link #size} are ignored if it is set.
+   */
+  @Param({""})
+  String sourceDir;
+
+  private ImmutableList<SourceFile> sources;
+
+  @Setup
+  public void setup() throws IOException {
+    sources =
+        sourceDir.isEmpty()
+            ? Corpus.sources(shape, size, /* classPathJars= */ 0)
+            : Corpus.sources(Paths.get(sourceDir));
+  }
+
+  @Benchmark
+  public void lex(Blackhole bh) {
+    IdentifierTable identifiers = new IdentifierTable();
+    for (SourceFile source : sources) {
+      StreamLexer lexer =
+          new StreamLexer(
+              new UnicodeEscapePreprocessor(source), identifiers, /* captureJavadoc= */ false);
+      Token token;
+      do {
+        token = lexer.next();
+        bh.consume(token);
+      } while (token != Token.EOF);
+    }
+  }
+
+  @Benchmark
+  public void parse(Blackhole bh) {
+    IdentifierTable identifiers = new IdentifierTable();
+    for (SourceFile source : sources) {
+      CompUnit unit = Parser.parse(source, identifiers, /* javadoc= */ false);
+      bh.consume(unit);
+    }
+  }
+}
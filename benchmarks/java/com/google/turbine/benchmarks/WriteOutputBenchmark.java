@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.turbine.binder.Binder;
+import com.google.turbine.binder.Binder.BindingResult;
+import com.google.turbine.binder.ClassPathBinder;
+import com.google.turbine.binder.JimageClassBinder;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.lower.Lower;
+import com.google.turbine.parse.Parser;
+import com.google.turbine.tree.Tree.CompUnit;
+import com.google.turbine.zip.JarWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks writing the output jar, which {@link com.google.turbine.main.Main} does with a {@link
+ * JarWriter} that contains an entry for each lowered class.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteOutputBenchmark {
+
+  /** The timestamp of the entries in the output jar, see {@code Main.DEFAULT_TIMESTAMP}. */
+  private static final long TIMESTAMP =
+      LocalDateTime.of(2010, 1, 1, 0, 0, 0)
+          .atZone(ZoneId.systemDefault())
+          .toInstant()
+          .toEpochMilli();
+
+  @Param({"CLASSES", "HIERARCHY", "CONSTANTS"})
+  Corpus.Shape shape;
+
+  @Param({"1000"})
+  int size;
+
+  private Path output;
+  private ImmutableMap<String, byte[]> lowered;
+
+  @Setup
+  public void setup() throws IOException {
+    ImmutableList.Builder<CompUnit> units = ImmutableList.builder();
+    for (SourceFile source : Corpus.sources(shape, size, /* classPathJars= */ 0)) {
+      units.add(Parser.parse(source));
+    }
+    BindingResult bound =
+        Binder.bind(
+            units.build(),
+            ClassPathBinder.bindClasspath(ImmutableList.of()),
+            JimageClassBinder.bindDefault(),
+            /* moduleVersion= */ Optional.empty());
+    lowered = Lower.lowerAll(bound.units(), bound.modules(), bound.classPathEnv()).bytes();
+    output = Files.createTempFile("write-output-benchmark", ".jar");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(output);
+  }
+
+  @Benchmark
+  public void writeOutput() throws IOException {
+    JarWriter jar = new JarWriter(TIMESTAMP);
+    for (Map.Entry<String, byte[]> entry : lowered.entrySet()) {
+      jar.add(entry.getKey() + ".class", entry.getValue());
+    }
+    jar.write(output);
+  }
+}
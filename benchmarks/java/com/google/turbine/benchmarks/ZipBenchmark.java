@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.turbine.zip.Zip;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks reading the central directory of a large jar, with {@link Zip.ZipIterable} and with
+ * {@link Zip.Index}, and reading the data of all of its entries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ZipBenchmark {
+
+  /** The number of entries in the jar. */
+  @Param({"50000"})
+  int entries;
+
+  /** The number of entries to look up by name. */
+  @Param({"100"})
+  int lookups;
+
+  private Path jar;
+  private ImmutableList<String> names;
+
+  @Setup
+  public void setup() throws IOException {
+    jar = Files.createTempFile("zip-benchmark", ".jar");
+    ImmutableList.Builder<String> names = ImmutableList.builder();
+    try (OutputStream os = Files.newOutputStream(jar);
+        JarOutputStream jos = new JarOutputStream(os)) {
+      for (int i = 0; i < entries; i++) {
+        String name = String.format("com/example/p%d/C%d.class", i / 100, i);
+        jos.putNextEntry(new JarEntry(name));
+        jos.write(name.getBytes(UTF_8));
+        if (i % (entries / lookups) == 0) {
+          names.add(name);
+        }
+      }
+    }
+    this.names = names.build();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.delete(jar);
+  }
+
+  @Benchmark
+  public void iterate(Blackhole bh) throws IOException {
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(jar)) {
+      for (Zip.Entry entry : zip) {
+        bh.consume(entry.name());
+      }
+    }
+  }
+
+  @Benchmark
+  public void index(Blackhole bh) throws IOException {
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(jar)) {
+      bh.consume(zip.index().size());
+    }
+  }
+
+  @Benchmark
+  public void readAll(Blackhole bh) throws IOException {
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(jar)) {
+      for (Zip.Entry entry : zip) {
+        bh.consume(entry.data());
+      }
+    }
+  }
+
+  @Benchmark
+  public void lookupByIterating(Blackhole bh) throws IOException {
+    Set<String> remaining = new HashSet<>(names);
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(jar)) {
+      for (Zip.Entry entry : zip) {
+        if (remaining.remove(entry.name())) {
+          bh.consume(entry.data());
+        }
+      }
+    }
+  }
+
+  @Benchmark
+  public void lookupWithIndex(Blackhole bh) throws IOException {
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(jar)) {
+      Zip.Index index = zip.index();
+      for (String name : names) {
+        bh.consume(index.entry(name).data());
+      }
+    }
+  }
+}
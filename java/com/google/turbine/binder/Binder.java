@@ -53,6 +53,7 @@ import com.google.turbine.binder.lookup.WildImportIndex;
 import com.google.turbine.binder.sym.ClassSymbol;
 import com.google.turbine.binder.sym.FieldSymbol;
 import com.google.turbine.binder.sym.ModuleSymbol;
+import com.google.turbine.diag.Profiler;
 import com.google.turbine.diag.SourceFile;
 import com.google.turbine.diag.TurbineError;
 import com.google.turbine.diag.TurbineError.ErrorKind;
@@ -86,6 +87,44 @@ public class Binder {
       ProcessorInfo processorInfo,
       ClassPath bootclasspath,
       Optional<String> moduleVersion) {
+    return bind(units, classpath, processorInfo, bootclasspath, moduleVersion, Profiler.NONE);
+  }
+
+  /**
+   * Binds symbols and types to the given compilation units, recording each pass and processing
+   * round with the given profiler.
+   */
+  public static BindingResult bind(
+      ImmutableList<CompUnit> units,
+      ClassPath classpath,
+      ProcessorInfo processorInfo,
+      ClassPath bootclasspath,
+      Optional<String> moduleVersion,
+      Profiler profiler) {
+    return bind(
+        units,
+        classpath,
+        processorInfo,
+        bootclasspath,
+        moduleVersion,
+        profiler,
+        /* parallelism= */ 1);
+  }
+
+  /**
+   * Binds symbols and types to the given compilation units, recording each pass and processing
+   * round with the given profiler. If {@code parallelism} is greater than one, the class files of
+   * classpath classes that are likely to be needed are decoded on up to {@code parallelism - 1}
+   * background threads during hierarchy and type binding.
+   */
+  public static BindingResult bind(
+      ImmutableList<CompUnit> units,
+      ClassPath classpath,
+      ProcessorInfo processorInfo,
+      ClassPath bootclasspath,
+      Optional<String> moduleVersion,
+      Profiler profiler,
+      int parallelism) {
     TurbineLog log = new TurbineLog();
     BindingResult br =
         bind(
@@ -95,11 +134,13 @@ public class Binder {
             /* generatedClasses= */ ImmutableMap.of(),
             classpath,
             bootclasspath,
-            moduleVersion);
+            moduleVersion,
+            profiler,
+            parallelism);
     if (!processorInfo.processors().isEmpty() && !units.isEmpty()) {
       br =
           Processing.process(
-              log, units, classpath, processorInfo, bootclasspath, br, moduleVersion);
+              log, units, classpath, processorInfo, bootclasspath, br, moduleVersion, profiler);
     }
     log.maybeThrow();
     return br;
@@ -112,10 +153,15 @@ public class Binder {
       ImmutableMap<String, byte[]> generatedClasses,
       ClassPath classpath,
       ClassPath bootclasspath,
-      Optional<String> moduleVersion) {
-    ImmutableList<PreprocessedCompUnit> preProcessedUnits = CompUnitPreprocessor.preprocess(units);
-
-    SimpleEnv<ClassSymbol, SourceBoundClass> ienv = bindSourceBoundClasses(preProcessedUnits);
+      Optional<String> moduleVersion,
+      Profiler profiler,
+      int parallelism) {
+    ImmutableList<PreprocessedCompUnit> preProcessedUnits;
+    SimpleEnv<ClassSymbol, SourceBoundClass> ienv;
+    try (Profiler.Phase unused = profiler.start("bind source classes")) {
+      preProcessedUnits = CompUnitPreprocessor.preprocess(units);
+      ienv = bindSourceBoundClasses(preProcessedUnits);
+    }
 
     ImmutableSet<ClassSymbol> syms = ienv.asMap().keySet();
 
@@ -131,41 +177,67 @@ public class Binder {
     CompoundEnv<ModuleSymbol, ModuleInfo> classPathModuleEnv =
         CompoundEnv.of(classpath.moduleEnv()).append(bootclasspath.moduleEnv());
 
-    BindPackagesResult bindPackagesResult =
-        bindPackages(log, ienv, tli, preProcessedUnits, classPathEnv);
+    BindPackagesResult bindPackagesResult;
+    try (Profiler.Phase unused = profiler.start("bind packages")) {
+      bindPackagesResult = bindPackages(log, ienv, tli, preProcessedUnits, classPathEnv);
+    }
 
     SimpleEnv<ClassSymbol, PackageSourceBoundClass> psenv = bindPackagesResult.classes;
     SimpleEnv<ModuleSymbol, PackageSourceBoundModule> modules = bindPackagesResult.modules;
 
-    Env<ClassSymbol, SourceHeaderBoundClass> henv = bindHierarchy(log, syms, psenv, classPathEnv);
+    ClassPathPrefetcher prefetcher;
+    try (Profiler.Phase unused = profiler.start("prefetch classpath")) {
+      prefetcher = ClassPathPrefetcher.start(parallelism, preProcessedUnits, tli, classPathEnv);
+    }
 
-    Env<ClassSymbol, SourceTypeBoundClass> tenv =
-        bindTypes(
-            log,
-            syms,
-            henv,
-            CompoundEnv.<ClassSymbol, HeaderBoundClass>of(classPathEnv).append(henv));
-
-    tenv =
-        constants(
-            syms,
-            tenv,
-            CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv),
-            log);
-    tenv =
-        disambiguateTypeAnnotations(
-            syms, tenv, CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv));
-    tenv =
-        canonicalizeTypes(
-            syms, tenv, CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv));
-
-    ImmutableList<SourceModuleInfo> boundModules =
-        bindModules(
-            modules,
-            CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv),
-            classPathModuleEnv,
-            moduleVersion,
-            log);
+    Env<ClassSymbol, SourceHeaderBoundClass> henv;
+    Env<ClassSymbol, SourceTypeBoundClass> tenv;
+    try {
+      try (Profiler.Phase unused = profiler.start("bind hierarchy")) {
+        henv = bindHierarchy(log, syms, psenv, classPathEnv);
+      }
+
+      try (Profiler.Phase unused = profiler.start("bind types")) {
+        tenv =
+            bindTypes(
+                log,
+                syms,
+                henv,
+                CompoundEnv.<ClassSymbol, HeaderBoundClass>of(classPathEnv).append(henv));
+      }
+    } finally {
+      prefetcher.close();
+    }
+
+    try (Profiler.Phase unused = profiler.start("bind constants")) {
+      tenv =
+          constants(
+              syms,
+              tenv,
+              CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv),
+              log);
+    }
+    try (Profiler.Phase unused = profiler.start("disambiguate type annotations")) {
+      tenv =
+          disambiguateTypeAnnotations(
+              syms, tenv, CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv));
+    }
+    try (Profiler.Phase unused = profiler.start("canonicalize types")) {
+      tenv =
+          canonicalizeTypes(
+              syms, tenv, CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv));
+    }
+
+    ImmutableList<SourceModuleInfo> boundModules;
+    try (Profiler.Phase unused = profiler.start("bind modules")) {
+      boundModules =
+          bindModules(
+              modules,
+              CompoundEnv.<ClassSymbol, TypeBoundClass>of(classPathEnv).append(tenv),
+              classPathModuleEnv,
+              moduleVersion,
+              log);
+    }
 
     ImmutableMap.Builder<ClassSymbol, SourceTypeBoundClass> result = ImmutableMap.builder();
     for (ClassSymbol sym : syms) {
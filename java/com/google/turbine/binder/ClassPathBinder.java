@@ -16,26 +16,40 @@
 
 package com.google.turbine.binder;
 
-import com.google.common.base.Function;
+import com.google.common.base.Joiner;
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.collect.Table;
 import com.google.turbine.binder.bound.ModuleInfo;
 import com.google.turbine.binder.bytecode.BytecodeBinder;
 import com.google.turbine.binder.bytecode.BytecodeBoundClass;
 import com.google.turbine.binder.env.Env;
 import com.google.turbine.binder.env.SimpleEnv;
-import com.google.turbine.binder.lookup.SimpleTopLevelIndex;
+import com.google.turbine.binder.lookup.LookupKey;
+import com.google.turbine.binder.lookup.LookupResult;
+import com.google.turbine.binder.lookup.PackageScope;
+import com.google.turbine.binder.lookup.Scope;
 import com.google.turbine.binder.lookup.TopLevelIndex;
 import com.google.turbine.binder.sym.ClassSymbol;
 import com.google.turbine.binder.sym.ModuleSymbol;
 import com.google.turbine.zip.Zip;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Sets up an environment for symbols on the classpath. */
 public class ClassPathBinder {
@@ -46,96 +60,353 @@ public class ClassPathBinder {
    */
   public static final String TRANSITIVE_PREFIX = "META-INF/TRANSITIVE/";
 
-  /** Creates an environment containing symbols in the given classpath. */
+  /**
+   * Creates an environment containing symbols in the given classpath.
+   *
+   * <p>Only the jars' central directories are read eagerly, symbols are created for the classes in
+   * a package the first time the package is used.
+   */
   public static ClassPath bindClasspath(Collection<Path> paths) throws IOException {
-    // TODO(cushon): this is going to require an env eventually,
-    // e.g. to look up type parameters in enclosing declarations
-    Map<ClassSymbol, BytecodeBoundClass> transitive = new LinkedHashMap<>();
-    Map<ClassSymbol, BytecodeBoundClass> map = new HashMap<>();
-    Map<ModuleSymbol, ModuleInfo> modules = new HashMap<>();
-    Map<String, Supplier<byte[]>> resources = new HashMap<>();
-    Env<ClassSymbol, BytecodeBoundClass> benv =
+    ImmutableList.Builder<BoundJar> jars = ImmutableList.builder();
+    for (Path path : paths) {
+      jars.add(bindJar(path));
+    }
+    return new LazyClassPath(jars.build(), /* shared= */ false);
+  }
+
+  /**
+   * Creates an environment containing symbols in the given classpath, re-using jars that were
+   * previously bound by the given cache.
+   */
+  public static ClassPath bindClasspath(Collection<Path> paths, ClassPathCache cache)
+      throws IOException {
+    ImmutableList.Builder<BoundJar> jars = ImmutableList.builder();
+    for (Path path : paths) {
+      jars.add(cache.get(path));
+    }
+    return new LazyClassPath(jars.build(), /* shared= */ true);
+  }
+
+  /**
+   * The classes and resources of a single jar, indexed by package, which can be shared between
+   * compilations that have the jar on their classpath.
+   */
+  static class BoundJar {
+    private final Path path;
+    private final Map<String, List<Zip.Entry>> classes = new HashMap<>();
+    private final Map<String, List<Zip.Entry>> transitive = new HashMap<>();
+    private final Map<ModuleSymbol, ModuleInfo> modules = new HashMap<>();
+
+    // Resources are rarely used, so they are looked up by name in the central directory instead of
+    // being collected while the jar is indexed.
+    private final Supplier<Zip.Index> resources;
+
+    // Packages that have been bound against this jar alone, see localPackage.
+    private final Map<String, BoundPackage> localPackages = new HashMap<>();
+
+    private BoundJar(Path path, Zip.ZipIterable zip) {
+      this.path = path;
+      this.resources =
+          Suppliers.memoize(
+              new Supplier<Zip.Index>() {
+                @Override
+                public Zip.Index get() {
+                  return zip.index();
+                }
+              });
+    }
+
+    /** Returns the resource with the given name, or {@code null} if there is no such resource. */
+    Zip.@Nullable Entry resource(String name) {
+      return name.endsWith(".class") ? null : resources.get().entry(name);
+    }
+
+    /** Binds the classes in the given package, resolving enclosing classes in {@code benv}. */
+    BoundPackage bindPackage(String packageName, Env<ClassSymbol, BytecodeBoundClass> benv) {
+      BoundPackage result = new BoundPackage();
+      for (Zip.Entry ze : classes.getOrDefault(packageName, ImmutableList.of())) {
+        String name = ze.name();
+        ClassSymbol sym = new ClassSymbol(name.substring(0, name.length() - ".class".length()));
+        result.classes.putIfAbsent(
+            sym, new BytecodeBoundClass(sym, toByteArrayOrDie(ze), benv, path.toString()));
+      }
+      for (Zip.Entry ze : transitive.getOrDefault(packageName, ImmutableList.of())) {
+        String name = ze.name();
+        ClassSymbol sym =
+            new ClassSymbol(
+                name.substring(TRANSITIVE_PREFIX.length(), name.length() - ".class".length()));
+        result.transitive.putIfAbsent(
+            sym, new BytecodeBoundClass(sym, toByteArrayOrDie(ze), benv, path.toString()));
+      }
+      return result;
+    }
+
+    /**
+     * Binds the classes in the given package against this jar alone, so the result is independent
+     * of the rest of the classpath and can be shared. Type variables declared by enclosing classes
+     * are only resolved against classes in the same jar.
+     */
+    synchronized BoundPackage localPackage(String packageName) {
+      BoundPackage result = localPackages.get(packageName);
+      if (result == null) {
+        result =
+            bindPackage(
+                packageName,
+                new Env<ClassSymbol, BytecodeBoundClass>() {
+                  @Override
+                  public BytecodeBoundClass get(ClassSymbol sym) {
+                    BoundPackage local = localPackage(sym.packageName());
+                    BytecodeBoundClass info = local.classes.get(sym);
+                    return info != null ? info : local.transitive.get(sym);
+                  }
+                });
+        localPackages.put(packageName, result);
+      }
+      return result;
+    }
+  }
+
+  /** The classes in a single package of a {@link BoundJar}. */
+  static class BoundPackage {
+    final Map<ClassSymbol, BytecodeBoundClass> classes = new LinkedHashMap<>();
+    final Map<ClassSymbol, BytecodeBoundClass> transitive = new LinkedHashMap<>();
+  }
+
+  /**
+   * Indexes the entries of a single jar by package. Class files are not read until their package
+   * is bound, but module-infos are bound eagerly.
+   */
+  static BoundJar bindJar(Path path) throws IOException {
+    BoundJar jar;
+    try {
+      Zip.ZipIterable zip = new Zip.ZipIterable(path);
+      jar = new BoundJar(path, zip);
+      for (Zip.Entry ze : zip) {
+        String name = ze.name();
+        if (!name.endsWith(".class")) {
+          continue;
+        }
+        if (name.startsWith(TRANSITIVE_PREFIX)) {
+          jar.transitive
+              .computeIfAbsent(
+                  packageName(name, TRANSITIVE_PREFIX.length()), k -> new ArrayList<>())
+              .add(ze);
+          continue;
+        }
+        if (name.substring(name.lastIndexOf('/') + 1).equals("module-info.class")) {
+          ModuleInfo moduleInfo =
+              BytecodeBinder.bindModuleInfo(path.toString(), toByteArrayOrDie(ze));
+          jar.modules.put(new ModuleSymbol(moduleInfo.name()), moduleInfo);
+          continue;
+        }
+        jar.classes.computeIfAbsent(packageName(name, 0), k -> new ArrayList<>()).add(ze);
+      }
+    } catch (IOException e) {
+      throw new IOException("error reading " + path, e);
+    }
+    return jar;
+  }
+
+  /** Returns the package of a class file entry, whose binary name starts at {@code start}. */
+  private static String packageName(String name, int start) {
+    int idx = name.lastIndexOf('/');
+    return idx < start ? "" : name.substring(start, idx);
+  }
+
+  /**
+   * A classpath that binds the classes in a package when it is first used, by a lookup in the
+   * {@link TopLevelIndex} or the {@link Env}.
+   *
+   * <p>The classpath may be accessed from multiple threads during a compilation (e.g. during
+   * parallel lowering), so access to the mutable state is synchronized.
+   */
+  private static class LazyClassPath implements ClassPath {
+
+    private final ImmutableList<BoundJar> jars;
+    private final ImmutableMap<String, ImmutableList<BoundJar>> jarsByPackage;
+    private final ImmutableSet<String> packages;
+    private final boolean shared;
+    private final Env<ModuleSymbol, ModuleInfo> moduleEnv;
+
+    private final Set<String> loadedPackages = new HashSet<>();
+    private final Table<String, String, ClassSymbol> packageClassesBySimpleName =
+        HashBasedTable.create();
+    private final Map<ClassSymbol, BytecodeBoundClass> env = new ConcurrentHashMap<>();
+
+    private final Env<ClassSymbol, BytecodeBoundClass> lazyEnv =
         new Env<ClassSymbol, BytecodeBoundClass>() {
           @Override
           public BytecodeBoundClass get(ClassSymbol sym) {
-            return map.get(sym);
+            return initPackage(sym.packageName()) ? env.get(sym) : null;
           }
         };
-    for (Path path : paths) {
-      try {
-        bindJar(path, map, modules, benv, transitive, resources);
-      } catch (IOException e) {
-        throw new IOException("error reading " + path, e);
+
+    private final TopLevelIndex index = new LazyTopLevelIndex();
+
+    /**
+     * @param jars the jars on the classpath, in order
+     * @param shared whether to use the classes each jar binds against itself (see {@link
+     *     BoundJar#localPackage}), instead of binding them against this classpath
+     */
+    LazyClassPath(ImmutableList<BoundJar> jars, boolean shared) {
+      Map<String, ImmutableList.Builder<BoundJar>> jarsByPackage = new LinkedHashMap<>();
+      Map<ModuleSymbol, ModuleInfo> modules = new HashMap<>();
+      for (BoundJar jar : jars) {
+        for (String packageName : Sets.union(jar.classes.keySet(), jar.transitive.keySet())) {
+          jarsByPackage.computeIfAbsent(packageName, k -> ImmutableList.builder()).add(jar);
+        }
+        // later definitions of modules replace earlier ones
+        modules.putAll(jar.modules);
       }
+      ImmutableMap.Builder<String, ImmutableList<BoundJar>> jarsByPackageBuilder =
+          ImmutableMap.builder();
+      // the default package, and all enclosing packages of packages that contain classes
+      Set<String> packages = new HashSet<>();
+      packages.add("");
+      for (Map.Entry<String, ImmutableList.Builder<BoundJar>> e : jarsByPackage.entrySet()) {
+        String packageName = e.getKey();
+        jarsByPackageBuilder.put(packageName, e.getValue().build());
+        for (int idx = packageName.indexOf('/');
+            idx != -1;
+            idx = packageName.indexOf('/', idx + 1)) {
+          packages.add(packageName.substring(0, idx));
+        }
+        packages.add(packageName);
+      }
+      this.jars = jars;
+      this.jarsByPackage = jarsByPackageBuilder.build();
+      this.packages = ImmutableSet.copyOf(packages);
+      this.shared = shared;
+      this.moduleEnv = new SimpleEnv<>(ImmutableMap.copyOf(modules));
     }
-    for (Map.Entry<ClassSymbol, BytecodeBoundClass> entry : transitive.entrySet()) {
-      ClassSymbol symbol = entry.getKey();
-      map.putIfAbsent(symbol, entry.getValue());
+
+    /**
+     * Binds the classes in the given package, and returns {@code false} if the package doesn't
+     * exist.
+     */
+    synchronized boolean initPackage(String packageName) {
+      if (!packages.contains(packageName)) {
+        return false;
+      }
+      if (!loadedPackages.add(packageName)) {
+        return true;
+      }
+      List<BoundPackage> bound = new ArrayList<>();
+      for (BoundJar jar : jarsByPackage.getOrDefault(packageName, ImmutableList.of())) {
+        bound.add(shared ? jar.localPackage(packageName) : jar.bindPackage(packageName, lazyEnv));
+      }
+      // The first definition of a class wins, and repackaged transitive dependencies are only
+      // used if there is no other definition on the classpath.
+      for (BoundPackage p : bound) {
+        for (Map.Entry<ClassSymbol, BytecodeBoundClass> e : p.classes.entrySet()) {
+          putIfAbsent(packageName, e.getKey(), e.getValue());
+        }
+      }
+      for (BoundPackage p : bound) {
+        for (Map.Entry<ClassSymbol, BytecodeBoundClass> e : p.transitive.entrySet()) {
+          putIfAbsent(packageName, e.getKey(), e.getValue());
+        }
+      }
+      return true;
     }
-    SimpleEnv<ClassSymbol, BytecodeBoundClass> env = new SimpleEnv<>(ImmutableMap.copyOf(map));
-    SimpleEnv<ModuleSymbol, ModuleInfo> moduleEnv = new SimpleEnv<>(ImmutableMap.copyOf(modules));
-    TopLevelIndex index = SimpleTopLevelIndex.of(env.asMap().keySet());
-    return new ClassPath() {
-      @Override
-      public Env<ClassSymbol, BytecodeBoundClass> env() {
-        return env;
+
+    private void putIfAbsent(String packageName, ClassSymbol sym, BytecodeBoundClass info) {
+      if (env.putIfAbsent(sym, info) == null) {
+        packageClassesBySimpleName.put(packageName, sym.simpleName(), sym);
       }
+    }
 
-      @Override
-      public Env<ModuleSymbol, ModuleInfo> moduleEnv() {
-        return moduleEnv;
+    @Nullable
+    ClassSymbol lookupClass(String packageName, String simpleName) {
+      if (!initPackage(packageName)) {
+        return null;
       }
+      synchronized (this) {
+        return packageClassesBySimpleName.get(packageName, simpleName);
+      }
+    }
 
-      @Override
-      public TopLevelIndex index() {
-        return index;
+    @Override
+    public Env<ClassSymbol, BytecodeBoundClass> env() {
+      return lazyEnv;
+    }
+
+    @Override
+    public Env<ModuleSymbol, ModuleInfo> moduleEnv() {
+      return moduleEnv;
+    }
+
+    @Override
+    public TopLevelIndex index() {
+      return index;
+    }
+
+    @Override
+    public Supplier<byte[]> resource(String path) {
+      // later definitions of resources replace earlier ones
+      for (BoundJar jar : jars.reverse()) {
+        Zip.Entry ze = jar.resource(path);
+        if (ze != null) {
+          return toByteArrayOrDie(ze);
+        }
       }
+      return null;
+    }
+
+    private class LazyTopLevelIndex implements TopLevelIndex {
+
+      /**
+       * Looks up top-level qualified type names, by descending through packages until a class with
+       * the next simple name is found.
+       */
+      final Scope topLevelScope =
+          new Scope() {
+            @Nullable
+            @Override
+            public LookupResult lookup(LookupKey lookupKey) {
+              String packageName = "";
+              while (true) {
+                String name = lookupKey.first().value();
+                ClassSymbol sym = lookupClass(packageName, name);
+                if (sym != null) {
+                  return new LookupResult(sym, lookupKey);
+                }
+                packageName = packageName.isEmpty() ? name : packageName + '/' + name;
+                if (!packages.contains(packageName) || !lookupKey.hasNext()) {
+                  return null;
+                }
+                lookupKey = lookupKey.rest();
+              }
+            }
+          };
 
       @Override
-      public Supplier<byte[]> resource(String path) {
-        return resources.get(path);
+      public Scope scope() {
+        return topLevelScope;
       }
-    };
-  }
 
-  private static void bindJar(
-      Path path,
-      Map<ClassSymbol, BytecodeBoundClass> env,
-      Map<ModuleSymbol, ModuleInfo> modules,
-      Env<ClassSymbol, BytecodeBoundClass> benv,
-      Map<ClassSymbol, BytecodeBoundClass> transitive,
-      Map<String, Supplier<byte[]>> resources)
-      throws IOException {
-    // TODO(cushon): don't leak file descriptors
-    for (Zip.Entry ze : new Zip.ZipIterable(path)) {
-      String name = ze.name();
-      if (!name.endsWith(".class")) {
-        resources.put(name, toByteArrayOrDie(ze));
-        continue;
-      }
-      if (name.startsWith(TRANSITIVE_PREFIX)) {
-        ClassSymbol sym =
-            new ClassSymbol(
-                name.substring(TRANSITIVE_PREFIX.length(), name.length() - ".class".length()));
-        transitive.computeIfAbsent(
-            sym,
-            new Function<ClassSymbol, BytecodeBoundClass>() {
-              @Override
-              public BytecodeBoundClass apply(ClassSymbol sym) {
-                return new BytecodeBoundClass(sym, toByteArrayOrDie(ze), benv, path.toString());
-              }
-            });
-        continue;
-      }
-      if (name.substring(name.lastIndexOf('/') + 1).equals("module-info.class")) {
-        ModuleInfo moduleInfo =
-            BytecodeBinder.bindModuleInfo(path.toString(), toByteArrayOrDie(ze));
-        modules.put(new ModuleSymbol(moduleInfo.name()), moduleInfo);
-        continue;
-      }
-      ClassSymbol sym = new ClassSymbol(name.substring(0, name.length() - ".class".length()));
-      env.putIfAbsent(
-          sym, new BytecodeBoundClass(sym, toByteArrayOrDie(ze), benv, path.toString()));
+      @Override
+      public PackageScope lookupPackage(Iterable<String> name) {
+        String packageName = Joiner.on('/').join(name);
+        if (!initPackage(packageName)) {
+          return null;
+        }
+        return new PackageScope() {
+          @Nullable
+          @Override
+          public LookupResult lookup(LookupKey lookupKey) {
+            ClassSymbol sym = lookupClass(packageName, lookupKey.first().value());
+            return sym != null ? new LookupResult(sym, lookupKey) : null;
+          }
+
+          @Override
+          public Iterable<ClassSymbol> classes() {
+            synchronized (LazyClassPath.this) {
+              return ImmutableList.copyOf(packageClassesBySimpleName.row(packageName).values());
+            }
+          }
+        };
+      }
     }
   }
 
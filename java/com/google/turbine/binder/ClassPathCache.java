@@ -0,0 +1,119 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.binder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.primitives.Ints;
+import com.google.turbine.binder.ClassPathBinder.BoundJar;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A cache of bound classpath jars, for re-use across compilations in a long-lived process.
+ *
+ * <p>Entries are keyed by the jar's path, and are re-bound if the jar's size or last modified time
+ * changes. The total size of the cached jars is bounded, and the least recently used jars are
+ * evicted first. The size of a jar on disk is used as an approximation of the memory retained by
+ * its bound classes.
+ *
+ * <p>Platform classpaths (e.g. for {@code --release} or {@code --system}) are also cached. There
+ * are typically only a handful of them, so they are never evicted.
+ */
+public class ClassPathCache {
+
+  /** Loads a platform classpath. */
+  public interface PlatformClassPathLoader {
+    ClassPath load() throws IOException;
+  }
+
+  private final Cache<Path, CachedJar> cache;
+  private final ConcurrentMap<String, ClassPath> platformClassPaths = new ConcurrentHashMap<>();
+
+  private ClassPathCache(long maxBytes) {
+    this.cache =
+        CacheBuilder.newBuilder()
+            .maximumWeight(maxBytes)
+            .<Path, CachedJar>weigher((path, jar) -> jar.weight)
+            .recordStats()
+            .build();
+  }
+
+  /** Creates a cache that retains jars with a total size of up to {@code maxBytes}. */
+  public static ClassPathCache create(long maxBytes) {
+    return new ClassPathCache(maxBytes);
+  }
+
+  /** Returns the bound jar for the given path, binding it if it isn't cached or is out of date. */
+  BoundJar get(Path path) throws IOException {
+    Path key = path.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+    CachedJar cached = cache.getIfPresent(key);
+    if (cached != null
+        && cached.size == attributes.size()
+        && cached.lastModifiedTime.equals(attributes.lastModifiedTime())) {
+      return cached.jar;
+    }
+    BoundJar jar = ClassPathBinder.bindJar(path);
+    cache.put(key, new CachedJar(jar, attributes.size(), attributes.lastModifiedTime()));
+    return jar;
+  }
+
+  /**
+   * Returns the platform classpath for the given key, e.g. {@code --release 8}, loading it if it
+   * isn't cached.
+   */
+  public ClassPath platformClassPath(String key, PlatformClassPathLoader loader)
+      throws IOException {
+    ClassPath classPath = platformClassPaths.get(key);
+    if (classPath == null) {
+      // concurrent requests for the same key may load it more than once, but only one of the
+      // results is retained
+      classPath = loader.load();
+      ClassPath existing = platformClassPaths.putIfAbsent(key, classPath);
+      if (existing != null) {
+        classPath = existing;
+      }
+    }
+    return classPath;
+  }
+
+  /** Returns the statistics for the classpath jar cache. */
+  public CacheStats stats() {
+    return cache.stats();
+  }
+
+  private static class CachedJar {
+    final BoundJar jar;
+    final long size;
+    final FileTime lastModifiedTime;
+    final int weight;
+
+    CachedJar(BoundJar jar, long size, FileTime lastModifiedTime) {
+      this.jar = jar;
+      this.size = size;
+      this.lastModifiedTime = lastModifiedTime;
+      this.weight = Ints.saturatedCast(size);
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.binder;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.turbine.binder.CompUnitPreprocessor.PreprocessedCompUnit;
+import com.google.turbine.binder.bound.SourceBoundClass;
+import com.google.turbine.binder.bytecode.BytecodeBoundClass;
+import com.google.turbine.binder.env.Env;
+import com.google.turbine.binder.lookup.LookupKey;
+import com.google.turbine.binder.lookup.LookupResult;
+import com.google.turbine.binder.lookup.Scope;
+import com.google.turbine.binder.lookup.TopLevelIndex;
+import com.google.turbine.binder.sym.ClassSymbol;
+import com.google.turbine.binder.sym.Symbol;
+import com.google.turbine.tree.Tree.ClassTy;
+import com.google.turbine.tree.Tree.Ident;
+import com.google.turbine.tree.Tree.ImportDecl;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Decodes the class files of classpath classes that a compilation is likely to need on background
+ * threads, so they are already decoded when the binder asks for them.
+ *
+ * <p>The candidates are the classes named by single-type imports, and the supertypes named in
+ * {@code extends} and {@code implements} clauses, together with their transitive supertypes. They
+ * are found with index lookups only, and prefetching doesn't affect the results of binding: the
+ * binder still resolves every name itself, and a {@link BytecodeBoundClass} memoizes the data it
+ * decodes, so a class that is being prefetched is decoded at most once. A wrong guess only costs
+ * some wasted work on a background thread.
+ */
+final class ClassPathPrefetcher implements AutoCloseable {
+
+  /** A prefetcher that doesn't do anything, for single-threaded compilations. */
+  static final ClassPathPrefetcher NONE =
+      new ClassPathPrefetcher(/* executor= */ null, /* classPathEnv= */ null);
+
+  /**
+   * Starts prefetching the classpath classes used by the given compilation units on {@code
+   * parallelism - 1} background threads, or returns {@link #NONE} if {@code parallelism} is less
+   * than two.
+   */
+  static ClassPathPrefetcher start(
+      int parallelism,
+      ImmutableList<PreprocessedCompUnit> units,
+      TopLevelIndex tli,
+      Env<ClassSymbol, BytecodeBoundClass> classPathEnv) {
+    if (parallelism <= 1) {
+      return NONE;
+    }
+    ClassPathPrefetcher prefetcher =
+        new ClassPathPrefetcher(
+            Executors.newFixedThreadPool(
+                parallelism - 1,
+                new ThreadFactoryBuilder()
+                    .setNameFormat("turbine-prefetch-%d")
+                    .setDaemon(true)
+                    .build()),
+            classPathEnv);
+    for (ClassSymbol sym : candidates(units, tli)) {
+      prefetcher.submit(sym);
+    }
+    return prefetcher;
+  }
+
+  /**
+   * Returns the classes named by single-type imports and in {@code extends} and {@code implements}
+   * clauses, which may include source classes.
+   */
+  static Set<ClassSymbol> candidates(ImmutableList<PreprocessedCompUnit> units, TopLevelIndex tli) {
+    Set<ClassSymbol> result = new LinkedHashSet<>();
+    Scope javaLang = tli.lookupPackage(ImmutableList.of("java", "lang"));
+    for (PreprocessedCompUnit unit : units) {
+      for (ImportDecl i : unit.imports()) {
+        if (!i.wild()) {
+          // static imports name a member of the class, which is left in the remaining names
+          addCandidate(result, tli.scope(), i.type());
+        }
+      }
+      Scope packageScope =
+          tli.lookupPackage(Splitter.on('/').omitEmptyStrings().split(unit.packageName()));
+      for (SourceBoundClass type : unit.types()) {
+        if (type.decl().xtnds().isPresent()) {
+          addSupertype(result, tli, packageScope, javaLang, type.decl().xtnds().get());
+        }
+        for (ClassTy i : type.decl().impls()) {
+          addSupertype(result, tli, packageScope, javaLang, i);
+        }
+      }
+    }
+    return result;
+  }
+
+  private static void addSupertype(
+      Set<ClassSymbol> result,
+      TopLevelIndex tli,
+      @Nullable Scope packageScope,
+      @Nullable Scope javaLang,
+      ClassTy type) {
+    ImmutableList<Ident> names = names(type);
+    // imported names were already handled, so try the other simple names that are in scope, and
+    // then qualified names
+    if (!addCandidate(result, packageScope, names) && !addCandidate(result, javaLang, names)) {
+      addCandidate(result, tli.scope(), names);
+    }
+  }
+
+  private static boolean addCandidate(
+      Set<ClassSymbol> result, @Nullable Scope scope, ImmutableList<Ident> names) {
+    if (scope == null) {
+      return false;
+    }
+    LookupResult lookup = scope.lookup(new LookupKey(names));
+    if (lookup == null || lookup.sym().symKind() != Symbol.Kind.CLASS) {
+      return false;
+    }
+    result.add((ClassSymbol) lookup.sym());
+    return true;
+  }
+
+  /** Returns the simple names of a possibly qualified type, e.g. {@code [Map, Entry]}. */
+  private static ImmutableList<Ident> names(ClassTy type) {
+    Deque<Ident> names = new ArrayDeque<>();
+    for (ClassTy curr = type; curr != null; curr = curr.base().orElse(null)) {
+      names.addFirst(curr.name());
+    }
+    return ImmutableList.copyOf(names);
+  }
+
+  @Nullable private final ExecutorService executor;
+  @Nullable private final Env<ClassSymbol, BytecodeBoundClass> classPathEnv;
+  private final Set<ClassSymbol> seen = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+
+  private ClassPathPrefetcher(
+      @Nullable ExecutorService executor,
+      @Nullable Env<ClassSymbol, BytecodeBoundClass> classPathEnv) {
+    this.executor = executor;
+    this.classPathEnv = classPathEnv;
+  }
+
+  private void submit(@Nullable ClassSymbol sym) {
+    if (sym == null || closed || !seen.add(sym)) {
+      return;
+    }
+    try {
+      executor.execute(() -> prefetch(sym));
+    } catch (RejectedExecutionException e) {
+      // the prefetcher was closed concurrently
+    }
+  }
+
+  /**
+   * Decodes the parts of the class file that are needed for hierarchy binding, and then prefetches
+   * the class's supertypes.
+   */
+  private void prefetch(ClassSymbol sym) {
+    if (closed) {
+      return;
+    }
+    BytecodeBoundClass info;
+    ClassSymbol superclass;
+    ImmutableList<ClassSymbol> interfaces;
+    try {
+      info = classPathEnv.get(sym);
+      if (info == null) {
+        // a source class, or a missing class that the binder will report
+        return;
+      }
+      info.access();
+      info.children();
+      superclass = info.superclass();
+      interfaces = info.interfaces();
+    } catch (RuntimeException | AssertionError e) {
+      // errors are reported by the binder, if it needs the class
+      return;
+    }
+    submit(superclass);
+    for (ClassSymbol i : interfaces) {
+      submit(i);
+    }
+  }
+
+  /**
+   * Stops prefetching, and waits for any class files that are currently being decoded. The worker
+   * threads are never interrupted, since interrupting a thread that is reading from a {@link
+   * java.nio.channels.FileChannel} closes the channel.
+   */
+  @Override
+  public void close() {
+    if (executor == null) {
+      return;
+    }
+    closed = true;
+    executor.shutdown();
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
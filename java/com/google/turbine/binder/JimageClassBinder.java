@@ -52,6 +52,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Constructs a platform {@link ClassPath} from the current JDK's jimage file using jrtfs. */
@@ -93,11 +94,14 @@ public class JimageClassBinder {
   private final Multimap<String, String> packageMap;
   private final Path modulesRoot;
 
+  // Packages are loaded lazily, and the classpath may be shared by concurrent compilations (e.g.
+  // in a persistent worker) or accessed from multiple threads during a compilation (e.g. during
+  // parallel lowering), so access to the mutable state below is synchronized.
   private final Set<String> loadedPackages = new HashSet<>();
   private final Table<String, String, ClassSymbol> packageClassesBySimpleName =
       HashBasedTable.create();
   private final Map<String, ModuleInfo> moduleMap = new HashMap<>();
-  private final Map<ClassSymbol, BytecodeBoundClass> env = new HashMap<>();
+  private final Map<ClassSymbol, BytecodeBoundClass> env = new ConcurrentHashMap<>();
 
   public JimageClassBinder(ImmutableMultimap<String, String> packageMap, Path modules) {
     this.packageMap = packageMap;
@@ -109,7 +113,7 @@ public class JimageClassBinder {
     return Files.exists(path) ? path : null;
   }
 
-  ModuleInfo module(String moduleName) {
+  synchronized ModuleInfo module(String moduleName) {
     ModuleInfo result = moduleMap.get(moduleName);
     if (result == null) {
       Path path = modulePath(moduleName);
@@ -123,7 +127,7 @@ public class JimageClassBinder {
     return result;
   }
 
-  boolean initPackage(String packageName) {
+  synchronized boolean initPackage(String packageName) {
     Collection<String> moduleNames = packageMap.get(packageName);
     if (moduleNames.isEmpty()) {
       return false;
@@ -222,13 +226,18 @@ public class JimageClassBinder {
         @Nullable
         @Override
         public LookupResult lookup(LookupKey lookupKey) {
-          ClassSymbol sym = packageClassesBySimpleName.get(packageName, lookupKey.first().value());
+          ClassSymbol sym;
+          synchronized (JimageClassBinder.this) {
+            sym = packageClassesBySimpleName.get(packageName, lookupKey.first().value());
+          }
           return sym != null ? new LookupResult(sym, lookupKey) : null;
         }
 
         @Override
         public Iterable<ClassSymbol> classes() {
-          return packageClassesBySimpleName.row(packageName).values();
+          synchronized (JimageClassBinder.this) {
+            return ImmutableList.copyOf(packageClassesBySimpleName.row(packageName).values());
+          }
         }
       };
     }
@@ -37,6 +37,7 @@ import com.google.turbine.binder.env.Env;
 import com.google.turbine.binder.env.SimpleEnv;
 import com.google.turbine.binder.sym.ClassSymbol;
 import com.google.turbine.binder.sym.Symbol;
+import com.google.turbine.diag.Profiler;
 import com.google.turbine.diag.SourceFile;
 import com.google.turbine.diag.TurbineLog;
 import com.google.turbine.parse.Parser;
@@ -83,7 +84,8 @@ public class Processing {
       ProcessorInfo processorInfo,
       ClassPath bootclasspath,
       BindingResult result,
-      Optional<String> moduleVersion) {
+      Optional<String> moduleVersion,
+      Profiler profiler) {
 
     Set<String> seen = new HashSet<>();
     for (CompUnit u : initialSources) {
@@ -154,39 +156,15 @@ public class Processing {
 
     boolean errorRaised = false;
 
-    while (true) {
+    for (int round = 1; ; round++) {
       ImmutableSet<ClassSymbol> syms =
           Sets.difference(result.units().keySet(), allSymbols).immutableCopy();
       allSymbols.addAll(syms);
       if (syms.isEmpty()) {
         break;
       }
-      ImmutableSetMultimap<ClassSymbol, Symbol> allAnnotations = getAllAnnotations(env, syms);
-      TurbineRoundEnvironment roundEnv = null;
-      for (Processor processor : processorInfo.processors()) {
-        Set<TypeElement> annotations = new HashSet<>();
-        Pattern pattern = wanted.get(processor);
-        boolean run = toRun.contains(processor);
-        for (ClassSymbol a : allAnnotations.keys()) {
-          if (pattern.matcher(a.toString()).matches()) {
-            annotations.add(factory.typeElement(a));
-            run = true;
-          }
-        }
-        if (run) {
-          toRun.add(processor);
-          if (roundEnv == null) {
-            roundEnv =
-                new TurbineRoundEnvironment(factory, syms, false, errorRaised, allAnnotations);
-          }
-          try (Timers.Timer unused = timers.start(processor)) {
-            // discard the result of Processor#process because 'claiming' annotations is a bad idea
-            // TODO(cushon): consider disallowing this, or reporting a diagnostic
-            processor.process(annotations, roundEnv);
-          } catch (Throwable t) {
-            reportProcessorCrash(log, processor, t);
-          }
-        }
+      try (Profiler.Phase unusedPhase = profiler.start("processing round " + round)) {
+        processRound(log, timers, factory, env, processorInfo, wanted, toRun, syms, errorRaised);
       }
       Collection<SourceFile> files = filer.finishRound();
       if (files.isEmpty()) {
@@ -208,28 +186,17 @@ public class Processing {
               filer.generatedClasses(),
               classpath,
               bootclasspath,
-              moduleVersion);
+              moduleVersion,
+              profiler,
+              // the classpath was already prefetched when the original sources were bound
+              /* parallelism= */ 1);
       tenv = new SimpleEnv<>(result.units());
       env = CompoundEnv.<ClassSymbol, TypeBoundClass>of(result.classPathEnv()).append(tenv);
       factory.round(env, result.tli());
     }
 
-    TurbineRoundEnvironment roundEnv = null;
-    for (Processor processor : toRun) {
-      if (roundEnv == null) {
-        roundEnv =
-            new TurbineRoundEnvironment(
-                factory,
-                ImmutableSet.of(),
-                /* processingOver= */ true,
-                errorRaised,
-                ImmutableSetMultimap.of());
-      }
-      try (Timers.Timer unused = timers.start(processor)) {
-        processor.process(ImmutableSet.of(), roundEnv);
-      } catch (Throwable t) {
-        reportProcessorCrash(log, processor, t);
-      }
+    try (Profiler.Phase unusedPhase = profiler.start("processing final round")) {
+      processFinalRound(log, timers, factory, toRun, errorRaised);
     }
 
     Collection<SourceFile> files = filer.finishRound();
@@ -248,7 +215,9 @@ public class Processing {
               filer.generatedClasses(),
               classpath,
               bootclasspath,
-              moduleVersion);
+              moduleVersion,
+              profiler,
+              /* parallelism= */ 1);
       log.maybeThrow();
     }
 
@@ -267,6 +236,71 @@ public class Processing {
     return result;
   }
 
+  /** Runs the processors that support any of the annotations present in a processing round. */
+  private static void processRound(
+      TurbineLog log,
+      Timers timers,
+      ModelFactory factory,
+      Env<ClassSymbol, TypeBoundClass> env,
+      ProcessorInfo processorInfo,
+      Map<Processor, Pattern> wanted,
+      Set<Processor> toRun,
+      ImmutableSet<ClassSymbol> syms,
+      boolean errorRaised) {
+    ImmutableSetMultimap<ClassSymbol, Symbol> allAnnotations = getAllAnnotations(env, syms);
+    TurbineRoundEnvironment roundEnv = null;
+    for (Processor processor : processorInfo.processors()) {
+      Set<TypeElement> annotations = new HashSet<>();
+      Pattern pattern = wanted.get(processor);
+      boolean run = toRun.contains(processor);
+      for (ClassSymbol a : allAnnotations.keys()) {
+        if (pattern.matcher(a.toString()).matches()) {
+          annotations.add(factory.typeElement(a));
+          run = true;
+        }
+      }
+      if (run) {
+        toRun.add(processor);
+        if (roundEnv == null) {
+          roundEnv = new TurbineRoundEnvironment(factory, syms, false, errorRaised, allAnnotations);
+        }
+        try (Timers.Timer unused = timers.start(processor)) {
+          // discard the result of Processor#process because 'claiming' annotations is a bad idea
+          // TODO(cushon): consider disallowing this, or reporting a diagnostic
+          processor.process(annotations, roundEnv);
+        } catch (Throwable t) {
+          reportProcessorCrash(log, processor, t);
+        }
+      }
+    }
+  }
+
+  /** Runs the processors that ran in any earlier round in the final processing round. */
+  private static void processFinalRound(
+      TurbineLog log,
+      Timers timers,
+      ModelFactory factory,
+      Set<Processor> toRun,
+      boolean errorRaised) {
+    TurbineRoundEnvironment roundEnv = null;
+    for (Processor processor : toRun) {
+      if (roundEnv == null) {
+        roundEnv =
+            new TurbineRoundEnvironment(
+                factory,
+                ImmutableSet.of(),
+                /* processingOver= */ true,
+                errorRaised,
+                ImmutableSetMultimap.of());
+      }
+      try (Timers.Timer unused = timers.start(processor)) {
+        processor.process(ImmutableSet.of(), roundEnv);
+      } catch (Throwable t) {
+        reportProcessorCrash(log, processor, t);
+      }
+    }
+  }
+
   private static void reportProcessorCrash(TurbineLog log, Processor processor, Throwable t) {
     log.diagnostic(
         Diagnostic.Kind.ERROR,
@@ -358,6 +392,14 @@ public class Processing {
     }
   }
 
+  /**
+   * Returns true if {@link #initializeProcessors} will return any processors for the given options.
+   */
+  public static boolean processorsEnabled(
+      ImmutableList<String> javacopts, ImmutableSet<String> processorNames) {
+    return !processorNames.isEmpty() && !javacopts.contains("-proc:none");
+  }
+
   public static ProcessorInfo initializeProcessors(
       ImmutableList<String> javacopts,
       ImmutableList<String> processorPath,
@@ -367,7 +409,7 @@ public class Processing {
     ClassLoader processorLoader = null;
     ImmutableList.Builder<Processor> processors = ImmutableList.builder();
     ImmutableMap<String, String> processorOptions;
-    if (!processorNames.isEmpty() && !javacopts.contains("-proc:none")) {
+    if (processorsEnabled(javacopts, processorNames)) {
       if (!processorPath.isEmpty()) {
         processorLoader =
             new URLClassLoader(
@@ -37,7 +37,6 @@ import com.google.turbine.bytecode.sig.Sig;
 import com.google.turbine.bytecode.sig.Sig.LowerBoundTySig;
 import com.google.turbine.bytecode.sig.Sig.UpperBoundTySig;
 import com.google.turbine.bytecode.sig.Sig.WildTySig;
-import com.google.turbine.bytecode.sig.SigParser;
 import com.google.turbine.model.Const;
 import com.google.turbine.model.Const.ArrayInitValue;
 import com.google.turbine.type.AnnoInfo;
@@ -117,8 +116,8 @@ public class BytecodeBinder {
         return bindArrayValue((ArrayValue) value);
       case CLASS:
         return new TurbineClassValue(
-            bindTy(
-                new SigParser(((ConstTurbineClassValue) value).className()).parseType(),
+            SigCache.bindTy(
+                SigCache.typeSig(((ConstTurbineClassValue) value).className()),
                 x -> {
                   throw new IllegalStateException(x);
                 }));
@@ -43,11 +43,11 @@ import com.google.turbine.bytecode.ClassFile.AnnotationInfo.ElementValue.EnumCon
 import com.google.turbine.bytecode.ClassFile.AnnotationInfo.ElementValue.Kind;
 import com.google.turbine.bytecode.ClassFile.MethodInfo.ParameterInfo;
 import com.google.turbine.bytecode.ClassReader;
+import com.google.turbine.bytecode.LazyClassFile;
 import com.google.turbine.bytecode.sig.Sig;
 import com.google.turbine.bytecode.sig.Sig.ClassSig;
 import com.google.turbine.bytecode.sig.Sig.ClassTySig;
 import com.google.turbine.bytecode.sig.Sig.TySig;
-import com.google.turbine.bytecode.sig.SigParser;
 import com.google.turbine.model.Const;
 import com.google.turbine.model.TurbineElementType;
 import com.google.turbine.model.TurbineFlag;
@@ -73,7 +73,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
 
   private final ClassSymbol sym;
   private final Env<ClassSymbol, BytecodeBoundClass> env;
-  private final Supplier<ClassFile> classFile;
+  private final Supplier<LazyClassFile> classFile;
   private final String jarFile;
 
   public BytecodeBoundClass(
@@ -86,10 +86,11 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
     this.jarFile = jarFile;
     this.classFile =
         Suppliers.memoize(
-            new Supplier<ClassFile>() {
+            new Supplier<LazyClassFile>() {
               @Override
-              public ClassFile get() {
-                ClassFile cf = ClassReader.read(jarFile + "!" + sym.binaryName(), bytes.get());
+              public LazyClassFile get() {
+                LazyClassFile cf =
+                    ClassReader.readLazy(jarFile + "!" + sym.binaryName(), bytes.get());
                 verify(
                     cf.name().equals(sym.binaryName()),
                     "expected class data for %s, saw %s instead",
@@ -197,7 +198,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
               if (signature == null) {
                 return null;
               }
-              return new SigParser(signature).parseClassSig();
+              return SigCache.classSig(signature);
             }
           });
 
@@ -270,7 +271,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
               if (sig.get() == null || sig.get().superClass() == null) {
                 return ClassTy.asNonParametricClassTy(superclass());
               }
-              return BytecodeBinder.bindClassTy(
+              return SigCache.bindClassTy(
                   sig.get().superClass(), makeScope(env, sym, ImmutableMap.of()));
             }
           });
@@ -296,7 +297,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
               } else {
                 Function<String, TyVarSymbol> scope = makeScope(env, sym, ImmutableMap.of());
                 for (ClassTySig classTySig : sig.get().interfaces()) {
-                  result.add(BytecodeBinder.bindClassTy(classTySig, scope));
+                  result.add(SigCache.bindClassTy(classTySig, scope));
                 }
               }
               return result.build();
@@ -328,10 +329,10 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
   private static TyVarInfo bindTyParam(Sig.TyParamSig sig, Function<String, TyVarSymbol> scope) {
     ImmutableList.Builder<Type> bounds = ImmutableList.builder();
     if (sig.classBound() != null) {
-      bounds.add(BytecodeBinder.bindTy(sig.classBound(), scope));
+      bounds.add(SigCache.bindTy(sig.classBound(), scope));
     }
     for (Sig.TySig t : sig.interfaceBounds()) {
-      bounds.add(BytecodeBinder.bindTy(t, scope));
+      bounds.add(SigCache.bindTy(t, scope));
     }
     return new TyVarInfo(
         IntersectionTy.create(bounds.build()), /* lowerBound= */ null, ImmutableList.of());
@@ -351,8 +352,8 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
               for (ClassFile.FieldInfo cfi : classFile.get().fields()) {
                 FieldSymbol fieldSym = new FieldSymbol(sym, cfi.name());
                 Type type =
-                    BytecodeBinder.bindTy(
-                        new SigParser(firstNonNull(cfi.signature(), cfi.descriptor())).parseType(),
+                    SigCache.bindTy(
+                        SigCache.typeSig(firstNonNull(cfi.signature(), cfi.descriptor())),
                         makeScope(env, sym, ImmutableMap.of()));
                 int access = cfi.access();
                 Const.Value value = cfi.value();
@@ -389,7 +390,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
 
   private MethodInfo bindMethod(int methodIdx, ClassFile.MethodInfo m) {
     MethodSymbol methodSymbol = new MethodSymbol(methodIdx, sym, m.name());
-    Sig.MethodSig sig = new SigParser(firstNonNull(m.signature(), m.descriptor())).parseMethodSig();
+    Sig.MethodSig sig = SigCache.methodSig(firstNonNull(m.signature(), m.descriptor()));
 
     ImmutableMap<String, TyVarSymbol> tyParams;
     {
@@ -414,7 +415,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
 
     Type ret = null;
     if (sig.returnType() != null) {
-      ret = BytecodeBinder.bindTy(sig.returnType(), scope);
+      ret = SigCache.bindTy(sig.returnType(), scope);
     }
 
     ImmutableList.Builder<ParamInfo> formals = ImmutableList.builder();
@@ -438,7 +439,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
       formals.add(
           new ParamInfo(
               new ParamSymbol(methodSymbol, name),
-              BytecodeBinder.bindTy(tySig, scope),
+              SigCache.bindTy(tySig, scope),
               annotations,
               access));
       idx++;
@@ -447,7 +448,7 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
     ImmutableList.Builder<Type> exceptions = ImmutableList.builder();
     if (!sig.exceptions().isEmpty()) {
       for (TySig e : sig.exceptions()) {
-        exceptions.add(BytecodeBinder.bindTy(e, scope));
+        exceptions.add(SigCache.bindTy(e, scope));
       }
     } else {
       for (String e : m.exceptions()) {
@@ -615,8 +616,8 @@ public class BytecodeBoundClass implements BoundClass, HeaderBoundClass, TypeBou
     return jarFile;
   }
 
-  /** The class file the symbol was loaded from. */
+  /** The class file the symbol was loaded from, with every section decoded. */
   public ClassFile classFile() {
-    return classFile.get();
+    return classFile.get().toClassFile();
   }
 }
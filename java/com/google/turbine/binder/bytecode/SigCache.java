@@ -0,0 +1,158 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.binder.bytecode;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.turbine.binder.sym.TyVarSymbol;
+import com.google.turbine.bytecode.sig.Sig;
+import com.google.turbine.bytecode.sig.Sig.ClassSig;
+import com.google.turbine.bytecode.sig.Sig.LowerBoundTySig;
+import com.google.turbine.bytecode.sig.Sig.MethodSig;
+import com.google.turbine.bytecode.sig.Sig.TySig;
+import com.google.turbine.bytecode.sig.Sig.UpperBoundTySig;
+import com.google.turbine.bytecode.sig.SigParser;
+import com.google.turbine.type.Type;
+import java.util.function.Function;
+
+/**
+ * A cache of parsed signatures and descriptors from class files, which is shared by all
+ * compilations in the process.
+ *
+ * <p>The same signatures are parsed many times, for different classes on the same classpath and
+ * for the same classes in different compilations in a long-lived process. The {@link Sig} trees are
+ * immutable, so they can be shared. The {@link Type}s bound from signatures that don't refer to any
+ * type variables are also shared, since they don't depend on the declaration the signature
+ * appeared in.
+ */
+public final class SigCache {
+
+  /** The maximum number of entries in each of the caches. */
+  static final int MAXIMUM_SIZE = 1 << 15;
+
+  private static final Cache<String, ClassSig> CLASS_SIGS = newCache();
+  private static final Cache<String, MethodSig> METHOD_SIGS = newCache();
+  private static final Cache<String, TySig> TYPE_SIGS = newCache();
+
+  /**
+   * Types bound from signatures without type variables. The keys are compared by identity, which
+   * is enough because the signatures are also cached, and entries are removed when their key is
+   * evicted from one of the signature caches and garbage collected.
+   */
+  private static final Cache<TySig, Type> TYPES =
+      CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).weakKeys().recordStats().build();
+
+  private static <V> Cache<String, V> newCache() {
+    return CacheBuilder.newBuilder().maximumSize(MAXIMUM_SIZE).recordStats().build();
+  }
+
+  /** Returns the parsed JVMS 4.7.9.1 ClassSignature. */
+  static ClassSig classSig(String signature) {
+    ClassSig result = CLASS_SIGS.getIfPresent(signature);
+    if (result == null) {
+      // concurrent misses for the same signature may parse it more than once, which is harmless
+      result = new SigParser(signature).parseClassSig();
+      CLASS_SIGS.put(signature, result);
+    }
+    return result;
+  }
+
+  /** Returns the parsed JVMS 4.7.9.1 MethodSignature or method descriptor. */
+  static MethodSig methodSig(String signature) {
+    MethodSig result = METHOD_SIGS.getIfPresent(signature);
+    if (result == null) {
+      result = new SigParser(signature).parseMethodSig();
+      METHOD_SIGS.put(signature, result);
+    }
+    return result;
+  }
+
+  /** Returns the parsed JVMS 4.7.9.1 FieldSignature or field descriptor. */
+  static TySig typeSig(String signature) {
+    TySig result = TYPE_SIGS.getIfPresent(signature);
+    if (result == null) {
+      result = new SigParser(signature).parseType();
+      TYPE_SIGS.put(signature, result);
+    }
+    return result;
+  }
+
+  /**
+   * Binds a type from a signature, see {@link BytecodeBinder#bindTy}. The result is shared if the
+   * signature doesn't refer to any type variables.
+   */
+  static Type bindTy(TySig sig, Function<String, TyVarSymbol> scope) {
+    if (hasTyVars(sig)) {
+      return BytecodeBinder.bindTy(sig, scope);
+    }
+    Type result = TYPES.getIfPresent(sig);
+    if (result == null) {
+      result = BytecodeBinder.bindTy(sig, scope);
+      TYPES.put(sig, result);
+    }
+    return result;
+  }
+
+  /** Binds a class type from a signature, see {@link #bindTy}. */
+  static Type.ClassTy bindClassTy(Sig.ClassTySig sig, Function<String, TyVarSymbol> scope) {
+    return (Type.ClassTy) bindTy(sig, scope);
+  }
+
+  private static boolean hasTyVars(TySig sig) {
+    switch (sig.kind()) {
+      case BASE_TY_SIG:
+      case VOID_TY_SIG:
+        return false;
+      case TY_VAR_SIG:
+        return true;
+      case ARRAY_TY_SIG:
+        return hasTyVars(((Sig.ArrayTySig) sig).elementType());
+      case WILD_TY_SIG:
+        switch (((Sig.WildTySig) sig).boundKind()) {
+          case NONE:
+            return false;
+          case LOWER:
+            return hasTyVars(((LowerBoundTySig) sig).bound());
+          case UPPER:
+            return hasTyVars(((UpperBoundTySig) sig).bound());
+        }
+        throw new AssertionError(((Sig.WildTySig) sig).boundKind());
+      case CLASS_TY_SIG:
+        for (Sig.SimpleClassTySig s : ((Sig.ClassTySig) sig).classes()) {
+          for (TySig arg : s.tyArgs()) {
+            if (hasTyVars(arg)) {
+              return true;
+            }
+          }
+        }
+        return false;
+    }
+    throw new AssertionError(sig.kind());
+  }
+
+  /** Returns the combined statistics for the signature and type caches. */
+  public static CacheStats stats() {
+    return CLASS_SIGS
+        .stats()
+        .plus(METHOD_SIGS.stats())
+        .plus(TYPE_SIGS.stats())
+        .plus(TYPES.stats());
+  }
+
+  private SigCache() {}
+}
@@ -17,7 +17,6 @@
 package com.google.turbine.bytecode;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.ByteArrayDataOutput;
 import com.google.turbine.bytecode.ClassFile.AnnotationInfo;
 import com.google.turbine.bytecode.ClassFile.AnnotationInfo.ElementValue;
 import com.google.turbine.bytecode.ClassFile.AnnotationInfo.ElementValue.ArrayValue;
@@ -40,9 +39,9 @@ import java.util.Map.Entry;
 public class AnnotationWriter {
 
   final ConstantPool pool;
-  final ByteArrayDataOutput output;
+  final ByteWriter output;
 
-  public AnnotationWriter(ConstantPool pool, ByteArrayDataOutput output) {
+  public AnnotationWriter(ConstantPool pool, ByteWriter output) {
     this.pool = pool;
     this.output = output;
   }
@@ -16,8 +16,6 @@
 
 package com.google.turbine.bytecode;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import com.google.turbine.bytecode.Attribute.Annotations;
 import com.google.turbine.bytecode.Attribute.ConstantValue;
 import com.google.turbine.bytecode.Attribute.ExceptionsAttribute;
@@ -41,9 +39,9 @@ import java.util.List;
 public class AttributeWriter {
 
   private final ConstantPool pool;
-  private final ByteArrayDataOutput output;
+  private final ByteWriter output;
 
-  public AttributeWriter(ConstantPool pool, ByteArrayDataOutput output) {
+  public AttributeWriter(ConstantPool pool, ByteWriter output) {
     this.pool = pool;
     this.output = output;
   }
@@ -149,39 +147,32 @@ public class AttributeWriter {
   }
 
   public void writeAnnotation(Annotations attribute) {
-    output.writeShort(pool.utf8(attribute.kind().signature()));
-    ByteArrayDataOutput tmp = ByteStreams.newDataOutput();
-    tmp.writeShort(attribute.annotations().size());
+    int start = beginAttribute(attribute);
+    output.writeShort(attribute.annotations().size());
+    AnnotationWriter writer = new AnnotationWriter(pool, output);
     for (AnnotationInfo annotation : attribute.annotations()) {
-      new AnnotationWriter(pool, tmp).writeAnnotation(annotation);
+      writer.writeAnnotation(annotation);
     }
-    byte[] data = tmp.toByteArray();
-    output.writeInt(data.length);
-    output.write(data);
+    endAttribute(start);
   }
 
   public void writeAnnotationDefault(Attribute.AnnotationDefault attribute) {
-    output.writeShort(pool.utf8(attribute.kind().signature()));
-    ByteArrayDataOutput tmp = ByteStreams.newDataOutput();
-    new AnnotationWriter(pool, tmp).writeElementValue(attribute.value());
-    byte[] data = tmp.toByteArray();
-    output.writeInt(data.length);
-    output.write(data);
+    int start = beginAttribute(attribute);
+    new AnnotationWriter(pool, output).writeElementValue(attribute.value());
+    endAttribute(start);
   }
 
   public void writeParameterAnnotations(Attribute.ParameterAnnotations attribute) {
-    output.writeShort(pool.utf8(attribute.kind().signature()));
-    ByteArrayDataOutput tmp = ByteStreams.newDataOutput();
-    tmp.writeByte(attribute.annotations().size());
+    int start = beginAttribute(attribute);
+    output.writeByte(attribute.annotations().size());
+    AnnotationWriter writer = new AnnotationWriter(pool, output);
     for (List<AnnotationInfo> parameterAnnotations : attribute.annotations()) {
-      tmp.writeShort(parameterAnnotations.size());
+      output.writeShort(parameterAnnotations.size());
       for (AnnotationInfo annotation : parameterAnnotations) {
-        new AnnotationWriter(pool, tmp).writeAnnotation(annotation);
+        writer.writeAnnotation(annotation);
       }
     }
-    byte[] data = tmp.toByteArray();
-    output.writeInt(data.length);
-    output.write(data);
+    endAttribute(start);
   }
 
   private void writeDeprecated(Attribute attribute) {
@@ -190,15 +181,13 @@ public class AttributeWriter {
   }
 
   private void writeTypeAnnotation(TypeAnnotations attribute) {
-    output.writeShort(pool.utf8(attribute.kind().signature()));
-    ByteArrayDataOutput tmp = ByteStreams.newDataOutput();
-    tmp.writeShort(attribute.annotations().size());
+    int start = beginAttribute(attribute);
+    output.writeShort(attribute.annotations().size());
+    AnnotationWriter writer = new AnnotationWriter(pool, output);
     for (TypeAnnotationInfo annotation : attribute.annotations()) {
-      new AnnotationWriter(pool, tmp).writeTypeAnnotation(annotation);
+      writer.writeTypeAnnotation(annotation);
     }
-    byte[] data = tmp.toByteArray();
-    output.writeInt(data.length);
-    output.write(data);
+    endAttribute(start);
   }
 
   private void writeMethodParameters(MethodParameters attribute) {
@@ -214,56 +203,74 @@ public class AttributeWriter {
   private void writeModule(Attribute.Module attribute) {
     ModuleInfo module = attribute.module();
 
-    ByteArrayDataOutput tmp = ByteStreams.newDataOutput();
+    // the attribute name is added to the constant pool after the module's contents
+    int nameIndex = output.pos();
+    output.writeShort(0);
+    int start = output.pos();
+    output.writeInt(0);
 
-    tmp.writeShort(pool.moduleInfo(module.name()));
-    tmp.writeShort(module.flags());
-    tmp.writeShort(module.version() != null ? pool.utf8(module.version()) : 0);
+    output.writeShort(pool.moduleInfo(module.name()));
+    output.writeShort(module.flags());
+    output.writeShort(module.version() != null ? pool.utf8(module.version()) : 0);
 
-    tmp.writeShort(module.requires().size());
+    output.writeShort(module.requires().size());
     for (RequireInfo require : module.requires()) {
-      tmp.writeShort(pool.moduleInfo(require.moduleName()));
-      tmp.writeShort(require.flags());
-      tmp.writeShort(require.version() != null ? pool.utf8(require.version()) : 0);
+      output.writeShort(pool.moduleInfo(require.moduleName()));
+      output.writeShort(require.flags());
+      output.writeShort(require.version() != null ? pool.utf8(require.version()) : 0);
     }
 
-    tmp.writeShort(module.exports().size());
+    output.writeShort(module.exports().size());
     for (ExportInfo export : module.exports()) {
-      tmp.writeShort(pool.packageInfo(export.moduleName()));
-      tmp.writeShort(export.flags());
-      tmp.writeShort(export.modules().size());
+      output.writeShort(pool.packageInfo(export.moduleName()));
+      output.writeShort(export.flags());
+      output.writeShort(export.modules().size());
       for (String exportedModule : export.modules()) {
-        tmp.writeShort(pool.moduleInfo(exportedModule));
+        output.writeShort(pool.moduleInfo(exportedModule));
       }
     }
 
-    tmp.writeShort(module.opens().size());
+    output.writeShort(module.opens().size());
     for (OpenInfo opens : module.opens()) {
-      tmp.writeShort(pool.packageInfo(opens.moduleName()));
-      tmp.writeShort(opens.flags());
-      tmp.writeShort(opens.modules().size());
+      output.writeShort(pool.packageInfo(opens.moduleName()));
+      output.writeShort(opens.flags());
+      output.writeShort(opens.modules().size());
       for (String openModule : opens.modules()) {
-        tmp.writeShort(pool.moduleInfo(openModule));
+        output.writeShort(pool.moduleInfo(openModule));
       }
     }
 
-    tmp.writeShort(module.uses().size());
+    output.writeShort(module.uses().size());
     for (UseInfo use : module.uses()) {
-      tmp.writeShort(pool.classInfo(use.descriptor()));
+      output.writeShort(pool.classInfo(use.descriptor()));
     }
 
-    tmp.writeShort(module.provides().size());
+    output.writeShort(module.provides().size());
     for (ProvideInfo provide : module.provides()) {
-      tmp.writeShort(pool.classInfo(provide.descriptor()));
-      tmp.writeShort(provide.implDescriptors().size());
+      output.writeShort(pool.classInfo(provide.descriptor()));
+      output.writeShort(provide.implDescriptors().size());
       for (String impl : provide.implDescriptors()) {
-        tmp.writeShort(pool.classInfo(impl));
+        output.writeShort(pool.classInfo(impl));
       }
     }
 
-    byte[] data = tmp.toByteArray();
+    output.putShort(nameIndex, pool.utf8(attribute.kind().signature()));
+    endAttribute(start);
+  }
+
+  /**
+   * Writes the attribute_name_index of the given attribute, and reserves space for its
+   * attribute_length. Returns the position of the attribute_length, which is filled in by {@link
+   * #endAttribute} once the rest of the attribute has been written.
+   */
+  private int beginAttribute(Attribute attribute) {
     output.writeShort(pool.utf8(attribute.kind().signature()));
-    output.writeInt(data.length);
-    output.write(data);
+    int start = output.pos();
+    output.writeInt(0);
+    return start;
+  }
+
+  private void endAttribute(int start) {
+    output.putInt(start, output.pos() - start - 4);
   }
 }
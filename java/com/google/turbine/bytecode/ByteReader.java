@@ -16,65 +16,125 @@
 
 package com.google.turbine.bytecode;
 
-import static com.google.common.base.Verify.verify;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
 
-import com.google.common.io.ByteArrayDataInput;
-import com.google.common.io.ByteStreams;
-import java.io.ByteArrayInputStream;
-
-/** A {@link ByteArrayDataInput} wrapper that tracks the current byte array index. */
+/**
+ * A cursor over big-endian data in a byte array, which supports sequential reads from the current
+ * position and positioned reads that don't affect it. Reading doesn't allocate, except to decode
+ * strings.
+ */
 public class ByteReader {
 
   private final byte[] bytes;
-  private final IndexedByteArrayInputStream indexed;
-  private final ByteArrayDataInput input;
+  private int pos;
 
   public ByteReader(byte[] bytes, int pos) {
     this.bytes = bytes;
-    this.indexed = new IndexedByteArrayInputStream(bytes, pos, bytes.length);
-    this.input = ByteStreams.newDataInput(indexed);
-  }
-
-  public ByteArrayDataInput seek(int i) {
-    return ByteStreams.newDataInput(bytes, i);
+    this.pos = pos;
   }
 
   /** The position in the input buffer. */
   public int pos() {
-    return indexed.pos();
+    return pos;
   }
 
   /** Reads an unsigned 8-bit integer. */
   public int u1() {
-    return input.readUnsignedByte();
+    int result = u1(pos);
+    pos += 1;
+    return result;
   }
 
   /** Reads an unsigned 16-bit integer in big-endian byte order. */
   public int u2() {
-    return input.readUnsignedShort();
+    int result = u2(pos);
+    pos += 2;
+    return result;
   }
 
   /** Reads an unsigned 32-bit integer in big-endian byte order. */
   public int u4() {
-    return input.readInt();
+    int result = u4(pos);
+    pos += 4;
+    return result;
   }
 
   /** Skips n bytes of input. */
   public void skip(int n) {
-    int skipped = input.skipBytes(n);
-    // this is only used with {@link ByteArrayInputStream}.
-    verify(skipped == n, "wanted %s, read %s", n, skipped);
+    if (n < 0 || n > bytes.length - pos) {
+      throw new IndexOutOfBoundsException(
+          String.format("wanted %s, %s remaining", n, bytes.length - pos));
+    }
+    pos += n;
   }
 
-  /** {@link #pos} is protected in {@link java.io.ByteArrayInputStream}. */
-  static class IndexedByteArrayInputStream extends ByteArrayInputStream {
+  /** Reads an unsigned 8-bit integer at the given position. */
+  public int u1(int index) {
+    return bytes[index] & 0xff;
+  }
 
-    IndexedByteArrayInputStream(byte[] buf, int offset, int length) {
-      super(buf, offset, length);
-    }
+  /** Reads an unsigned 16-bit integer in big-endian byte order at the given position. */
+  public int u2(int index) {
+    return (bytes[index] & 0xff) << 8 | (bytes[index + 1] & 0xff);
+  }
 
-    int pos() {
-      return pos;
+  /** Reads a 32-bit integer in big-endian byte order at the given position. */
+  public int u4(int index) {
+    return (bytes[index] & 0xff) << 24
+        | (bytes[index + 1] & 0xff) << 16
+        | (bytes[index + 2] & 0xff) << 8
+        | (bytes[index + 3] & 0xff);
+  }
+
+  /** Reads a 64-bit integer in big-endian byte order at the given position. */
+  public long u8(int index) {
+    return (long) u4(index) << 32 | (u4(index + 4) & 0xffffffffL);
+  }
+
+  /**
+   * Decodes {@code length} bytes of modified UTF-8 (JVMS §4.4.7) at the given position.
+   *
+   * @throws IllegalArgumentException if the input is malformed
+   */
+  public String utf8(int index, int length) {
+    int end = index + length;
+    if (index < 0 || length < 0 || end > bytes.length) {
+      throw new IndexOutOfBoundsException(
+          String.format("wanted %s bytes at %s of %s", length, index, bytes.length));
+    }
+    int i = index;
+    while (i < end && bytes[i] >= 0) {
+      i++;
     }
+    if (i == end) {
+      // all of the characters are ASCII, which is a subset of Latin-1
+      return new String(bytes, index, length, ISO_8859_1);
+    }
+    char[] chars = new char[length];
+    int n = 0;
+    for (i = index; i < end; ) {
+      int b = bytes[i] & 0xff;
+      if (b < 0x80) {
+        chars[n++] = (char) b;
+        i += 1;
+      } else if ((b & 0xe0) == 0xc0 && i + 1 < end && isContinuation(bytes[i + 1])) {
+        chars[n++] = (char) ((b & 0x1f) << 6 | (bytes[i + 1] & 0x3f));
+        i += 2;
+      } else if ((b & 0xf0) == 0xe0
+          && i + 2 < end
+          && isContinuation(bytes[i + 1])
+          && isContinuation(bytes[i + 2])) {
+        chars[n++] = (char) ((b & 0x0f) << 12 | (bytes[i + 1] & 0x3f) << 6 | (bytes[i + 2] & 0x3f));
+        i += 3;
+      } else {
+        throw new IllegalArgumentException(
+            String.format("malformed modified UTF-8 at byte %d", i - index));
+      }
+    }
+    return new String(chars, 0, n);
+  }
+
+  private static boolean isContinuation(byte b) {
+    return (b & 0xc0) == 0x80;
   }
 }
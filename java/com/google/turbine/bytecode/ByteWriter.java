@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.bytecode;
+
+import java.util.Arrays;
+
+/**
+ * A growable buffer for big-endian data, which supports patching values that were already written,
+ * and can be reset and reused.
+ */
+public class ByteWriter {
+
+  /** The maximum length in bytes of a modified UTF-8 string in a class file, see JVMS 4.4.7. */
+  public static final int MAX_UTF8_LENGTH = 0xffff;
+
+  private byte[] bytes;
+  private int pos;
+
+  public ByteWriter() {
+    this(1024);
+  }
+
+  public ByteWriter(int initialCapacity) {
+    this.bytes = new byte[initialCapacity];
+  }
+
+  /** The number of bytes written so far, which is also the position of the next write. */
+  public int pos() {
+    return pos;
+  }
+
+  /** Discards the contents of the buffer, without releasing its storage. */
+  public void reset() {
+    pos = 0;
+  }
+
+  /** Ensures that at least {@code n} more bytes can be written without growing the buffer. */
+  public void ensureCapacity(int n) {
+    if (n > bytes.length - pos) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, pos + n));
+    }
+  }
+
+  /** Writes an 8-bit integer. */
+  public void writeByte(int value) {
+    ensureCapacity(1);
+    bytes[pos++] = (byte) value;
+  }
+
+  /** Writes a 16-bit integer in big-endian byte order. */
+  public void writeShort(int value) {
+    ensureCapacity(2);
+    bytes[pos++] = (byte) (value >>> 8);
+    bytes[pos++] = (byte) value;
+  }
+
+  /** Writes a 32-bit integer in big-endian byte order. */
+  public void writeInt(int value) {
+    ensureCapacity(4);
+    bytes[pos++] = (byte) (value >>> 24);
+    bytes[pos++] = (byte) (value >>> 16);
+    bytes[pos++] = (byte) (value >>> 8);
+    bytes[pos++] = (byte) value;
+  }
+
+  /** Writes a 64-bit integer in big-endian byte order. */
+  public void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  /** Writes a float in big-endian byte order. */
+  public void writeFloat(float value) {
+    writeInt(Float.floatToIntBits(value));
+  }
+
+  /** Writes a double in big-endian byte order. */
+  public void writeDouble(double value) {
+    writeLong(Double.doubleToLongBits(value));
+  }
+
+  /** Writes the given bytes. */
+  public void write(byte[] value) {
+    ensureCapacity(value.length);
+    System.arraycopy(value, 0, bytes, pos, value.length);
+    pos += value.length;
+  }
+
+  /** Returns the length in bytes of the modified UTF-8 encoding of the given string. */
+  public static int utf8Length(String value) {
+    int length = value.length();
+    int result = length;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c == 0 || c >= 0x80) {
+        result += c < 0x800 ? 1 : 2;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Writes a string in modified UTF-8, preceded by its encoded length, as in {@link
+   * java.io.DataOutput#writeUTF}.
+   *
+   * @throws IllegalArgumentException if the encoded string is longer than {@link
+   *     #MAX_UTF8_LENGTH}
+   */
+  public void writeUTF(String value) {
+    writeUTF(value, utf8Length(value));
+  }
+
+  /**
+   * Writes a string in modified UTF-8, given the {@link #utf8Length} of its encoding.
+   *
+   * @throws IllegalArgumentException if the encoded string is longer than {@link
+   *     #MAX_UTF8_LENGTH}
+   */
+  @SuppressWarnings("deprecation") // String#getBytes(int, int, byte[], int)
+  void writeUTF(String value, int encodedLength) {
+    if (encodedLength > MAX_UTF8_LENGTH) {
+      throw utf8TooLong(value, encodedLength);
+    }
+    ensureCapacity(2 + encodedLength);
+    bytes[pos++] = (byte) (encodedLength >>> 8);
+    bytes[pos++] = (byte) encodedLength;
+    int length = value.length();
+    if (encodedLength == length) {
+      // Every char is in [1, 0x7f] and is encoded as a single byte, so the low byte of each char
+      // can be copied directly. This covers almost all names and descriptors.
+      value.getBytes(0, length, bytes, pos);
+      pos += length;
+      return;
+    }
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c != 0 && c < 0x80) {
+        bytes[pos++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[pos++] = (byte) (0xc0 | (c >> 6));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+      } else {
+        bytes[pos++] = (byte) (0xe0 | (c >> 12));
+        bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        bytes[pos++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+  }
+
+  /** Returns an exception for a string that is too long to be stored in a class file. */
+  static IllegalArgumentException utf8TooLong(String value, int encodedLength) {
+    return new IllegalArgumentException(
+        String.format(
+            "string constant too long: the encoded length is %d bytes, and the limit is %d: \"%s\"",
+            encodedLength,
+            MAX_UTF8_LENGTH,
+            value.length() > 32 ? value.substring(0, 32) + "..." : value));
+  }
+
+  /** Overwrites the 16-bit integer at the given position, which must already have been written. */
+  public void putShort(int index, int value) {
+    bytes[index] = (byte) (value >>> 8);
+    bytes[index + 1] = (byte) value;
+  }
+
+  /** Overwrites the 32-bit integer at the given position, which must already have been written. */
+  public void putInt(int index, int value) {
+    bytes[index] = (byte) (value >>> 24);
+    bytes[index + 1] = (byte) (value >>> 16);
+    bytes[index + 2] = (byte) (value >>> 8);
+    bytes[index + 3] = (byte) value;
+  }
+
+  /** Copies the contents of the buffer into the given array, starting at the given offset. */
+  public void copyTo(byte[] dest, int offset) {
+    System.arraycopy(bytes, 0, dest, offset, pos);
+  }
+
+  /** Returns a copy of the contents of the buffer. */
+  public byte[] toByteArray() {
+    return Arrays.copyOf(bytes, pos);
+  }
+}
@@ -50,15 +50,23 @@ public class ClassReader {
 
   /** Reads the given bytes into an {@link ClassFile}. */
   public static ClassFile read(@Nullable String path, byte[] bytes) {
-    return new ClassReader(path, bytes).read();
+    return readLazy(path, bytes).toClassFile();
+  }
+
+  /**
+   * Reads the given bytes into a {@link LazyClassFile}, which decodes each section of the class
+   * file the first time it's accessed.
+   */
+  public static LazyClassFile readLazy(@Nullable String path, byte[] bytes) {
+    return new ClassReader(path, bytes, 0).index(bytes);
   }
 
   @Nullable private final String path;
   private final ByteReader reader;
 
-  private ClassReader(@Nullable String path, byte[] bytes) {
+  ClassReader(@Nullable String path, byte[] bytes, int pos) {
     this.path = path;
-    this.reader = new ByteReader(bytes, 0);
+    this.reader = new ByteReader(bytes, pos);
   }
 
   @FormatMethod
@@ -72,7 +80,11 @@ public class ClassReader {
     return new AssertionError(sb.toString());
   }
 
-  private ClassFile read() {
+  /**
+   * Reads the constant pool, and records the offsets of the other sections of the class file
+   * without decoding them.
+   */
+  private LazyClassFile index(byte[] bytes) {
     int magic = reader.u4();
     if (magic != 0xcafebabe) {
       throw error("bad magic: 0x%x", magic);
@@ -83,69 +95,71 @@ public class ClassReader {
       throw error("bad version: %d.%d", majorVersion, minorVersion);
     }
     ConstantPoolReader constantPool = ConstantPoolReader.readConstantPool(reader);
-    int accessFlags = reader.u2();
-    String thisClass = constantPool.classInfo(reader.u2());
-    int superClassIndex = reader.u2();
-    String superClass;
-    if (superClassIndex != 0) {
-      superClass = constantPool.classInfo(superClassIndex);
-    } else {
-      superClass = null;
-    }
+    int header = reader.pos();
+    reader.skip(6); // access_flags, this_class, super_class
     int interfacesCount = reader.u2();
-    List<String> interfaces = new ArrayList<>();
-    for (int i = 0; i < interfacesCount; i++) {
-      interfaces.add(constantPool.classInfo(reader.u2()));
-    }
-
-    List<ClassFile.FieldInfo> fieldinfos = readFields(constantPool);
-
-    List<ClassFile.MethodInfo> methodinfos = readMethods(constantPool);
-
-    String signature = null;
-    List<ClassFile.InnerClass> innerclasses = ImmutableList.of();
-    ImmutableList.Builder<ClassFile.AnnotationInfo> annotations = ImmutableList.builder();
-    ClassFile.ModuleInfo module = null;
+    reader.skip(2 * interfacesCount);
+    int fields = reader.pos();
+    skipMembers();
+    int methods = reader.pos();
+    skipMembers();
+    int signature = -1;
+    int innerClasses = -1;
+    int module = -1;
+    ImmutableList.Builder<Integer> annotations = ImmutableList.builder();
     int attributesCount = reader.u2();
     for (int j = 0; j < attributesCount; j++) {
-      int attributeNameIndex = reader.u2();
-      String name = constantPool.utf8(attributeNameIndex);
+      String name = constantPool.utf8(reader.u2());
+      // record the offset of the attribute_length, which the section readers expect to start at
+      int offset = reader.pos();
       switch (name) {
         case "RuntimeInvisibleAnnotations":
         case "RuntimeVisibleAnnotations":
-          readAnnotations(annotations, constantPool);
+          annotations.add(offset);
           break;
         case "Signature":
-          signature = readSignature(constantPool);
+          signature = offset;
           break;
         case "InnerClasses":
-          innerclasses = readInnerClasses(constantPool, thisClass);
+          innerClasses = offset;
           break;
         case "Module":
-          module = readModule(constantPool);
+          module = offset;
           break;
         default:
-          reader.skip(reader.u4());
           break;
       }
+      reader.skip(reader.u4());
     }
-
-    return new ClassFile(
-        accessFlags,
-        thisClass,
+    return new LazyClassFile(
+        path,
+        bytes,
+        constantPool,
+        header,
+        interfacesCount,
+        fields,
+        methods,
         signature,
-        superClass,
-        interfaces,
-        methodinfos,
-        fieldinfos,
+        innerClasses,
         annotations.build(),
-        innerclasses,
-        ImmutableList.of(),
         module);
   }
 
+  /** Skips over JVMS 4.5 field_infos or JVMS 4.6 method_infos. */
+  private void skipMembers() {
+    int count = reader.u2();
+    for (int i = 0; i < count; i++) {
+      reader.skip(6); // access_flags, name_index, descriptor_index
+      int attributesCount = reader.u2();
+      for (int j = 0; j < attributesCount; j++) {
+        reader.skip(2); // attribute_name_index
+        reader.skip(reader.u4());
+      }
+    }
+  }
+
   /** Reads a JVMS 4.7.9 Signature attribute. */
-  private String readSignature(ConstantPoolReader constantPool) {
+  String readSignature(ConstantPoolReader constantPool) {
     String signature;
     reader.u4(); // length
     signature = constantPool.utf8(reader.u2());
@@ -153,7 +167,7 @@ public class ClassReader {
   }
 
   /** Reads JVMS 4.7.6 InnerClasses attributes. */
-  private List<ClassFile.InnerClass> readInnerClasses(
+  List<ClassFile.InnerClass> readInnerClasses(
       ConstantPoolReader constantPool, String thisClass) {
     reader.u4(); // length
     int numberOfClasses = reader.u2();
@@ -167,7 +181,10 @@ public class ClassReader {
       int innerNameIndex = reader.u2();
       String innerName = innerNameIndex != 0 ? constantPool.utf8(innerNameIndex) : null;
       int innerClassAccessFlags = reader.u2();
-      if (innerName != null && (thisClass.equals(innerClass) || thisClass.equals(outerClass))) {
+      // skip anonymous and local classes, which don't have a simple name or an outer class
+      if (innerName != null
+          && outerClass != null
+          && (thisClass.equals(innerClass) || thisClass.equals(outerClass))) {
         innerclasses.add(
             new ClassFile.InnerClass(innerClass, outerClass, innerName, innerClassAccessFlags));
       }
@@ -181,7 +198,7 @@ public class ClassReader {
    * <p>The only annotations that affect header compilation are {@link @Retention} and
    * {@link @Target} on annotation declarations.
    */
-  private void readAnnotations(
+  void readAnnotations(
       ImmutableList.Builder<ClassFile.AnnotationInfo> annotations,
       ConstantPoolReader constantPool) {
     reader.u4(); // length
@@ -225,7 +242,7 @@ public class ClassReader {
   }
 
   /** Processes a JVMS 4.7.25 Module attribute. */
-  private ModuleInfo readModule(ConstantPoolReader constantPool) {
+  ModuleInfo readModule(ConstantPoolReader constantPool) {
     reader.u4(); // length
     String name = constantPool.moduleInfo(reader.u2());
     int flags = reader.u2();
@@ -382,7 +399,7 @@ public class ClassReader {
   }
 
   /** Reads JVMS 4.6 method_infos. */
-  private List<ClassFile.MethodInfo> readMethods(ConstantPoolReader constantPool) {
+  List<ClassFile.MethodInfo> readMethods(ConstantPoolReader constantPool) {
     int methodsCount = reader.u2();
     List<ClassFile.MethodInfo> methods = new ArrayList<>();
     for (int i = 0; i < methodsCount; i++) {
@@ -465,7 +482,7 @@ public class ClassReader {
   }
 
   /** Reads JVMS 4.5 field_infos. */
-  private List<ClassFile.FieldInfo> readFields(ConstantPoolReader constantPool) {
+  List<ClassFile.FieldInfo> readFields(ConstantPoolReader constantPool) {
     int fieldsCount = reader.u2();
     List<ClassFile.FieldInfo> fields = new ArrayList<>();
     for (int i = 0; i < fieldsCount; i++) {
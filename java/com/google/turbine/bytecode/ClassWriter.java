@@ -16,14 +16,6 @@
 
 package com.google.turbine.bytecode;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
-import com.google.turbine.model.Const.DoubleValue;
-import com.google.turbine.model.Const.FloatValue;
-import com.google.turbine.model.Const.IntValue;
-import com.google.turbine.model.Const.LongValue;
-import com.google.turbine.model.Const.StringValue;
-import com.google.turbine.model.Const.Value;
 import java.util.List;
 
 /** Class file writing. */
@@ -36,10 +28,20 @@ public class ClassWriter {
   private static final int MAJOR_VERSION = 52;
   private static final int MODULE_MAJOR_VERSION = 53;
 
+  /**
+   * Per-thread scratch buffers for the class body, and for the header and constant pool which are
+   * written after the body but precede it in the output. Reusing them avoids growing a new buffer
+   * for every class, and the final output is copied out of them exactly once.
+   */
+  private static final ThreadLocal<ByteWriter> BODY = ThreadLocal.withInitial(ByteWriter::new);
+
+  private static final ThreadLocal<ByteWriter> HEADER = ThreadLocal.withInitial(ByteWriter::new);
+
   /** Writes a {@link ClassFile} to bytecode. */
   public static byte[] writeClass(ClassFile classfile) {
     ConstantPool pool = new ConstantPool();
-    ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    ByteWriter output = BODY.get();
+    output.reset();
     output.writeShort(classfile.access());
     output.writeShort(pool.classInfo(classfile.name()));
     output.writeShort(classfile.superName() != null ? pool.classInfo(classfile.superName()) : 0);
@@ -60,7 +62,7 @@ public class ClassWriter {
   }
 
   private static void writeMethod(
-      ConstantPool pool, ByteArrayDataOutput output, ClassFile.MethodInfo method) {
+      ConstantPool pool, ByteWriter output, ClassFile.MethodInfo method) {
     output.writeShort(method.access());
     output.writeShort(pool.utf8(method.name()));
     output.writeShort(pool.utf8(method.descriptor()));
@@ -68,7 +70,7 @@ public class ClassWriter {
   }
 
   private static void writeField(
-      ConstantPool pool, ByteArrayDataOutput output, ClassFile.FieldInfo field) {
+      ConstantPool pool, ByteWriter output, ClassFile.FieldInfo field) {
     output.writeShort(field.access());
     output.writeShort(pool.utf8(field.name()));
     output.writeShort(pool.utf8(field.descriptor()));
@@ -76,52 +78,54 @@ public class ClassWriter {
   }
 
   private static void writeAttributes(
-      ConstantPool pool, ByteArrayDataOutput body, List<Attribute> attributes) {
+      ConstantPool pool, ByteWriter body, List<Attribute> attributes) {
     body.writeShort(attributes.size());
+    AttributeWriter writer = new AttributeWriter(pool, body);
     for (Attribute attribute : attributes) {
-      new AttributeWriter(pool, body).write(attribute);
+      writer.write(attribute);
     }
   }
 
-  static void writeConstantPool(ConstantPool constantPool, ByteArrayDataOutput output) {
+  static void writeConstantPool(ConstantPool constantPool, ByteWriter output) {
     output.writeShort(constantPool.nextEntry);
-    for (ConstantPool.Entry e : constantPool.constants()) {
-      output.writeByte(e.kind().tag());
-      Value value = e.value();
-      switch (e.kind()) {
+    output.ensureCapacity(constantPool.byteSize());
+    for (int i = 0; i < constantPool.size(); i++) {
+      ConstantPool.Kind kind = constantPool.kind(i);
+      output.writeByte(kind.tag());
+      long value = constantPool.value(i);
+      switch (kind) {
         case CLASS_INFO:
         case STRING:
         case MODULE:
         case PACKAGE:
-          output.writeShort(((IntValue) value).value());
+          output.writeShort((int) value);
           break;
         case INTEGER:
-          output.writeInt(((IntValue) value).value());
-          break;
-        case DOUBLE:
-          output.writeDouble(((DoubleValue) value).value());
-          break;
         case FLOAT:
-          output.writeFloat(((FloatValue) value).value());
+          output.writeInt((int) value);
           break;
+        case DOUBLE:
         case LONG:
-          output.writeLong(((LongValue) value).value());
+          output.writeLong(value);
           break;
         case UTF8:
-          output.writeUTF(((StringValue) value).value());
+          output.writeUTF(constantPool.string(i), (int) value);
           break;
       }
     }
   }
 
   private static byte[] finishClass(
-      ConstantPool pool, ByteArrayDataOutput body, ClassFile classfile) {
-    ByteArrayDataOutput result = ByteStreams.newDataOutput();
-    result.writeInt(MAGIC);
-    result.writeShort(MINOR_VERSION);
-    result.writeShort(classfile.module() != null ? MODULE_MAJOR_VERSION : MAJOR_VERSION);
-    writeConstantPool(pool, result);
-    result.write(body.toByteArray());
-    return result.toByteArray();
+      ConstantPool pool, ByteWriter body, ClassFile classfile) {
+    ByteWriter header = HEADER.get();
+    header.reset();
+    header.writeInt(MAGIC);
+    header.writeShort(MINOR_VERSION);
+    header.writeShort(classfile.module() != null ? MODULE_MAJOR_VERSION : MAJOR_VERSION);
+    writeConstantPool(pool, header);
+    byte[] result = new byte[header.pos() + body.pos()];
+    header.copyTo(result, 0);
+    body.copyTo(result, header.pos());
+    return result;
   }
 }
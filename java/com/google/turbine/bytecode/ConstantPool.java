@@ -16,16 +16,9 @@
 
 package com.google.turbine.bytecode;
 
-import com.google.common.collect.ImmutableList;
-import com.google.turbine.model.Const;
-import com.google.turbine.model.Const.IntValue;
-import com.google.turbine.model.Const.StringValue;
-import com.google.turbine.model.Const.Value;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
 import java.util.Objects;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A constant pool builder, used when writing class files. */
 public class ConstantPool {
@@ -33,21 +26,69 @@ public class ConstantPool {
   /** The next available constant pool entry. */
   int nextEntry = 1;
 
-  private final Map<String, Integer> utf8Pool = new HashMap<>();
-  private final Map<Integer, Integer> classInfoPool = new HashMap<>();
-  private final Map<Integer, Integer> stringPool = new HashMap<>();
-  private final Map<Integer, Integer> integerPool = new HashMap<>();
-  private final Map<Double, Integer> doublePool = new HashMap<>();
-  private final Map<Float, Integer> floatPool = new HashMap<>();
-  private final Map<Long, Integer> longPool = new HashMap<>();
-  private final Map<Integer, Integer> modulePool = new HashMap<>();
-  private final Map<Integer, Integer> packagePool = new HashMap<>();
+  /**
+   * The kinds of the entries, in order. The entries are stored in parallel arrays instead of as
+   * objects, see {@link #values} and {@link #strings}.
+   */
+  private Kind[] kinds = new Kind[32];
 
-  private final List<Entry> constants = new ArrayList<>();
+  /**
+   * The value of each entry: the index of the referenced CONSTANT_Utf8_info for class, string,
+   * module and package entries, the raw bits of a numeric constant, or the encoded length of a
+   * CONSTANT_Utf8_info.
+   */
+  private long[] values = new long[32];
 
-  /** The ordered list of constant pool entries. */
-  public ImmutableList<Entry> constants() {
-    return ImmutableList.copyOf(constants);
+  /** The value of each CONSTANT_Utf8_info entry, or {@code null} for other entries. */
+  private @Nullable String[] strings = new String[32];
+
+  /** The number of entries. */
+  private int size = 0;
+
+  /** The number of bytes the entries take up in the class file. */
+  private int byteSize = 0;
+
+  /** Maps strings to the index of their CONSTANT_Utf8_info entries. */
+  private final StringIntMap utf8Pool = new StringIntMap();
+
+  /**
+   * Maps entries with a 32-bit value to their index, keyed by the entry's tag in the high bits and
+   * its value in the low bits.
+   */
+  private final LongIntMap intPool = new LongIntMap();
+
+  /** Maps the raw bits of CONSTANT_Long_info entries to their index. */
+  private final LongIntMap longPool = new LongIntMap();
+
+  /** Maps the raw bits of CONSTANT_Double_info entries to their index. */
+  private final LongIntMap doublePool = new LongIntMap();
+
+  /** The number of entries, which are numbered from zero and not by constant pool index. */
+  int size() {
+    return size;
+  }
+
+  /** The kind of the given entry. */
+  Kind kind(int entry) {
+    return kinds[entry];
+  }
+
+  /**
+   * The value of the given entry, which is a constant pool index, the raw bits of a numeric
+   * constant, or the {@link ByteWriter#utf8Length} of a CONSTANT_Utf8_info.
+   */
+  long value(int entry) {
+    return values[entry];
+  }
+
+  /** The value of the given CONSTANT_Utf8_info entry. */
+  String string(int entry) {
+    return strings[entry];
+  }
+
+  /** The number of bytes the entries take up in the class file, not including the count. */
+  int byteSize() {
+    return byteSize;
   }
 
   /** The number of constant pool entries the given kind takes up. */
@@ -70,131 +111,233 @@ public class ConstantPool {
     throw new AssertionError(kind);
   }
 
-  /** A constant pool entry. */
-  static class Entry {
-    private final Kind kind;
-    private final Value value;
-
-    Entry(Kind kind, Value value) {
-      this.kind = kind;
-      this.value = value;
-    }
-
-    /** The entry kind. */
-    public Kind kind() {
-      return kind;
-    }
-
-    /** The entry's value. */
-    public Value value() {
-      return value;
+  /** The number of bytes the given entry takes up in the class file. */
+  private static int byteSize(Kind kind, long value) {
+    switch (kind) {
+      case CLASS_INFO:
+      case STRING:
+      case MODULE:
+      case PACKAGE:
+        return 3;
+      case INTEGER:
+      case FLOAT:
+        return 5;
+      case LONG:
+      case DOUBLE:
+        return 9;
+      case UTF8:
+        return 3 + (int) value;
     }
+    throw new AssertionError(kind);
   }
 
   /** Adds a CONSTANT_Class_info entry to the pool. */
   int classInfo(String value) {
-    Objects.requireNonNull(value);
-    int utf8 = utf8(value);
-    if (classInfoPool.containsKey(utf8)) {
-      return classInfoPool.get(utf8);
-    }
-    int index = insert(new Entry(Kind.CLASS_INFO, new IntValue(utf8)));
-    classInfoPool.put(utf8, index);
-    return index;
+    return reference(Kind.CLASS_INFO, value);
   }
 
   /** Adds a CONSTANT_Utf8_info entry to the pool. */
   int utf8(String value) {
     Objects.requireNonNull(value);
-    if (utf8Pool.containsKey(value)) {
-      return utf8Pool.get(value);
+    int index = utf8Pool.get(value);
+    if (index != 0) {
+      return index;
+    }
+    int length = ByteWriter.utf8Length(value);
+    if (length > ByteWriter.MAX_UTF8_LENGTH) {
+      throw ByteWriter.utf8TooLong(value, length);
     }
-    int index = insert(new Entry(Kind.UTF8, new StringValue(value)));
+    index = insert(Kind.UTF8, length, value);
     utf8Pool.put(value, index);
     return index;
   }
 
   int integer(int value) {
-    if (integerPool.containsKey(value)) {
-      return integerPool.get(value);
-    }
-    int index = insert(new Entry(Kind.INTEGER, new Const.IntValue(value)));
-    integerPool.put(value, index);
-    return index;
+    return int32(Kind.INTEGER, value);
   }
 
   int longInfo(long value) {
-    if (longPool.containsKey(value)) {
-      return longPool.get(value);
-    }
-    int index = insert(new Entry(Kind.LONG, new Const.LongValue(value)));
-    longPool.put(value, index);
-    return index;
+    return int64(longPool, Kind.LONG, value);
   }
 
   int doubleInfo(double value) {
-    if (doublePool.containsKey(value)) {
-      return doublePool.get(value);
-    }
-    int index = insert(new Entry(Kind.DOUBLE, new Const.DoubleValue(value)));
-    doublePool.put(value, index);
-    return index;
+    return int64(doublePool, Kind.DOUBLE, Double.doubleToLongBits(value));
   }
 
   int floatInfo(float value) {
-    if (floatPool.containsKey(value)) {
-      return floatPool.get(value);
-    }
-    int index = insert(new Entry(Kind.FLOAT, new Const.FloatValue(value)));
-    floatPool.put(value, index);
-    return index;
+    return int32(Kind.FLOAT, Float.floatToIntBits(value));
   }
 
   int string(String value) {
-    Objects.requireNonNull(value);
-    int utf8 = utf8(value);
-    if (stringPool.containsKey(utf8)) {
-      return stringPool.get(utf8);
-    }
-    int index = insert(new Entry(Kind.STRING, new IntValue(utf8)));
-    stringPool.put(utf8, index);
-    return index;
+    return reference(Kind.STRING, value);
   }
 
   /** Adds a CONSTANT_Module_info entry to the pool. */
   int moduleInfo(String value) {
-    Objects.requireNonNull(value);
-    int utf8 = utf8(value);
-    if (modulePool.containsKey(utf8)) {
-      return modulePool.get(utf8);
-    }
-    int index = insert(new Entry(Kind.MODULE, new IntValue(utf8)));
-    modulePool.put(utf8, index);
-    return index;
+    return reference(Kind.MODULE, value);
   }
 
   /** Adds a CONSTANT_Package_info entry to the pool. */
   int packageInfo(String value) {
+    return reference(Kind.PACKAGE, value);
+  }
+
+  /** Adds an entry of the given kind that refers to a CONSTANT_Utf8_info entry. */
+  private int reference(Kind kind, String value) {
     Objects.requireNonNull(value);
-    int utf8 = utf8(value);
-    if (packagePool.containsKey(utf8)) {
-      return packagePool.get(utf8);
+    return int32(kind, utf8(value));
+  }
+
+  /** Adds an entry of the given kind with a 32-bit value. */
+  private int int32(Kind kind, int value) {
+    long key = ((long) kind.tag() << 32) | (value & 0xffffffffL);
+    int index = intPool.get(key);
+    if (index != 0) {
+      return index;
+    }
+    index = insert(kind, value, null);
+    intPool.put(key, index);
+    return index;
+  }
+
+  /** Adds an entry of the given kind with a 64-bit value. */
+  private int int64(LongIntMap pool, Kind kind, long value) {
+    int index = pool.get(value);
+    if (index != 0) {
+      return index;
     }
-    int index = insert(new Entry(Kind.PACKAGE, new IntValue(utf8)));
-    packagePool.put(utf8, index);
+    index = insert(kind, value, null);
+    pool.put(value, index);
     return index;
   }
 
-  private int insert(Entry key) {
+  private int insert(Kind kind, long value, @Nullable String string) {
     int entry = nextEntry;
-    constants.add(key);
-    nextEntry += width(key.kind());
+    if (size == kinds.length) {
+      int capacity = size * 2;
+      kinds = Arrays.copyOf(kinds, capacity);
+      values = Arrays.copyOf(values, capacity);
+      strings = Arrays.copyOf(strings, capacity);
+    }
+    kinds[size] = kind;
+    values[size] = value;
+    strings[size] = string;
+    size++;
+    byteSize += byteSize(kind, value);
+    nextEntry += width(kind);
     if ((nextEntry & 0xffff) != nextEntry) {
       throw new AssertionError("constant pool has more than 2^16 entries");
     }
     return entry;
   }
 
+  /**
+   * An open-addressing hash table from strings to constant pool indices. Constant pool indices are
+   * never zero, so zero marks a missing key.
+   */
+  private static class StringIntMap {
+
+    private String[] keys = new String[32];
+    private int[] values = new int[32];
+    private int size = 0;
+
+    int get(String key) {
+      int mask = keys.length - 1;
+      for (int i = hash(key.hashCode()) & mask; keys[i] != null; i = (i + 1) & mask) {
+        if (keys[i].equals(key)) {
+          return values[i];
+        }
+      }
+      return 0;
+    }
+
+    /** Adds a key that isn't already in the table. */
+    void put(String key, int value) {
+      if (2 * (size + 1) > keys.length) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+          if (oldKeys[i] != null) {
+            insert(oldKeys[i], oldValues[i]);
+          }
+        }
+      }
+      insert(key, value);
+      size++;
+    }
+
+    private void insert(String key, int value) {
+      int mask = keys.length - 1;
+      int i = hash(key.hashCode()) & mask;
+      while (keys[i] != null) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+  }
+
+  /**
+   * An open-addressing hash table from longs to constant pool indices. Constant pool indices are
+   * never zero, so zero marks an empty slot.
+   */
+  private static class LongIntMap {
+
+    // allocated on first use, since most classes don't need every table
+    private long[] keys = new long[0];
+    private int[] values = new int[0];
+    private int size = 0;
+
+    int get(long key) {
+      if (size == 0) {
+        return 0;
+      }
+      int mask = keys.length - 1;
+      for (int i = hash(Long.hashCode(key)) & mask; values[i] != 0; i = (i + 1) & mask) {
+        if (keys[i] == key) {
+          return values[i];
+        }
+      }
+      return 0;
+    }
+
+    /** Adds a key that isn't already in the table. */
+    void put(long key, int value) {
+      if (2 * (size + 1) > keys.length) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        int capacity = Math.max(16, oldKeys.length * 2);
+        keys = new long[capacity];
+        values = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+          if (oldValues[i] != 0) {
+            insert(oldKeys[i], oldValues[i]);
+          }
+        }
+      }
+      insert(key, value);
+      size++;
+    }
+
+    private void insert(long key, int value) {
+      int mask = keys.length - 1;
+      int i = hash(Long.hashCode(key)) & mask;
+      while (values[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      keys[i] = key;
+      values[i] = value;
+    }
+  }
+
+  /** Spreads the bits of a hash code, since the tables use its low bits as the initial slot. */
+  private static int hash(int h) {
+    h *= 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
   /** Constant pool entry kinds. */
   enum Kind {
     CLASS_INFO(7),
@@ -16,8 +16,8 @@
 
 package com.google.turbine.bytecode;
 
-import com.google.common.io.ByteArrayDataInput;
 import com.google.turbine.model.Const;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A JVMS §4.4 constant pool reader. */
 public class ConstantPoolReader {
@@ -40,15 +40,36 @@ public class ConstantPoolReader {
   static final int CONSTANT_MODULE = 19;
   static final int CONSTANT_PACKAGE = 20;
 
+  /** The maximum length in bytes of strings that are shared across classfiles. */
+  private static final int MAX_SHARED_LENGTH = 128;
+
+  /**
+   * A bounded, lossy table of strings that are shared across all classfiles, to avoid decoding and
+   * retaining separate copies of common names and descriptors like {@code java/lang/Object}. Each
+   * ASCII string is stored in the slot for its hash code, and replaces any previous string in that
+   * slot.
+   *
+   * <p>Strings are immutable and safe to publish through a data race, so the table isn't
+   * synchronized: concurrent readers may miss entries, but never see an incorrect one.
+   */
+  private static final String[] SHARED = new String[1 << 14];
+
   /** A table that maps constant pool entries to byte offsets in {@link #byteReader}. */
   private final int[] constantPool;
 
   /** The constant pool data. */
   private final ByteReader byteReader;
 
+  /**
+   * The decoded CONSTANT_Utf8_info and CONSTANT_Class_info strings, indexed by constant pool entry,
+   * or {@code null} for entries that haven't been decoded yet.
+   */
+  private final @Nullable String[] strings;
+
   private ConstantPoolReader(int[] constantPool, ByteReader byteReader) {
     this.constantPool = constantPool;
     this.byteReader = byteReader;
+    this.strings = new String[constantPool.length];
   }
 
   /**
@@ -104,45 +125,88 @@ public class ConstantPoolReader {
 
   /** Reads the CONSTANT_Class_info at the given index. */
   public String classInfo(int index) {
-    ByteArrayDataInput reader = byteReader.seek(constantPool[index - 1]);
-    byte tag = reader.readByte();
-    if (tag != CONSTANT_CLASS) {
-      throw new AssertionError(String.format("bad tag: %x", tag));
+    int offset = offset(index, CONSTANT_CLASS);
+    String result = strings[index - 1];
+    if (result == null) {
+      result = utf8(byteReader.u2(offset));
+      strings[index - 1] = result;
     }
-    int nameIndex = reader.readUnsignedShort();
-    return utf8(nameIndex);
+    return result;
   }
 
   /** Reads the CONSTANT_Utf8_info at the given index. */
   public String utf8(int index) {
-    ByteArrayDataInput reader = byteReader.seek(constantPool[index - 1]);
-    byte tag = reader.readByte();
-    if (tag != CONSTANT_UTF8) {
-      throw new AssertionError(String.format("bad tag: %x", tag));
+    int offset = offset(index, CONSTANT_UTF8);
+    String result = strings[index - 1];
+    if (result == null) {
+      result = decode(offset + 2, byteReader.u2(offset));
+      strings[index - 1] = result;
+    }
+    return result;
+  }
+
+  /**
+   * Decodes the modified UTF-8 string at the given offset, returning a shared instance if it's a
+   * short ASCII string that is already in {@link #SHARED}.
+   */
+  private String decode(int offset, int length) {
+    if (length > MAX_SHARED_LENGTH) {
+      return byteReader.utf8(offset, length);
+    }
+    // for ASCII strings, this is the same as String#hashCode
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      int b = byteReader.u1(offset + i);
+      if (b >= 0x80) {
+        return byteReader.utf8(offset, length);
+      }
+      hash = 31 * hash + b;
+    }
+    int slot = (hash ^ (hash >>> 16)) & (SHARED.length - 1);
+    String shared = SHARED[slot];
+    if (shared != null && asciiEquals(shared, offset, length)) {
+      return shared;
+    }
+    String result = byteReader.utf8(offset, length);
+    SHARED[slot] = result;
+    return result;
+  }
+
+  private boolean asciiEquals(String string, int offset, int length) {
+    if (string.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (string.charAt(i) != byteReader.u1(offset + i)) {
+        return false;
+      }
     }
-    return reader.readUTF();
+    return true;
   }
 
   /** Reads the CONSTANT_Module_info at the given index. */
   public String moduleInfo(int index) {
-    ByteArrayDataInput reader = byteReader.seek(constantPool[index - 1]);
-    byte tag = reader.readByte();
-    if (tag != CONSTANT_MODULE) {
-      throw new AssertionError(String.format("bad tag: %x", tag));
-    }
-    int nameIndex = reader.readUnsignedShort();
-    return utf8(nameIndex);
+    int offset = offset(index, CONSTANT_MODULE);
+    return utf8(byteReader.u2(offset));
   }
 
   /** Reads the CONSTANT_Package_info at the given index. */
   public String packageInfo(int index) {
-    ByteArrayDataInput reader = byteReader.seek(constantPool[index - 1]);
-    byte tag = reader.readByte();
-    if (tag != CONSTANT_PACKAGE) {
+    int offset = offset(index, CONSTANT_PACKAGE);
+    return utf8(byteReader.u2(offset));
+  }
+
+  /**
+   * Returns the byte offset of the data for the constant pool entry at the given index, after
+   * checking that it has the expected tag.
+   */
+  private int offset(int index, int expected) {
+    int offset = constantPool[index - 1];
+    int tag = byteReader.u1(offset);
+    if (tag != expected) {
       throw new AssertionError(String.format("bad tag: %x", tag));
     }
-    int nameIndex = reader.readUnsignedShort();
-    return utf8(nameIndex);
+    return offset + 1;
   }
 
   /**
@@ -150,21 +214,22 @@ public class ConstantPoolReader {
    * CONSTANT_Integer_info, CONSTANT_Float_info, CONSTANT_Long_info, or CONSTANT_Double_info.
    */
   Const.Value constant(int index) {
-    ByteArrayDataInput reader = byteReader.seek(constantPool[index - 1]);
-    byte tag = reader.readByte();
+    int offset = constantPool[index - 1];
+    int tag = byteReader.u1(offset);
+    offset++;
     switch (tag) {
       case CONSTANT_LONG:
-        return new Const.LongValue(reader.readLong());
+        return new Const.LongValue(byteReader.u8(offset));
       case CONSTANT_FLOAT:
-        return new Const.FloatValue(reader.readFloat());
+        return new Const.FloatValue(Float.intBitsToFloat(byteReader.u4(offset)));
       case CONSTANT_DOUBLE:
-        return new Const.DoubleValue(reader.readDouble());
+        return new Const.DoubleValue(Double.longBitsToDouble(byteReader.u8(offset)));
       case CONSTANT_INTEGER:
-        return new Const.IntValue(reader.readInt());
+        return new Const.IntValue(byteReader.u4(offset));
       case CONSTANT_STRING:
-        return new Const.StringValue(utf8(reader.readUnsignedShort()));
+        return new Const.StringValue(utf8(byteReader.u2(offset)));
       case CONSTANT_UTF8:
-        return new Const.StringValue(reader.readUTF());
+        return new Const.StringValue(utf8(index));
       default:
         throw new AssertionError(String.format("bad tag: %x", tag));
     }
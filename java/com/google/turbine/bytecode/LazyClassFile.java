@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.bytecode;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.turbine.bytecode.ClassFile.ModuleInfo;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A JVMS §4.1 ClassFile that is decoded on demand.
+ *
+ * <p>{@link ClassReader#readLazy} reads the constant pool and records the offsets of the other
+ * sections, and the header, inner classes, fields, methods, and annotations are each decoded the
+ * first time they're accessed. Most classes on the classpath are only needed for their header and
+ * inner classes during hierarchy binding, and their members are never decoded.
+ *
+ * <p>Instances are safe to use from multiple threads.
+ */
+public class LazyClassFile {
+
+  @Nullable private final String path;
+  private final byte[] bytes;
+  private final ByteReader reader;
+  private final ConstantPoolReader constantPool;
+
+  /** The offset of the access_flags. */
+  private final int header;
+
+  private final int interfacesCount;
+
+  /** The offset of the fields_count. */
+  private final int fields;
+
+  /** The offset of the methods_count. */
+  private final int methods;
+
+  /** The offset of the Signature attribute, or {@code -1}. */
+  private final int signature;
+
+  /** The offset of the InnerClasses attribute, or {@code -1}. */
+  private final int innerClasses;
+
+  /** The offsets of the RuntimeVisibleAnnotations and RuntimeInvisibleAnnotations attributes. */
+  private final ImmutableList<Integer> annotations;
+
+  /** The offset of the Module attribute, or {@code -1}. */
+  private final int module;
+
+  LazyClassFile(
+      @Nullable String path,
+      byte[] bytes,
+      ConstantPoolReader constantPool,
+      int header,
+      int interfacesCount,
+      int fields,
+      int methods,
+      int signature,
+      int innerClasses,
+      ImmutableList<Integer> annotations,
+      int module) {
+    this.path = path;
+    this.bytes = bytes;
+    this.reader = new ByteReader(bytes, 0);
+    this.constantPool = constantPool;
+    this.header = header;
+    this.interfacesCount = interfacesCount;
+    this.fields = fields;
+    this.methods = methods;
+    this.signature = signature;
+    this.innerClasses = innerClasses;
+    this.annotations = annotations;
+    this.module = module;
+  }
+
+  /** Returns a reader for the section at the given offset. */
+  private ClassReader sectionReader(int offset) {
+    return new ClassReader(path, bytes, offset);
+  }
+
+  /** Class access and property flags. */
+  public int access() {
+    return reader.u2(header);
+  }
+
+  /** The name of the class or interface. */
+  public String name() {
+    return constantPool.classInfo(reader.u2(header + 2));
+  }
+
+  /** The value of the Signature attribute, if present. */
+  @Nullable
+  public String signature() {
+    return signature != -1 ? sectionReader(signature).readSignature(constantPool) : null;
+  }
+
+  /** The super class. */
+  @Nullable
+  public String superName() {
+    int index = reader.u2(header + 4);
+    return index != 0 ? constantPool.classInfo(index) : null;
+  }
+
+  private final Supplier<ImmutableList<String>> interfacesSupplier =
+      Suppliers.memoize(
+          new Supplier<ImmutableList<String>>() {
+            @Override
+            public ImmutableList<String> get() {
+              ImmutableList.Builder<String> result = ImmutableList.builder();
+              for (int i = 0; i < interfacesCount; i++) {
+                result.add(constantPool.classInfo(reader.u2(header + 8 + 2 * i)));
+              }
+              return result.build();
+            }
+          });
+
+  /** The direct superinterfaces. */
+  public List<String> interfaces() {
+    return interfacesSupplier.get();
+  }
+
+  private final Supplier<List<ClassFile.InnerClass>> innerClassesSupplier =
+      Suppliers.memoize(
+          new Supplier<List<ClassFile.InnerClass>>() {
+            @Override
+            public List<ClassFile.InnerClass> get() {
+              if (innerClasses == -1) {
+                return ImmutableList.of();
+              }
+              return sectionReader(innerClasses).readInnerClasses(constantPool, name());
+            }
+          });
+
+  /** Inner class information. */
+  public List<ClassFile.InnerClass> innerClasses() {
+    return innerClassesSupplier.get();
+  }
+
+  private final Supplier<List<ClassFile.FieldInfo>> fieldsSupplier =
+      Suppliers.memoize(
+          new Supplier<List<ClassFile.FieldInfo>>() {
+            @Override
+            public List<ClassFile.FieldInfo> get() {
+              return sectionReader(fields).readFields(constantPool);
+            }
+          });
+
+  /** Fields. */
+  public List<ClassFile.FieldInfo> fields() {
+    return fieldsSupplier.get();
+  }
+
+  private final Supplier<List<ClassFile.MethodInfo>> methodsSupplier =
+      Suppliers.memoize(
+          new Supplier<List<ClassFile.MethodInfo>>() {
+            @Override
+            public List<ClassFile.MethodInfo> get() {
+              return sectionReader(methods).readMethods(constantPool);
+            }
+          });
+
+  /** Methods. */
+  public List<ClassFile.MethodInfo> methods() {
+    return methodsSupplier.get();
+  }
+
+  private final Supplier<ImmutableList<ClassFile.AnnotationInfo>> annotationsSupplier =
+      Suppliers.memoize(
+          new Supplier<ImmutableList<ClassFile.AnnotationInfo>>() {
+            @Override
+            public ImmutableList<ClassFile.AnnotationInfo> get() {
+              ImmutableList.Builder<ClassFile.AnnotationInfo> result = ImmutableList.builder();
+              for (int offset : annotations) {
+                sectionReader(offset).readAnnotations(result, constantPool);
+              }
+              return result.build();
+            }
+          });
+
+  /** Declaration annotations of the class. */
+  public List<ClassFile.AnnotationInfo> annotations() {
+    return annotationsSupplier.get();
+  }
+
+  /** A module attribute. */
+  @Nullable
+  public ModuleInfo module() {
+    return module != -1 ? sectionReader(module).readModule(constantPool) : null;
+  }
+
+  /** Decodes every section of the class file. */
+  public ClassFile toClassFile() {
+    return new ClassFile(
+        access(),
+        name(),
+        signature(),
+        superName(),
+        interfaces(),
+        methods(),
+        fields(),
+        annotations(),
+        innerClasses(),
+        ImmutableList.of(),
+        module());
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.diag;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of the phases of a compilation, and writes
+ * them in the <a href="https://github.com/catapult-project/catapult/tree/master/tracing">Chrome
+ * trace event</a> format.
+ *
+ * <p>The CPU time and allocated bytes of a phase are measured for the thread that runs it. Phases
+ * that do work on multiple threads record an additional event for each batch of work on the
+ * worker threads.
+ */
+public class Profiler {
+
+  /** A profiler that doesn't record anything. */
+  public static final Profiler NONE = new Profiler(/* enabled= */ false);
+
+  /** Creates a profiler that records phases. */
+  public static Profiler create() {
+    return new Profiler(/* enabled= */ true);
+  }
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private static final Phase NO_PHASE = NONE.new Phase();
+
+  private final boolean enabled;
+  private final long startNanos = System.nanoTime();
+  private final List<Event> events = new ArrayList<>();
+  private final Map<Long, String> threadNames = new LinkedHashMap<>();
+
+  private Profiler(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /** Starts recording a phase, which ends when the returned {@link Phase} is closed. */
+  public Phase start(String name) {
+    return enabled ? new Phase(name) : NO_PHASE;
+  }
+
+  /** A phase that is being recorded. */
+  public class Phase implements AutoCloseable {
+
+    private final @Nullable String name;
+    private final long startNanos;
+    private final long startCpuNanos;
+    private final long startAllocatedBytes;
+
+    private Phase() {
+      this.name = null;
+      this.startNanos = 0;
+      this.startCpuNanos = 0;
+      this.startAllocatedBytes = 0;
+    }
+
+    private Phase(String name) {
+      this.name = name;
+      this.startCpuNanos = cpuNanos();
+      this.startAllocatedBytes = allocatedBytes();
+      this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void close() {
+      if (name == null) {
+        return;
+      }
+      long endNanos = System.nanoTime();
+      long endCpuNanos = cpuNanos();
+      long endAllocatedBytes = allocatedBytes();
+      Thread thread = Thread.currentThread();
+      Event event =
+          Event.create(
+              name,
+              thread.getId(),
+              TimeUnit.NANOSECONDS.toMicros(startNanos - Profiler.this.startNanos),
+              TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos),
+              startCpuNanos != -1 && endCpuNanos != -1
+                  ? TimeUnit.NANOSECONDS.toMicros(endCpuNanos - startCpuNanos)
+                  : -1,
+              startAllocatedBytes != -1 && endAllocatedBytes != -1
+                  ? endAllocatedBytes - startAllocatedBytes
+                  : -1);
+      synchronized (Profiler.this) {
+        events.add(event);
+        threadNames.putIfAbsent(thread.getId(), thread.getName());
+      }
+    }
+  }
+
+  /** A completed phase. */
+  @AutoValue
+  public abstract static class Event {
+
+    static Event create(
+        String name,
+        long threadId,
+        long startMicros,
+        long wallMicros,
+        long cpuMicros,
+        long allocatedBytes) {
+      return new AutoValue_Profiler_Event(
+          name, threadId, startMicros, wallMicros, cpuMicros, allocatedBytes);
+    }
+
+    /** The name of the phase. */
+    public abstract String name();
+
+    /** The id of the thread that ran the phase. */
+    public abstract long threadId();
+
+    /** The start time of the phase, relative to the creation of the profiler. */
+    public abstract long startMicros();
+
+    /** The wall time of the phase. */
+    public abstract long wallMicros();
+
+    /** The CPU time of the phase, or {@code -1} if it isn't supported by the JVM. */
+    public abstract long cpuMicros();
+
+    /** The bytes allocated by the phase, or {@code -1} if it isn't supported by the JVM. */
+    public abstract long allocatedBytes();
+  }
+
+  /** Returns the completed phases, in the order they completed. */
+  public synchronized ImmutableList<Event> events() {
+    return ImmutableList.copyOf(events);
+  }
+
+  /** Writes the completed phases as Chrome trace event JSON. */
+  public synchronized void writeTrace(Writer writer) throws IOException {
+    writer.write("{\"traceEvents\":[");
+    boolean first = true;
+    for (Map.Entry<Long, String> e : threadNames.entrySet()) {
+      if (!first) {
+        writer.write(',');
+      }
+      first = false;
+      writer.write("\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+      writer.write(Long.toString(e.getKey()));
+      writer.write(",\"args\":{\"name\":");
+      writeString(writer, e.getValue());
+      writer.write("}}");
+    }
+    for (Event event : events) {
+      if (!first) {
+        writer.write(',');
+      }
+      first = false;
+      writer.write("\n{\"name\":");
+      writeString(writer, event.name());
+      writer.write(",\"cat\":\"turbine\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+      writer.write(Long.toString(event.threadId()));
+      writer.write(",\"ts\":");
+      writer.write(Long.toString(event.startMicros()));
+      writer.write(",\"dur\":");
+      writer.write(Long.toString(event.wallMicros()));
+      if (event.cpuMicros() != -1) {
+        writer.write(",\"tdur\":");
+        writer.write(Long.toString(event.cpuMicros()));
+      }
+      writer.write(",\"args\":{");
+      if (event.cpuMicros() != -1) {
+        writer.write("\"cpu_time_micros\":");
+        writer.write(Long.toString(event.cpuMicros()));
+      }
+      if (event.allocatedBytes() != -1) {
+        if (event.cpuMicros() != -1) {
+          writer.write(',');
+        }
+        writer.write("\"allocated_bytes\":");
+        writer.write(Long.toString(event.allocatedBytes()));
+      }
+      writer.write("}}");
+    }
+    writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+  }
+
+  private static void writeString(Writer writer, String value) throws IOException {
+    writer.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"':
+          writer.write("\\\"");
+          break;
+        case '\\':
+          writer.write("\\\\");
+          break;
+        default:
+          if (c < 0x20) {
+            writer.write(String.format("\\u%04x", (int) c));
+          } else {
+            writer.write(c);
+          }
+      }
+    }
+    writer.write('"');
+  }
+
+  private static long cpuNanos() {
+    return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+        ? THREAD_MX_BEAN.getCurrentThreadCpuTime()
+        : -1;
+  }
+
+  private static long allocatedBytes() {
+    if (THREAD_MX_BEAN instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) THREAD_MX_BEAN;
+      if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean.getThreadAllocatedBytes(Thread.currentThread().getId());
+      }
+    }
+    return -1;
+  }
+}
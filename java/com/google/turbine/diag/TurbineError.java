@@ -51,6 +51,7 @@ public class TurbineError extends Error {
     DUPLICATE_DECLARATION("duplicate declaration of %s"),
     BAD_MODULE_INFO("unexpected declaration found in module-info"),
     UNCLOSED_COMMENT("unclosed comment"),
+    CONSTANT_STRING_TOO_LONG("constant string too long in initializer of %s"),
     PROC("%s");
 
     private final String message;
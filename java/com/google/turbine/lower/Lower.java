@@ -16,6 +16,7 @@
 
 package com.google.turbine.lower;
 
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.turbine.binder.DisambiguateTypeAnnotations.groupRepeated;
 
@@ -23,6 +24,9 @@ import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.math.IntMath;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.turbine.binder.bound.EnumConstantValue;
 import com.google.turbine.binder.bound.ModuleInfo.ExportInfo;
 import com.google.turbine.binder.bound.ModuleInfo.OpenInfo;
@@ -45,6 +49,7 @@ import com.google.turbine.binder.env.SimpleEnv;
 import com.google.turbine.binder.sym.ClassSymbol;
 import com.google.turbine.binder.sym.Symbol;
 import com.google.turbine.binder.sym.TyVarSymbol;
+import com.google.turbine.bytecode.ByteWriter;
 import com.google.turbine.bytecode.ClassFile;
 import com.google.turbine.bytecode.ClassFile.AnnotationInfo;
 import com.google.turbine.bytecode.ClassFile.AnnotationInfo.ElementValue;
@@ -59,10 +64,12 @@ import com.google.turbine.bytecode.sig.Sig;
 import com.google.turbine.bytecode.sig.Sig.MethodSig;
 import com.google.turbine.bytecode.sig.Sig.TySig;
 import com.google.turbine.bytecode.sig.SigWriter;
+import com.google.turbine.diag.Profiler;
 import com.google.turbine.diag.SourceFile;
 import com.google.turbine.diag.TurbineError;
 import com.google.turbine.diag.TurbineError.ErrorKind;
 import com.google.turbine.model.Const;
+import com.google.turbine.model.TurbineConstantTypeKind;
 import com.google.turbine.model.TurbineFlag;
 import com.google.turbine.model.TurbineTyKind;
 import com.google.turbine.model.TurbineVisibility;
@@ -76,6 +83,7 @@ import com.google.turbine.type.Type.TyVar;
 import com.google.turbine.type.Type.WildTy;
 import com.google.turbine.types.Erasure;
 import java.lang.annotation.RetentionPolicy;
+import java.math.RoundingMode;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
@@ -83,6 +91,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Lowering from bound classes to bytecode. */
@@ -109,17 +122,113 @@ public class Lower {
     }
   }
 
+  /**
+   * The number of batches to split classes into for each thread during parallel lowering, to
+   * balance load if some classes are much more expensive to lower than others.
+   */
+  private static final int BATCHES_PER_THREAD = 4;
+
   /** Lowers all given classes to bytecode. */
   public static Lowered lowerAll(
       ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
       ImmutableList<SourceModuleInfo> modules,
       Env<ClassSymbol, BytecodeBoundClass> classpath) {
-    CompoundEnv<ClassSymbol, TypeBoundClass> env =
-        CompoundEnv.<ClassSymbol, TypeBoundClass>of(classpath).append(new SimpleEnv<>(units));
-    ImmutableMap.Builder<String, byte[]> result = ImmutableMap.builder();
+    return lowerAll(units, modules, classpath, /* parallelism= */ 1);
+  }
+
+  /**
+   * Lowers all given classes to bytecode, using up to {@code parallelism} threads.
+   *
+   * <p>The output is the same as for sequential lowering: classes are lowered in batches by
+   * independent {@link Lower} instances, and the results and referenced symbols of each batch are
+   * merged in the original order.
+   */
+  public static Lowered lowerAll(
+      ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
+      ImmutableList<SourceModuleInfo> modules,
+      Env<ClassSymbol, BytecodeBoundClass> classpath,
+      int parallelism) {
+    return lowerAll(units, modules, classpath, parallelism, Profiler.NONE);
+  }
+
+  /**
+   * Lowers all given classes to bytecode, using up to {@code parallelism} threads, and records each
+   * batch lowered by a worker thread with the given profiler.
+   */
+  public static Lowered lowerAll(
+      ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
+      ImmutableList<SourceModuleInfo> modules,
+      Env<ClassSymbol, BytecodeBoundClass> classpath,
+      int parallelism,
+      Profiler profiler) {
+    Env<ClassSymbol, TypeBoundClass> env = env(units, classpath);
+    ImmutableList<ClassSymbol> syms = units.keySet().asList();
+    byte[][] bytes = new byte[syms.size()][];
+    // Merging the per-batch sets in batch order preserves the iteration order of the set that
+    // sequential lowering would produce.
     Set<ClassSymbol> symbols = new LinkedHashSet<>();
-    for (ClassSymbol sym : units.keySet()) {
-      result.put(sym.binaryName(), lower(units.get(sym), env, sym, symbols));
+    for (Set<ClassSymbol> batch :
+        runBatches(
+            syms.size(),
+            parallelism,
+            profiler,
+            (start, end) -> lowerBatch(units, env, syms, bytes, start, end))) {
+      symbols.addAll(batch);
+    }
+    return lowered(syms, bytes, modules, env, symbols);
+  }
+
+  /** Returns the environment that classes are lowered in. */
+  static Env<ClassSymbol, TypeBoundClass> env(
+      ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
+      Env<ClassSymbol, BytecodeBoundClass> classpath) {
+    return CompoundEnv.<ClassSymbol, TypeBoundClass>of(classpath).append(new SimpleEnv<>(units));
+  }
+
+  /**
+   * Lowers each of the classes in {@code syms} into the corresponding elements of {@code bytes},
+   * using up to {@code parallelism} threads, and returns the symbols referenced by each class.
+   */
+  static ImmutableList<ImmutableSet<ClassSymbol>> lowerEach(
+      ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
+      Env<ClassSymbol, TypeBoundClass> env,
+      ImmutableList<ClassSymbol> syms,
+      byte[][] bytes,
+      int parallelism,
+      Profiler profiler) {
+    ImmutableList.Builder<ImmutableSet<ClassSymbol>> result = ImmutableList.builder();
+    for (List<ImmutableSet<ClassSymbol>> batch :
+        runBatches(
+            syms.size(),
+            parallelism,
+            profiler,
+            (start, end) -> {
+              List<ImmutableSet<ClassSymbol>> symbols = new ArrayList<>();
+              for (int i = start; i < end; i++) {
+                Set<ClassSymbol> referenced = new LinkedHashSet<>();
+                bytes[i] = lower(units.get(syms.get(i)), env, syms.get(i), referenced);
+                symbols.add(ImmutableSet.copyOf(referenced));
+              }
+              return symbols;
+            })) {
+      result.addAll(batch);
+    }
+    return result.build();
+  }
+
+  /**
+   * Lowers the given modules, and returns the compilation output for them and the already lowered
+   * classes {@code syms}.
+   */
+  static Lowered lowered(
+      ImmutableList<ClassSymbol> syms,
+      byte[][] bytes,
+      ImmutableList<SourceModuleInfo> modules,
+      Env<ClassSymbol, TypeBoundClass> env,
+      Set<ClassSymbol> symbols) {
+    ImmutableMap.Builder<String, byte[]> result = ImmutableMap.builder();
+    for (int i = 0; i < syms.size(); i++) {
+      result.put(syms.get(i).binaryName(), bytes[i]);
     }
     if (modules.size() == 1) {
       // single module mode: the module-info.class file is at the root
@@ -134,6 +243,75 @@ public class Lower {
     return new Lowered(result.build(), ImmutableSet.copyOf(symbols));
   }
 
+  /**
+   * Lowers the classes {@code syms[start, end)} into the corresponding elements of {@code bytes},
+   * and returns the symbols they reference.
+   */
+  private static Set<ClassSymbol> lowerBatch(
+      ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
+      Env<ClassSymbol, TypeBoundClass> env,
+      ImmutableList<ClassSymbol> syms,
+      byte[][] bytes,
+      int start,
+      int end) {
+    Set<ClassSymbol> symbols = new LinkedHashSet<>();
+    for (int i = start; i < end; i++) {
+      ClassSymbol sym = syms.get(i);
+      bytes[i] = lower(units.get(sym), env, sym, symbols);
+    }
+    return symbols;
+  }
+
+  /** Lowers a contiguous range of classes. */
+  private interface Batch<T> {
+    T lower(int start, int end);
+  }
+
+  /**
+   * Splits {@code [0, size)} into batches that are lowered by up to {@code parallelism} threads,
+   * and returns the results of each batch in order.
+   */
+  private static <T> ImmutableList<T> runBatches(
+      int size, int parallelism, Profiler profiler, Batch<T> batch) {
+    if (parallelism <= 1 || size <= 1) {
+      return ImmutableList.of(batch.lower(0, size));
+    }
+    int batchSize = IntMath.divide(size, parallelism * BATCHES_PER_THREAD, RoundingMode.CEILING);
+    List<Callable<T>> batches = new ArrayList<>();
+    for (int i = 0; i < size; i += batchSize) {
+      int start = i;
+      int end = Math.min(i + batchSize, size);
+      batches.add(
+          () -> {
+            try (Profiler.Phase unused = profiler.start("lower")) {
+              return batch.lower(start, end);
+            }
+          });
+    }
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(parallelism, batches.size()),
+            new ThreadFactoryBuilder().setNameFormat("turbine-lower-%d").setDaemon(true).build());
+    // If lowering fails, the error for the first class in the original order is reported.
+    ImmutableList.Builder<T> results = ImmutableList.builder();
+    try {
+      for (Future<T> result : executor.invokeAll(batches)) {
+        try {
+          results.add(Futures.getDone(result));
+        } catch (ExecutionException e) {
+          throwIfUnchecked(e.getCause());
+          throw new AssertionError(e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    } finally {
+      executor.shutdownNow();
+    }
+    return results.build();
+  }
+
   /** Lowers a class to bytecode. */
   public static byte[] lower(
       SourceTypeBoundClass info,
@@ -145,7 +323,7 @@ public class Lower {
 
   private static byte[] lower(
       SourceModuleInfo module,
-      CompoundEnv<ClassSymbol, TypeBoundClass> env,
+      Env<ClassSymbol, TypeBoundClass> env,
       Set<ClassSymbol> symbols) {
     return new Lower(env).lower(module, symbols);
   }
@@ -258,7 +436,7 @@ public class Lower {
         // TODO(cushon): drop private members earlier?
         continue;
       }
-      fields.add(lowerField(f));
+      fields.add(lowerField(info.source(), f));
     }
 
     ImmutableList<AnnotationInfo> annotations = lowerAnnotations(info.annotations());
@@ -369,8 +547,15 @@ public class Lower {
     return SigWriter.method(new MethodSig(typarams, fparams.build(), result, excns));
   }
 
-  private ClassFile.FieldInfo lowerField(FieldInfo f) {
+  private ClassFile.FieldInfo lowerField(SourceFile source, FieldInfo f) {
     final String name = f.name();
+    Const.Value value = f.value();
+    if (value != null
+        && value.constantTypeKind() == TurbineConstantTypeKind.STRING
+        && ByteWriter.utf8Length(value.asString().value()) > ByteWriter.MAX_UTF8_LENGTH) {
+      throw TurbineError.format(
+          source, f.decl().position(), ErrorKind.CONSTANT_STRING_TOO_LONG, name);
+    }
     Function<TyVarSymbol, TyVarInfo> tenv = new TyVarEnv(ImmutableMap.of());
     String desc = SigWriter.type(sig.signature(Erasure.erase(f.type(), tenv)));
     String signature = sig.fieldSignature(f.type());
@@ -382,7 +567,7 @@ public class Lower {
         typeAnnotations, f.type(), TargetType.FIELD, TypeAnnotationInfo.EMPTY_TARGET);
 
     return new ClassFile.FieldInfo(
-        f.access(), name, desc, signature, f.value(), annotations, typeAnnotations.build());
+        f.access(), name, desc, signature, value, annotations, typeAnnotations.build());
   }
 
   /** Creates inner class attributes for all referenced inner classes. */
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.lower;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.turbine.binder.bound.AnnotationMetadata;
+import com.google.turbine.binder.bound.SourceModuleInfo;
+import com.google.turbine.binder.bound.SourceTypeBoundClass;
+import com.google.turbine.binder.bound.TypeBoundClass;
+import com.google.turbine.binder.bound.TypeBoundClass.FieldInfo;
+import com.google.turbine.binder.bytecode.BytecodeBoundClass;
+import com.google.turbine.binder.env.Env;
+import com.google.turbine.binder.sym.ClassSymbol;
+import com.google.turbine.diag.Profiler;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.lower.Lower.Lowered;
+import com.google.turbine.model.Const;
+import com.google.turbine.model.TurbineElementType;
+import com.google.turbine.zip.Zip;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A cache of lowered classes that persists across compilations, for incremental header
+ * compilation.
+ *
+ * <p>Each class is cached under a key that is derived from:
+ *
+ * <ul>
+ *   <li>the digest of the compilation's inputs other than sources, e.g. the classpath and platform
+ *       classpath, which is provided by the caller (see {@link #putJar})
+ *   <li>the contents of the class's source file
+ *   <li>the structure of all classes in the compilation: their names, modifiers, nesting, and
+ *       supertypes, which determine how names in the class are resolved
+ *   <li>the values of all constant fields in the compilation, which may be inlined into the class
+ *       by {@link com.google.turbine.binder.ConstBinder}
+ *   <li>the retention, targets, and containers of all annotation declarations in the compilation,
+ *       which determine how uses of the annotations are lowered
+ * </ul>
+ *
+ * <p>A cached class is only re-used if the bytecode of the classes in the compilation that it
+ * references is also unchanged. So a change to a method signature causes the class that declares
+ * it and the classes that reference it to be lowered again, and a change that doesn't affect the
+ * bytecode of any class (e.g. an edit to a method body) only causes the classes in the edited file
+ * to be lowered again.
+ *
+ * <p>Lowering is deterministic, so the output is the same as for a non-incremental compilation.
+ *
+ * <p>The cache directory should not be shared by concurrent compilations, and only contains the
+ * classes of the most recent compilation that used it. Other files in the directory are ignored.
+ */
+public class LowerCache {
+
+  /** The version of the cache format, which must be changed if the output of lowering changes. */
+  private static final int VERSION = 1;
+
+  private static final HashFunction HASH = Hashing.sha256();
+
+  /** The names of cache entries, and of the temporary files they are written to. */
+  private static final Pattern ENTRY_NAME =
+      Pattern.compile("[0-9a-f]{" + HASH.bits() / 4 + "}(\\.tmp)?");
+
+  private final Path dir;
+  private final HashCode inputs;
+
+  private LowerCache(Path dir, HashCode inputs) {
+    this.dir = dir;
+    this.inputs = inputs;
+  }
+
+  /**
+   * Creates a cache in the given directory, for a compilation whose inputs other than sources have
+   * the given digest.
+   */
+  public static LowerCache create(Path dir, HashCode inputs) {
+    return new LowerCache(dir, inputs);
+  }
+
+  /**
+   * Adds a digest of the given jar to {@code hasher}. The digest is computed from the names and
+   * CRCs of the entries in the jar's central directory, and doesn't require reading their data.
+   */
+  public static void putJar(Hasher hasher, Path path) throws IOException {
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(path)) {
+      for (Zip.Entry entry : zip) {
+        putString(hasher, entry.name());
+        hasher.putInt(entry.crc());
+      }
+    }
+  }
+
+  /**
+   * Lowers the given classes to bytecode, re-using the bytecode of classes whose inputs didn't
+   * change since the last compilation that used this cache. The result is the same as for {@link
+   * Lower#lowerAll}.
+   */
+  public Lowered lowerAll(
+      ImmutableMap<ClassSymbol, SourceTypeBoundClass> units,
+      ImmutableList<SourceModuleInfo> modules,
+      Env<ClassSymbol, BytecodeBoundClass> classpath,
+      int parallelism,
+      Profiler profiler)
+      throws IOException {
+    Env<ClassSymbol, TypeBoundClass> env = Lower.env(units, classpath);
+    ImmutableList<ClassSymbol> syms = units.keySet().asList();
+    ImmutableList<HashCode> keys = keys(units);
+    Map<ClassSymbol, Integer> indices = new HashMap<>();
+    for (int i = 0; i < syms.size(); i++) {
+      indices.put(syms.get(i), i);
+    }
+
+    byte[][] bytes = new byte[syms.size()][];
+    List<ImmutableSet<ClassSymbol>> symbols = new ArrayList<>();
+    CacheEntry[] cached = new CacheEntry[syms.size()];
+    boolean[] lowered = new boolean[syms.size()];
+    HashCode[] digests = new HashCode[syms.size()];
+    List<Integer> pending = new ArrayList<>();
+    for (int i = 0; i < syms.size(); i++) {
+      CacheEntry entry = read(keys.get(i));
+      cached[i] = entry;
+      if (entry != null) {
+        bytes[i] = entry.bytes;
+        symbols.add(entry.symbols);
+      } else {
+        symbols.add(ImmutableSet.of());
+        pending.add(i);
+      }
+    }
+
+    // Lower the classes without a cache entry, and then the classes that reference a class whose
+    // bytecode changed, until no more classes are affected.
+    while (!pending.isEmpty()) {
+      ImmutableList.Builder<ClassSymbol> batch = ImmutableList.builder();
+      for (int i : pending) {
+        batch.add(syms.get(i));
+      }
+      byte[][] batchBytes = new byte[pending.size()][];
+      ImmutableList<ImmutableSet<ClassSymbol>> batchSymbols =
+          Lower.lowerEach(units, env, batch.build(), batchBytes, parallelism, profiler);
+      boolean changed = false;
+      for (int j = 0; j < pending.size(); j++) {
+        int i = pending.get(j);
+        changed |= cached[i] == null || !Arrays.equals(cached[i].bytes, batchBytes[j]);
+        bytes[i] = batchBytes[j];
+        symbols.set(i, batchSymbols.get(j));
+        lowered[i] = true;
+        digests[i] = null;
+      }
+      pending = new ArrayList<>();
+      if (!changed) {
+        break;
+      }
+      for (int i = 0; i < syms.size(); i++) {
+        if (!lowered[i] && isStale(cached[i], indices, bytes, digests)) {
+          pending.add(i);
+        }
+      }
+    }
+
+    Files.createDirectories(dir);
+    for (int i = 0; i < syms.size(); i++) {
+      if (!lowered[i]) {
+        continue;
+      }
+      ImmutableMap.Builder<ClassSymbol, HashCode> references = ImmutableMap.builder();
+      for (ClassSymbol sym : symbols.get(i)) {
+        Integer index = indices.get(sym);
+        if (index != null) {
+          references.put(sym, digest(index, bytes, digests));
+        }
+      }
+      write(keys.get(i), new CacheEntry(bytes[i], symbols.get(i), references.build()));
+    }
+    prune(keys);
+
+    Set<ClassSymbol> referenced = new LinkedHashSet<>();
+    for (ImmutableSet<ClassSymbol> s : symbols) {
+      referenced.addAll(s);
+    }
+    return Lower.lowered(syms, bytes, modules, env, referenced);
+  }
+
+  /**
+   * Returns true if a class in the compilation that the cached class references was removed, or
+   * if its bytecode changed.
+   */
+  private static boolean isStale(
+      CacheEntry entry, Map<ClassSymbol, Integer> indices, byte[][] bytes, HashCode[] digests) {
+    for (Map.Entry<ClassSymbol, HashCode> reference : entry.references.entrySet()) {
+      Integer index = indices.get(reference.getKey());
+      if (index == null || !reference.getValue().equals(digest(index, bytes, digests))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static HashCode digest(int index, byte[][] bytes, HashCode[] digests) {
+    HashCode digest = digests[index];
+    if (digest == null) {
+      digest = HASH.hashBytes(bytes[index]);
+      digests[index] = digest;
+    }
+    return digest;
+  }
+
+  /** Computes the cache key for each of the given classes. */
+  private ImmutableList<HashCode> keys(ImmutableMap<ClassSymbol, SourceTypeBoundClass> units) {
+    Hasher hasher = HASH.newHasher();
+    hasher.putInt(VERSION);
+    hasher.putBytes(inputs.asBytes());
+    for (Map.Entry<ClassSymbol, SourceTypeBoundClass> e : units.entrySet()) {
+      SourceTypeBoundClass info = e.getValue();
+      putSymbol(hasher, e.getKey());
+      hasher.putInt(info.access());
+      putString(hasher, info.kind().name());
+      putSymbol(hasher, info.owner());
+      putSymbol(hasher, info.superclass());
+      hasher.putInt(info.interfaces().size());
+      for (ClassSymbol i : info.interfaces()) {
+        putSymbol(hasher, i);
+      }
+      hasher.putInt(info.children().size());
+      for (ClassSymbol child : info.children().values()) {
+        putSymbol(hasher, child);
+      }
+      for (FieldInfo field : info.fields()) {
+        Const.Value value = field.value();
+        if (value == null) {
+          continue;
+        }
+        putString(hasher, field.name());
+        putString(hasher, value.constantTypeKind().name());
+        putString(hasher, String.valueOf(value.getValue()));
+      }
+      // separate the fields from the next class
+      hasher.putInt(-1);
+      // Annotations that aren't retained in bytecode aren't referenced by the classes that use
+      // them, so changes to the retention of an annotation can't be detected from the bytecode of
+      // the classes that reference it.
+      AnnotationMetadata metadata = info.annotationMetadata();
+      if (metadata != null) {
+        putString(hasher, metadata.retention().name());
+        hasher.putInt(metadata.target().size());
+        for (TurbineElementType target : metadata.target()) {
+          putString(hasher, target.name());
+        }
+        putSymbol(hasher, metadata.repeatable());
+      }
+    }
+    HashCode compilation = hasher.hash();
+
+    Map<SourceFile, HashCode> sources = new IdentityHashMap<>();
+    ImmutableList.Builder<HashCode> keys = ImmutableList.builder();
+    for (Map.Entry<ClassSymbol, SourceTypeBoundClass> e : units.entrySet()) {
+      HashCode source =
+          sources.computeIfAbsent(
+              e.getValue().source(),
+              s -> {
+                Hasher sourceHasher = HASH.newHasher();
+                putString(sourceHasher, s.path());
+                putString(sourceHasher, s.source());
+                return sourceHasher.hash();
+              });
+      Hasher key = HASH.newHasher();
+      key.putBytes(compilation.asBytes());
+      putSymbol(key, e.getKey());
+      key.putBytes(source.asBytes());
+      keys.add(key.hash());
+    }
+    return keys.build();
+  }
+
+  private static void putSymbol(Hasher hasher, @Nullable ClassSymbol sym) {
+    putString(hasher, sym != null ? sym.binaryName() : "");
+  }
+
+  private static void putString(Hasher hasher, String string) {
+    hasher.putInt(string.length());
+    hasher.putString(string, UTF_8);
+  }
+
+  /** A cached class. */
+  private static class CacheEntry {
+
+    /** The class's bytecode. */
+    final byte[] bytes;
+
+    /** The symbols referenced by the class. */
+    final ImmutableSet<ClassSymbol> symbols;
+
+    /** The digests of the bytecode of the referenced classes that are part of the compilation. */
+    final ImmutableMap<ClassSymbol, HashCode> references;
+
+    CacheEntry(
+        byte[] bytes,
+        ImmutableSet<ClassSymbol> symbols,
+        ImmutableMap<ClassSymbol, HashCode> references) {
+      this.bytes = bytes;
+      this.symbols = symbols;
+      this.references = references;
+    }
+  }
+
+  private @Nullable CacheEntry read(HashCode key) throws IOException {
+    byte[] data;
+    try {
+      data = Files.readAllBytes(path(key));
+    } catch (NoSuchFileException e) {
+      return null;
+    }
+    // A missing, stale, or corrupt entry is a cache miss. The class is lowered again, and its entry
+    // is overwritten.
+    try {
+      return decode(data);
+    } catch (IOException | RuntimeException e) {
+      return null;
+    }
+  }
+
+  private static @Nullable CacheEntry decode(byte[] data) throws IOException {
+    ByteArrayInputStream bis = new ByteArrayInputStream(data);
+    DataInputStream is = new DataInputStream(bis);
+    if (is.readInt() != VERSION) {
+      return null;
+    }
+    byte[] bytes = new byte[checkLength(is.readInt(), bis)];
+    is.readFully(bytes);
+    int size = checkLength(is.readInt(), bis);
+    ImmutableSet.Builder<ClassSymbol> symbols = ImmutableSet.builder();
+    ImmutableMap.Builder<ClassSymbol, HashCode> references = ImmutableMap.builder();
+    for (int i = 0; i < size; i++) {
+      ClassSymbol sym = new ClassSymbol(is.readUTF());
+      symbols.add(sym);
+      if (is.readBoolean()) {
+        byte[] digest = new byte[HASH.bits() / Byte.SIZE];
+        is.readFully(digest);
+        references.put(sym, HashCode.fromBytes(digest));
+      }
+    }
+    return new CacheEntry(bytes, symbols.build(), references.build());
+  }
+
+  /** Checks that a length read from an entry is not larger than the rest of the entry. */
+  private static int checkLength(int length, ByteArrayInputStream is) throws IOException {
+    if (length < 0 || length > is.available()) {
+      throw new IOException("invalid length: " + length);
+    }
+    return length;
+  }
+
+  private void write(HashCode key, CacheEntry entry) throws IOException {
+    Path path = path(key);
+    Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream os =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      os.writeInt(VERSION);
+      os.writeInt(entry.bytes.length);
+      os.write(entry.bytes);
+      os.writeInt(entry.symbols.size());
+      for (ClassSymbol sym : entry.symbols) {
+        os.writeUTF(sym.binaryName());
+        HashCode digest = entry.references.get(sym);
+        os.writeBoolean(digest != null);
+        if (digest != null) {
+          os.write(digest.asBytes());
+        }
+      }
+    }
+    Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Deletes the entries that weren't used by the current compilation. Files and directories that
+   * weren't written by the cache are left alone.
+   */
+  private void prune(ImmutableList<HashCode> keys) throws IOException {
+    Set<Path> live = new HashSet<>();
+    for (HashCode key : keys) {
+      live.add(path(key));
+    }
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+      for (Path entry : entries) {
+        if (!live.contains(entry)
+            && ENTRY_NAME.matcher(entry.getFileName().toString()).matches()
+            && Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS)) {
+          Files.deleteIfExists(entry);
+        }
+      }
+    }
+  }
+
+  private Path path(HashCode key) {
+    return dir.resolve(key.toString());
+  }
+}
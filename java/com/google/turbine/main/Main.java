@@ -17,63 +17,83 @@
 package com.google.turbine.main;
 
 import static com.google.common.base.StandardSystemProperty.JAVA_SPECIFICATION_VERSION;
+import static com.google.common.base.Throwables.throwIfInstanceOf;
+import static com.google.common.base.Throwables.throwIfUnchecked;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
 import com.google.common.io.MoreFiles;
+import com.google.common.math.IntMath;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.turbine.binder.Binder;
 import com.google.turbine.binder.Binder.BindingResult;
 import com.google.turbine.binder.Binder.Statistics;
 import com.google.turbine.binder.ClassPath;
 import com.google.turbine.binder.ClassPathBinder;
+import com.google.turbine.binder.ClassPathCache;
+import com.google.turbine.binder.ClassPathCache.PlatformClassPathLoader;
 import com.google.turbine.binder.CtSymClassBinder;
 import com.google.turbine.binder.JimageClassBinder;
 import com.google.turbine.binder.Processing;
+import com.google.turbine.binder.Processing.ProcessorInfo;
 import com.google.turbine.binder.bound.SourceTypeBoundClass;
 import com.google.turbine.binder.sym.ClassSymbol;
 import com.google.turbine.deps.Dependencies;
 import com.google.turbine.deps.Transitive;
+import com.google.turbine.diag.Profiler;
 import com.google.turbine.diag.SourceFile;
 import com.google.turbine.diag.TurbineError;
 import com.google.turbine.lower.Lower;
 import com.google.turbine.lower.Lower.Lowered;
+import com.google.turbine.lower.LowerCache;
 import com.google.turbine.options.TurbineOptions;
 import com.google.turbine.options.TurbineOptions.ReducedClasspathMode;
 import com.google.turbine.options.TurbineOptionsParser;
+import com.google.turbine.parse.IdentifierTable;
 import com.google.turbine.parse.Parser;
 import com.google.turbine.proto.DepsProto;
 import com.google.turbine.proto.ManifestProto;
 import com.google.turbine.proto.ManifestProto.CompilationUnit;
 import com.google.turbine.tree.Tree.CompUnit;
+import com.google.turbine.zip.JarWriter;
 import com.google.turbine.zip.Zip;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.io.Writer;
+import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.Attributes;
-import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
-import java.util.jar.JarOutputStream;
 import java.util.jar.Manifest;
-import java.util.zip.ZipEntry;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** Main entry point for the turbine CLI. */
 public class Main {
 
-  private static final int BUFFER_SIZE = 65536;
-
   // These attributes are used by JavaBuilder, Turbine, and ijar.
   // They must all be kept in sync.
   static final String MANIFEST_DIR = "META-INF/";
@@ -82,6 +102,9 @@ public class Main {
   static final Attributes.Name INJECTING_RULE_KIND = new Attributes.Name("Injecting-Rule-Kind");
 
   public static void main(String[] args) throws IOException {
+    if (Arrays.asList(args).contains(Worker.PERSISTENT_WORKER_FLAG)) {
+      System.exit(Worker.run(args));
+    }
     boolean ok;
     try {
       compile(args);
@@ -131,11 +154,55 @@ public class Main {
   }
 
   public static Result compile(TurbineOptions options) throws IOException {
+    return compile(options, /* classPathCache= */ null);
+  }
+
+  /**
+   * Runs a compilation, re-using classpath jars from the given cache if it is present. The cache
+   * may be shared by concurrent compilations.
+   */
+  public static Result compile(TurbineOptions options, @Nullable ClassPathCache classPathCache)
+      throws IOException {
     usage(options);
+    if (!options.profile().isPresent()) {
+      return compile(options, classPathCache, Profiler.NONE);
+    }
+    Profiler profiler = Profiler.create();
+    Result result;
+    try {
+      result = compile(options, classPathCache, profiler);
+    } catch (Throwable t) {
+      // write the profile even if the compilation fails, to help diagnose slow failures, but
+      // report the compilation's failure instead of any failure to write the profile
+      try {
+        writeProfile(options, profiler);
+      } catch (IOException | RuntimeException e) {
+        t.addSuppressed(e);
+      }
+      throw t;
+    }
+    writeProfile(options, profiler);
+    return result;
+  }
 
-    ImmutableList<CompUnit> units = parseAll(options);
+  private static void writeProfile(TurbineOptions options, Profiler profiler) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(Paths.get(options.profile().get()), UTF_8)) {
+      profiler.writeTrace(writer);
+    }
+  }
+
+  private static Result compile(
+      TurbineOptions options, @Nullable ClassPathCache classPathCache, Profiler profiler)
+      throws IOException {
+    ImmutableList<CompUnit> units;
+    try (Profiler.Phase unused = profiler.start("parse")) {
+      units = parseAll(options, profiler);
+    }
 
-    ClassPath bootclasspath = bootclasspath(options);
+    ClassPath bootclasspath;
+    try (Profiler.Phase unused = profiler.start("bind bootclasspath")) {
+      bootclasspath = bootclasspath(options, classPathCache);
+    }
 
     BindingResult bound;
     ReducedClasspathMode reducedClasspathMode = options.reducedClasspathMode();
@@ -147,15 +214,16 @@ public class Main {
     }
     boolean transitiveClasspathFallback = false;
     ImmutableList<String> classPath = options.classPath();
+    Collection<String> boundClassPath = classPath;
     int transitiveClasspathLength = classPath.size();
     int reducedClasspathLength = classPath.size();
     switch (reducedClasspathMode) {
       case NONE:
-        bound = bind(options, units, bootclasspath, classPath);
+        bound = bind(options, classPathCache, units, bootclasspath, classPath, profiler);
         break;
       case BAZEL_FALLBACK:
         reducedClasspathLength = options.reducedClasspathLength();
-        bound = bind(options, units, bootclasspath, classPath);
+        bound = bind(options, classPathCache, units, bootclasspath, classPath, profiler);
         transitiveClasspathFallback = true;
         break;
       case JAVABUILDER_REDUCED:
@@ -163,16 +231,17 @@ public class Main {
             Dependencies.reduceClasspath(classPath, options.directJars(), options.depsArtifacts());
         reducedClasspathLength = reducedClasspath.size();
         try {
-          bound = bind(options, units, bootclasspath, reducedClasspath);
+          bound = bind(options, classPathCache, units, bootclasspath, reducedClasspath, profiler);
+          boundClassPath = reducedClasspath;
         } catch (TurbineError e) {
-          bound = fallback(options, units, bootclasspath, classPath);
+          bound = fallback(options, classPathCache, units, bootclasspath, classPath, profiler);
           transitiveClasspathFallback = true;
         }
         break;
       case BAZEL_REDUCED:
         transitiveClasspathLength = options.fullClasspathLength();
         try {
-          bound = bind(options, units, bootclasspath, classPath);
+          bound = bind(options, classPathCache, units, bootclasspath, classPath, profiler);
         } catch (TurbineError e) {
           writeJdepsForFallback(options);
           return Result.create(
@@ -189,29 +258,59 @@ public class Main {
     if (options.outputDeps().isPresent()
         || options.output().isPresent()
         || options.outputManifest().isPresent()) {
-      // TODO(cushon): parallelize
-      Lowered lowered = Lower.lowerAll(bound.units(), bound.modules(), bound.classPathEnv());
+      Lowered lowered;
+      try (Profiler.Phase unused = profiler.start("lower")) {
+        if (options.incrementalCacheDir().isPresent()) {
+          lowered =
+              incrementalCache(options, boundClassPath)
+                  .lowerAll(
+                      bound.units(),
+                      bound.modules(),
+                      bound.classPathEnv(),
+                      options.parallelism(),
+                      profiler);
+        } else {
+          lowered =
+              Lower.lowerAll(
+                  bound.units(),
+                  bound.modules(),
+                  bound.classPathEnv(),
+                  options.parallelism(),
+                  profiler);
+        }
+      }
 
       if (options.outputDeps().isPresent()) {
-        DepsProto.Dependencies deps =
-            Dependencies.collectDeps(options.targetLabel(), bootclasspath, bound, lowered);
-        try (OutputStream os =
-            new BufferedOutputStream(
-                Files.newOutputStream(Paths.get(options.outputDeps().get())))) {
-          deps.writeTo(os);
+        try (Profiler.Phase unused = profiler.start("deps")) {
+          DepsProto.Dependencies deps =
+              Dependencies.collectDeps(options.targetLabel(), bootclasspath, bound, lowered);
+          try (OutputStream os =
+              new BufferedOutputStream(
+                  Files.newOutputStream(Paths.get(options.outputDeps().get())))) {
+            deps.writeTo(os);
+          }
         }
       }
       if (options.output().isPresent()) {
-        Map<String, byte[]> transitive = Transitive.collectDeps(bootclasspath, bound);
-        writeOutput(options, bound.generatedClasses(), lowered.bytes(), transitive);
+        Map<String, byte[]> transitive;
+        try (Profiler.Phase unused = profiler.start("transitive")) {
+          transitive = Transitive.collectDeps(bootclasspath, bound);
+        }
+        try (Profiler.Phase unused = profiler.start("write output")) {
+          writeOutput(options, bound.generatedClasses(), lowered.bytes(), transitive);
+        }
       }
       if (options.outputManifest().isPresent()) {
-        writeManifestProto(options, bound.units(), bound.generatedSources());
+        try (Profiler.Phase unused = profiler.start("write manifest")) {
+          writeManifestProto(options, bound.units(), bound.generatedSources());
+        }
       }
     }
 
-    writeSources(options, bound.generatedSources());
-    writeResources(options, bound.generatedClasses());
+    try (Profiler.Phase unused = profiler.start("write generated files")) {
+      writeSources(options, bound.generatedSources());
+      writeResources(options, bound.generatedClasses());
+    }
     return Result.create(
         /* transitiveClasspathFallback= */ transitiveClasspathFallback,
         /* transitiveClasspathLength= */ transitiveClasspathLength,
@@ -222,11 +321,13 @@ public class Main {
   // don't inline this; we want it to show up in profiles
   private static BindingResult fallback(
       TurbineOptions options,
+      @Nullable ClassPathCache classPathCache,
       ImmutableList<CompUnit> units,
       ClassPath bootclasspath,
-      ImmutableList<String> classPath)
+      ImmutableList<String> classPath,
+      Profiler profiler)
       throws IOException {
-    return bind(options, units, bootclasspath, classPath);
+    return bind(options, classPathCache, units, bootclasspath, classPath, profiler);
   }
 
   /**
@@ -247,20 +348,59 @@ public class Main {
 
   private static BindingResult bind(
       TurbineOptions options,
+      @Nullable ClassPathCache classPathCache,
       ImmutableList<CompUnit> units,
       ClassPath bootclasspath,
-      Collection<String> classpath)
+      Collection<String> classpath,
+      Profiler profiler)
+      throws IOException {
+    ClassPath boundClasspath;
+    try (Profiler.Phase unused = profiler.start("bind classpath")) {
+      boundClasspath = bindClasspath(toPaths(classpath), classPathCache);
+    }
+    ProcessorInfo processorInfo;
+    try (Profiler.Phase unused = profiler.start("initialize processors")) {
+      processorInfo =
+          Processing.initializeProcessors(
+              /* javacopts= */ options.javacOpts(),
+              /* processorPath= */ options.processorPath(),
+              /* processorNames= */ options.processors(),
+              /* builtinProcessors= */ options.builtinProcessors());
+    }
+    try (Profiler.Phase unused = profiler.start("bind")) {
+      return Binder.bind(
+          units,
+          boundClasspath,
+          processorInfo,
+          bootclasspath,
+          /* moduleVersion=*/ Optional.empty(),
+          profiler,
+          options.parallelism());
+    }
+  }
+
+  /**
+   * Returns the cache of lowered classes for an incremental compilation, which is keyed on the
+   * compilation's inputs other than sources.
+   */
+  private static LowerCache incrementalCache(TurbineOptions options, Collection<String> classpath)
       throws IOException {
-    return Binder.bind(
-        units,
-        ClassPathBinder.bindClasspath(toPaths(classpath)),
-        Processing.initializeProcessors(
-            /* javacopts= */ options.javacOpts(),
-            /* processorPath= */ options.processorPath(),
-            /* processorNames= */ options.processors(),
-            /* builtinProcessors= */ options.builtinProcessors()),
-        bootclasspath,
-        /* moduleVersion=*/ Optional.empty());
+    Hasher hasher = Hashing.sha256().newHasher();
+    // platform classpaths for --release and --system are identified by name
+    hasher.putString(options.release().orElse(""), UTF_8).putByte((byte) 0);
+    hasher.putString(options.system().orElse(""), UTF_8).putByte((byte) 0);
+    hasher.putInt(options.bootClassPath().size());
+    for (String path : options.bootClassPath()) {
+      LowerCache.putJar(hasher, Paths.get(path));
+    }
+    hasher.putInt(classpath.size());
+    for (String path : classpath) {
+      LowerCache.putJar(hasher, Paths.get(path));
+    }
+    for (String javacOpt : options.javacOpts()) {
+      hasher.putString(javacOpt, UTF_8).putByte((byte) 0);
+    }
+    return LowerCache.create(Paths.get(options.incrementalCacheDir().get()), hasher.hash());
   }
 
   private static void usage(TurbineOptions options) {
@@ -275,7 +415,8 @@ public class Main {
     }
   }
 
-  private static ClassPath bootclasspath(TurbineOptions options) throws IOException {
+  private static ClassPath bootclasspath(
+      TurbineOptions options, @Nullable ClassPathCache classPathCache) throws IOException {
     // if both --release and --bootclasspath are specified, --release wins
     if (options.release().isPresent() && options.system().isPresent()) {
       throw new UsageException("expected at most one of --release and --system");
@@ -283,45 +424,158 @@ public class Main {
 
     if (options.release().isPresent()) {
       String release = options.release().get();
-      if (release.equals(JAVA_SPECIFICATION_VERSION.value())) {
-        // if --release matches the host JDK, use its jimage instead of ct.sym
-        return JimageClassBinder.bindDefault();
-      }
-      // ... otherwise, search ct.sym for a matching release
-      ClassPath bootclasspath = CtSymClassBinder.bind(release);
-      if (bootclasspath == null) {
-        throw new UsageException("not a supported release: " + release);
-      }
-      return bootclasspath;
+      return platformClassPath(classPathCache, "--release " + release, () -> release(release));
     }
 
     if (options.system().isPresent()) {
       // look for a jimage in the given JDK
-      return JimageClassBinder.bind(options.system().get());
+      String system = options.system().get();
+      return platformClassPath(
+          classPathCache, "--system " + system, () -> JimageClassBinder.bind(system));
     }
 
     // the bootclasspath might be empty, e.g. when compiling java.lang
-    return ClassPathBinder.bindClasspath(toPaths(options.bootClassPath()));
+    return bindClasspath(toPaths(options.bootClassPath()), classPathCache);
+  }
+
+  private static ClassPath release(String release) throws IOException {
+    if (release.equals(JAVA_SPECIFICATION_VERSION.value())) {
+      // if --release matches the host JDK, use its jimage instead of ct.sym
+      return JimageClassBinder.bindDefault();
+    }
+    // ... otherwise, search ct.sym for a matching release
+    ClassPath bootclasspath = CtSymClassBinder.bind(release);
+    if (bootclasspath == null) {
+      throw new UsageException("not a supported release: " + release);
+    }
+    return bootclasspath;
+  }
+
+  private static ClassPath platformClassPath(
+      @Nullable ClassPathCache classPathCache, String key, PlatformClassPathLoader loader)
+      throws IOException {
+    return classPathCache != null ? classPathCache.platformClassPath(key, loader) : loader.load();
+  }
+
+  private static ClassPath bindClasspath(
+      ImmutableList<Path> paths, @Nullable ClassPathCache classPathCache) throws IOException {
+    return classPathCache != null
+        ? ClassPathBinder.bindClasspath(paths, classPathCache)
+        : ClassPathBinder.bindClasspath(paths);
   }
 
   /** Parse all source files and source jars. */
-  // TODO(cushon): parallelize
-  private static ImmutableList<CompUnit> parseAll(TurbineOptions options) throws IOException {
-    ImmutableList.Builder<CompUnit> units = ImmutableList.builder();
+  private static ImmutableList<CompUnit> parseAll(TurbineOptions options, Profiler profiler)
+      throws IOException {
+    List<Callable<CompUnit>> tasks = new ArrayList<>();
+    // identifiers are interned in a table for each parser thread, which is shared by all of the
+    // sources parsed on that thread
+    Map<Thread, IdentifierTable> identifiers = new ConcurrentHashMap<>();
+    // javadoc is only used by annotation processors
+    boolean javadoc = Processing.processorsEnabled(options.javacOpts(), options.processors());
     for (String source : options.sources()) {
-      Path path = Paths.get(source);
-      units.add(Parser.parse(new SourceFile(source, MoreFiles.asCharSource(path, UTF_8).read())));
+      tasks.add(
+          () -> {
+            Path path = Paths.get(source);
+            return Parser.parse(
+                new SourceFile(source, MoreFiles.asCharSource(path, UTF_8).read()),
+                identifiers.computeIfAbsent(Thread.currentThread(), t -> new IdentifierTable()),
+                javadoc);
+          });
     }
     for (String sourceJar : options.sourceJars()) {
       for (Zip.Entry ze : new Zip.ZipIterable(Paths.get(sourceJar))) {
         if (ze.name().endsWith(".java")) {
-          String name = ze.name();
-          String source = new String(ze.data(), UTF_8);
-          units.add(Parser.parse(new SourceFile(name, source)));
+          tasks.add(
+              () -> {
+                String name = ze.name();
+                String source = new String(ze.data(), UTF_8);
+                return Parser.parse(
+                    new SourceFile(name, source),
+                    identifiers.computeIfAbsent(
+                        Thread.currentThread(), t -> new IdentifierTable()),
+                    javadoc);
+              });
+        }
+      }
+    }
+    return runAll(tasks, options.parallelism(), "turbine-parse-%d", profiler, "parse");
+  }
+
+  /**
+   * The number of batches of tasks per thread for {@link #runAll}, to balance the load if some
+   * tasks are slower than others.
+   */
+  private static final int BATCHES_PER_THREAD = 4;
+
+  /**
+   * Runs the given tasks on up to {@code parallelism} threads, and returns their results in the
+   * same order as the tasks. If any tasks fail, the exception thrown by the first failing task (in
+   * task order, not completion order) is re-thrown, so errors are reported deterministically.
+   *
+   * <p>The tasks are run in contiguous batches, and each batch is recorded as a phase with the
+   * given name.
+   */
+  private static <T> ImmutableList<T> runAll(
+      List<Callable<T>> tasks,
+      int parallelism,
+      String threadNameFormat,
+      Profiler profiler,
+      String phaseName)
+      throws IOException {
+    if (parallelism <= 1 || tasks.size() <= 1) {
+      try {
+        return runBatch(tasks);
+      } catch (Exception e) {
+        throw propagate(e);
+      }
+    }
+    int batchSize =
+        IntMath.divide(tasks.size(), parallelism * BATCHES_PER_THREAD, RoundingMode.CEILING);
+    List<Callable<ImmutableList<T>>> batches = new ArrayList<>();
+    for (int i = 0; i < tasks.size(); i += batchSize) {
+      List<Callable<T>> batch = tasks.subList(i, Math.min(i + batchSize, tasks.size()));
+      batches.add(
+          () -> {
+            try (Profiler.Phase unused = profiler.start(phaseName)) {
+              return runBatch(batch);
+            }
+          });
+    }
+    ImmutableList.Builder<T> result = ImmutableList.builder();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(parallelism, batches.size()),
+            new ThreadFactoryBuilder().setNameFormat(threadNameFormat).setDaemon(true).build());
+    try {
+      for (Future<ImmutableList<T>> future : executor.invokeAll(batches)) {
+        try {
+          result.addAll(Futures.getDone(future));
+        } catch (ExecutionException e) {
+          throw propagate(e.getCause());
         }
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } finally {
+      executor.shutdownNow();
+    }
+    return result.build();
+  }
+
+  private static <T> ImmutableList<T> runBatch(List<Callable<T>> tasks) throws Exception {
+    ImmutableList.Builder<T> result = ImmutableList.builder();
+    for (Callable<T> task : tasks) {
+      result.add(task.call());
     }
-    return units.build();
+    return result.build();
+  }
+
+  private static IOException propagate(Throwable t) throws IOException {
+    throwIfInstanceOf(t, IOException.class);
+    throwIfUnchecked(t);
+    throw new AssertionError(t);
   }
 
   /** Writes source files generated by annotation processors. */
@@ -331,15 +585,12 @@ public class Main {
     if (!options.gensrcOutput().isPresent()) {
       return;
     }
-    Path path = Paths.get(options.gensrcOutput().get());
-    try (OutputStream os = Files.newOutputStream(path);
-        BufferedOutputStream bos = new BufferedOutputStream(os, BUFFER_SIZE);
-        JarOutputStream jos = new JarOutputStream(bos)) {
-      for (SourceFile source : generatedSources.values()) {
-        addEntry(jos, source.path(), source.source().getBytes(UTF_8));
-      }
-      writeManifest(jos, manifest());
+    JarWriter jar = new JarWriter(DEFAULT_TIMESTAMP);
+    for (SourceFile source : generatedSources.values()) {
+      jar.add(source.path(), source.source().getBytes(UTF_8));
     }
+    addManifest(jar, manifest());
+    jar.write(Paths.get(options.gensrcOutput().get()));
   }
 
   /** Writes resource files generated by annotation processors. */
@@ -348,14 +599,11 @@ public class Main {
     if (!options.resourceOutput().isPresent()) {
       return;
     }
-    Path path = Paths.get(options.resourceOutput().get());
-    try (OutputStream os = Files.newOutputStream(path);
-        BufferedOutputStream bos = new BufferedOutputStream(os, BUFFER_SIZE);
-        JarOutputStream jos = new JarOutputStream(bos)) {
-      for (Map.Entry<String, byte[]> resource : generatedResources.entrySet()) {
-        addEntry(jos, resource.getKey(), resource.getValue());
-      }
+    JarWriter jar = new JarWriter(DEFAULT_TIMESTAMP);
+    for (Map.Entry<String, byte[]> resource : generatedResources.entrySet()) {
+      jar.add(resource.getKey(), resource.getValue());
     }
+    jar.write(Paths.get(options.resourceOutput().get()));
   }
 
   /** Writes bytecode to the output jar. */
@@ -365,24 +613,20 @@ public class Main {
       Map<String, byte[]> lowered,
       Map<String, byte[]> transitive)
       throws IOException {
-    Path path = Paths.get(options.output().get());
-    try (OutputStream os = Files.newOutputStream(path);
-        BufferedOutputStream bos = new BufferedOutputStream(os, BUFFER_SIZE);
-        JarOutputStream jos = new JarOutputStream(bos)) {
-      for (Map.Entry<String, byte[]> entry : lowered.entrySet()) {
-        addEntry(jos, entry.getKey() + ".class", entry.getValue());
-      }
-      for (Map.Entry<String, byte[]> entry : generated.entrySet()) {
-        addEntry(jos, entry.getKey(), entry.getValue());
-      }
-      for (Map.Entry<String, byte[]> entry : transitive.entrySet()) {
-        addEntry(
-            jos, ClassPathBinder.TRANSITIVE_PREFIX + entry.getKey() + ".class", entry.getValue());
-      }
-      if (options.targetLabel().isPresent()) {
-        writeManifest(jos, manifest(options));
-      }
+    JarWriter jar = new JarWriter(DEFAULT_TIMESTAMP);
+    for (Map.Entry<String, byte[]> entry : lowered.entrySet()) {
+      jar.add(entry.getKey() + ".class", entry.getValue());
     }
+    for (Map.Entry<String, byte[]> entry : generated.entrySet()) {
+      jar.add(entry.getKey(), entry.getValue());
+    }
+    for (Map.Entry<String, byte[]> entry : transitive.entrySet()) {
+      jar.add(ClassPathBinder.TRANSITIVE_PREFIX + entry.getKey() + ".class", entry.getValue());
+    }
+    if (options.targetLabel().isPresent()) {
+      addManifest(jar, manifest(options));
+    }
+    jar.write(Paths.get(options.output().get()));
   }
 
   private static void writeManifestProto(
@@ -415,22 +659,11 @@ public class Main {
           .toInstant()
           .toEpochMilli();
 
-  private static void addEntry(JarOutputStream jos, String name, byte[] bytes) throws IOException {
-    JarEntry je = new JarEntry(name);
-    // TODO(cushon): switch to setLocalTime after we migrate to JDK 9
-    je.setTime(DEFAULT_TIMESTAMP);
-    je.setMethod(ZipEntry.STORED);
-    je.setSize(bytes.length);
-    je.setCrc(Hashing.crc32().hashBytes(bytes).padToLong());
-    jos.putNextEntry(je);
-    jos.write(bytes);
-  }
-
-  private static void writeManifest(JarOutputStream jos, Manifest manifest) throws IOException {
-    addEntry(jos, MANIFEST_DIR, new byte[] {});
+  private static void addManifest(JarWriter jar, Manifest manifest) throws IOException {
+    jar.add(MANIFEST_DIR, new byte[] {});
     ByteArrayOutputStream out = new ByteArrayOutputStream();
     manifest.write(out);
-    addEntry(jos, MANIFEST_NAME, out.toByteArray());
+    jar.add(MANIFEST_NAME, out.toByteArray());
   }
 
   /** Creates a default {@link Manifest}. */
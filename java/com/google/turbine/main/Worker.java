@@ -0,0 +1,170 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.main;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.turbine.binder.ClassPathCache;
+import com.google.turbine.diag.TurbineError;
+import com.google.turbine.options.TurbineOptionsParser;
+import com.google.turbine.proto.WorkerProto.WorkRequest;
+import com.google.turbine.proto.WorkerProto.WorkResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A persistent worker, which reads length-delimited {@link WorkRequest}s from stdin and writes a
+ * {@link WorkResponse} for each of them to stdout.
+ *
+ * <p>Running many compilations in a single process avoids JVM startup and warm-up costs for each
+ * compilation, and allows the bound classpath jars and platform classpaths to be re-used across
+ * compilations, see {@link ClassPathCache}.
+ *
+ * <p>Requests are multiplexed: up to {@code --max_concurrent_requests} requests are processed at
+ * the same time, and responses are written as soon as each request completes.
+ */
+public class Worker {
+
+  /** The flag that causes {@link Main} to run as a persistent worker. */
+  static final String PERSISTENT_WORKER_FLAG = "--persistent_worker";
+
+  /** The default size of the classpath cache, see {@link ClassPathCache}. */
+  static final long DEFAULT_CLASSPATH_CACHE_SIZE_MB = 512;
+
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private final ClassPathCache classPathCache;
+  private final int maxConcurrentRequests;
+
+  Worker(ClassPathCache classPathCache, int maxConcurrentRequests) {
+    this.classPathCache = classPathCache;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  /**
+   * Runs a persistent worker with the given startup arguments, and returns the process exit code.
+   */
+  static int run(String[] args) throws IOException {
+    long classPathCacheSizeMb = DEFAULT_CLASSPATH_CACHE_SIZE_MB;
+    int maxConcurrentRequests = Runtime.getRuntime().availableProcessors();
+    Deque<String> argumentDeque = new ArrayDeque<>(Arrays.asList(args));
+    while (!argumentDeque.isEmpty()) {
+      String next = argumentDeque.pollFirst();
+      switch (next) {
+        case PERSISTENT_WORKER_FLAG:
+          break;
+        case "--classpath_cache_size_mb":
+          classPathCacheSizeMb = Long.parseLong(argumentDeque.pollFirst());
+          break;
+        case "--max_concurrent_requests":
+          maxConcurrentRequests = Integer.parseInt(argumentDeque.pollFirst());
+          break;
+        default:
+          throw new UsageException("unknown persistent worker option: " + next);
+      }
+    }
+    // Anything written to stdout (e.g. by annotation processors) would corrupt the responses.
+    PrintStream stdout = System.out;
+    System.setOut(System.err);
+    Worker worker =
+        new Worker(ClassPathCache.create(classPathCacheSizeMb << 20), maxConcurrentRequests);
+    worker.processRequests(System.in, stdout);
+    return 0;
+  }
+
+  /**
+   * Processes requests until the end of the input is reached, and then waits for any outstanding
+   * requests to complete.
+   */
+  void processRequests(InputStream in, OutputStream out) throws IOException {
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            maxConcurrentRequests,
+            new ThreadFactoryBuilder().setNameFormat("turbine-worker-%d").setDaemon(true).build());
+    AtomicReference<IOException> writeFailure = new AtomicReference<>();
+    try {
+      while (writeFailure.get() == null) {
+        WorkRequest request = WorkRequest.parseDelimitedFrom(in);
+        if (request == null) {
+          break;
+        }
+        executor.execute(
+            () -> {
+              WorkResponse response = processRequest(request);
+              try {
+                synchronized (out) {
+                  response.writeDelimitedTo(out);
+                  out.flush();
+                }
+              } catch (IOException e) {
+                writeFailure.compareAndSet(null, e);
+              }
+            });
+      }
+      executor.shutdown();
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } finally {
+      executor.shutdownNow();
+    }
+    if (writeFailure.get() != null) {
+      throw writeFailure.get();
+    }
+  }
+
+  /** Runs the compilation for a single request. */
+  WorkResponse processRequest(WorkRequest request) {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    long startCpuTime = THREAD_MX_BEAN.getCurrentThreadCpuTime();
+    StringWriter output = new StringWriter();
+    int exitCode;
+    try {
+      Main.compile(TurbineOptionsParser.parse(request.getArgumentsList()), classPathCache);
+      exitCode = 0;
+    } catch (TurbineError | UsageException e) {
+      output.write(e.getMessage());
+      exitCode = 1;
+    } catch (Throwable turbineCrash) {
+      turbineCrash.printStackTrace(new PrintWriter(output, true));
+      exitCode = 1;
+    }
+    return WorkResponse.newBuilder()
+        .setRequestId(request.getRequestId())
+        .setExitCode(exitCode)
+        .setOutput(output.toString())
+        .setWallTimeMicros(stopwatch.elapsed(TimeUnit.MICROSECONDS))
+        .setCpuTimeMicros(
+            TimeUnit.NANOSECONDS.toMicros(THREAD_MX_BEAN.getCurrentThreadCpuTime() - startCpuTime))
+        .build();
+  }
+}
@@ -137,6 +137,18 @@ public abstract class TurbineOptions {
 
   public abstract int reducedClasspathLength();
 
+  /**
+   * The maximum number of threads to use for phases of the compilation that can be performed in
+   * parallel, e.g. parsing and lowering. A value of {@code 1} disables parallelism.
+   */
+  public abstract int parallelism();
+
+  /**
+   * An optional directory for caching the lowered bytecode of classes across compilations, so that
+   * only classes whose inputs changed are lowered again.
+   */
+  public abstract Optional<String> incrementalCacheDir();
+
   public static Builder builder() {
     return new AutoValue_TurbineOptions.Builder()
         .setSources(ImmutableList.of())
@@ -152,7 +164,8 @@ public abstract class TurbineOptions {
         .setReducedClasspathMode(ReducedClasspathMode.NONE)
         .setHelp(false)
         .setFullClasspathLength(0)
-        .setReducedClasspathLength(0);
+        .setReducedClasspathLength(0)
+        .setParallelism(1);
   }
 
   /** A {@link Builder} for {@link TurbineOptions}. */
@@ -259,6 +272,10 @@ public abstract class TurbineOptions {
 
     public abstract Builder setReducedClasspathLength(int reducedClasspathLength);
 
+    public abstract Builder setParallelism(int parallelism);
+
+    public abstract Builder setIncrementalCacheDir(String incrementalCacheDir);
+
     public abstract TurbineOptions build();
   }
 }
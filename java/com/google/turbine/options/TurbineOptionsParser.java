@@ -137,9 +137,19 @@ public class TurbineOptionsParser {
         case "--reduced_classpath_length":
           builder.setReducedClasspathLength(Integer.parseInt(readOne(argumentDeque)));
           break;
+        case "--parallelism":
+          {
+            int parallelism = Integer.parseInt(readOne(argumentDeque));
+            checkArgument(parallelism > 0, "invalid --parallelism: %s", parallelism);
+            builder.setParallelism(parallelism);
+            break;
+          }
         case "--profile":
           builder.setProfile(readOne(argumentDeque));
           break;
+        case "--incremental_cache_dir":
+          builder.setIncrementalCacheDir(readOne(argumentDeque));
+          break;
         case "--gensrc_output":
           builder.setGensrcOutput(readOne(argumentDeque));
           break;
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.parse;
+
+import java.util.EnumSet;
+
+/**
+ * A table of the identifiers and keywords in a compilation.
+ *
+ * <p>Identifiers are looked up by their range in the input, so the lexer doesn't allocate a new
+ * string for identifiers that are already in the table, and repeated names (e.g. {@code String},
+ * {@code Override}, or package names) share a single instance. The table is seeded with the
+ * keywords, so a single lookup also recognizes keywords.
+ *
+ * <p>A table is not thread-safe, but it can be shared by all of the sources in a compilation that
+ * are parsed on the same thread.
+ */
+public final class IdentifierTable {
+
+  private static final int INITIAL_CAPACITY = 1 << 10;
+
+  /** The names in the table, or {@code null} for empty slots. */
+  private String[] names;
+
+  /** The {@link String#hashCode} of each name. */
+  private int[] hashes;
+
+  /** The token for each name, which is {@link Token#IDENT} for names that are not keywords. */
+  private Token[] tokens;
+
+  private int size;
+
+  public IdentifierTable() {
+    names = new String[INITIAL_CAPACITY];
+    hashes = new int[INITIAL_CAPACITY];
+    tokens = new Token[INITIAL_CAPACITY];
+    EnumSet<Token> keywords = EnumSet.range(Token.ABSTRACT, Token.WHILE);
+    keywords.add(Token.TRUE);
+    keywords.add(Token.FALSE);
+    keywords.add(Token.NULL);
+    for (Token keyword : keywords) {
+      String name = keyword.toString();
+      lookup(name, 0, name.length(), keyword);
+    }
+  }
+
+  /**
+   * Returns the slot of the identifier or keyword in {@code input} between {@code start}
+   * (inclusive) and {@code end} (exclusive), adding it to the table if necessary. The slot is only
+   * valid until the next lookup.
+   */
+  int lookup(String input, int start, int end) {
+    return lookup(input, start, end, Token.IDENT);
+  }
+
+  private int lookup(String input, int start, int end, Token token) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + input.charAt(i);
+    }
+    int length = end - start;
+    int mask = names.length - 1;
+    for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+      String name = names[i];
+      if (name == null) {
+        return insert(i, input.substring(start, end), hash, token);
+      }
+      if (hashes[i] == hash
+          && name.length() == length
+          && input.regionMatches(start, name, 0, length)) {
+        return i;
+      }
+    }
+  }
+
+  /** Returns the interned name in the given slot. */
+  String name(int slot) {
+    return names[slot];
+  }
+
+  /** Returns the token for the name in the given slot. */
+  Token token(int slot) {
+    return tokens[slot];
+  }
+
+  private int insert(int slot, String name, int hash, Token token) {
+    names[slot] = name;
+    hashes[slot] = hash;
+    tokens[slot] = token;
+    // keep the load factor below 1/2, so probe sequences are short
+    if (++size * 2 <= names.length) {
+      return slot;
+    }
+    String[] oldNames = names;
+    int[] oldHashes = hashes;
+    Token[] oldTokens = tokens;
+    names = new String[oldNames.length * 2];
+    hashes = new int[names.length];
+    tokens = new Token[names.length];
+    int mask = names.length - 1;
+    int result = -1;
+    for (int i = 0; i < oldNames.length; i++) {
+      if (oldNames[i] == null) {
+        continue;
+      }
+      int j = spread(oldHashes[i]) & mask;
+      while (names[j] != null) {
+        j = (j + 1) & mask;
+      }
+      names[j] = oldNames[i];
+      hashes[j] = oldHashes[i];
+      tokens[j] = oldTokens[i];
+      if (i == slot) {
+        result = j;
+      }
+    }
+    return result;
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -17,7 +17,9 @@
 package com.google.turbine.parse;
 
 import com.google.turbine.diag.SourceFile;
+import com.google.turbine.tree.Javadoc;
 import java.util.Iterator;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A {@link Lexer} that wraps an iterator over an existing token stream.
@@ -60,7 +62,34 @@ public class IteratorLexer implements Lexer {
   }
 
   @Override
-  public String javadoc() {
+  public @Nullable Javadoc javadoc() {
     return null;
   }
+
+  @Override
+  public @Nullable Token skipInitializer() {
+    return null;
+  }
+
+  @Override
+  public Token skipBlock() {
+    int depth = 1;
+    while (true) {
+      Token token = next();
+      switch (token) {
+        case LBRACE:
+          depth++;
+          break;
+        case RBRACE:
+          if (--depth == 0) {
+            return next();
+          }
+          break;
+        case EOF:
+          return token;
+        default:
+          break;
+      }
+    }
+  }
 }
@@ -17,6 +17,8 @@
 package com.google.turbine.parse;
 
 import com.google.turbine.diag.SourceFile;
+import com.google.turbine.tree.Javadoc;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A Java lexer. */
 public interface Lexer {
@@ -32,6 +34,23 @@ public interface Lexer {
   /** Returns the source file for diagnostics. */
   SourceFile source();
 
-  /** Returns a saved javadoc comment. */
-  String javadoc();
+  /** Returns a saved javadoc comment, or {@code null}. */
+  @Nullable
+  Javadoc javadoc();
+
+  /**
+   * Skips the rest of a block whose opening brace was the last token returned by {@link #next},
+   * including the matching closing brace, and returns the token after the block or {@code EOF} if
+   * the block is unterminated.
+   */
+  Token skipBlock();
+
+  /**
+   * Skips the rest of a variable initializer whose {@code =} was the last token returned by {@link
+   * #next}, and returns the semicolon that ends the declaration. Returns {@code null} without
+   * consuming any input if the initializer can't be skipped, e.g. because it may be followed by
+   * more variables in a multi-variable declaration.
+   */
+  @Nullable
+  Token skipInitializer();
 }
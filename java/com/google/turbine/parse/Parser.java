@@ -33,6 +33,7 @@ import com.google.turbine.diag.TurbineError;
 import com.google.turbine.diag.TurbineError.ErrorKind;
 import com.google.turbine.model.TurbineConstantTypeKind;
 import com.google.turbine.model.TurbineTyKind;
+import com.google.turbine.tree.Javadoc;
 import com.google.turbine.tree.Tree;
 import com.google.turbine.tree.Tree.Anno;
 import com.google.turbine.tree.Tree.ArrTy;
@@ -83,10 +84,21 @@ public class Parser {
   }
 
   public static CompUnit parse(SourceFile source) {
-    return new Parser(new StreamLexer(new UnicodeEscapePreprocessor(source))).compilationUnit();
+    return parse(source, new IdentifierTable(), /* javadoc= */ true);
   }
 
-  private Parser(Lexer lexer) {
+  /**
+   * Parses the given source, and interns its identifiers in the given table, which may be shared
+   * with other sources that are parsed on the same thread. Javadoc comments are only saved if
+   * {@code javadoc} is true, which is only necessary if annotation processors are going to run.
+   */
+  public static CompUnit parse(SourceFile source, IdentifierTable identifiers, boolean javadoc) {
+    return new Parser(
+            new StreamLexer(new UnicodeEscapePreprocessor(source), identifiers, javadoc))
+        .compilationUnit();
+  }
+
+  Parser(Lexer lexer) {
     this.lexer = lexer;
     this.token = lexer.next();
   }
@@ -215,7 +227,7 @@ public class Parser {
   }
 
   private TyDecl interfaceDeclaration(EnumSet<TurbineModifier> access, ImmutableList<Anno> annos) {
-    String javadoc = lexer.javadoc();
+    Javadoc javadoc = lexer.javadoc();
     eat(Token.INTERFACE);
     int pos = position;
     Ident name = eatIdent();
@@ -233,7 +245,7 @@ public class Parser {
       } while (maybe(Token.COMMA));
     }
     eat(Token.LBRACE);
-    ImmutableList<Tree> members = classMembers();
+    ImmutableList<Tree> members = classMembers(TurbineTyKind.INTERFACE);
     eat(Token.RBRACE);
     return new TyDecl(
         pos,
@@ -249,12 +261,12 @@ public class Parser {
   }
 
   private TyDecl annotationDeclaration(EnumSet<TurbineModifier> access, ImmutableList<Anno> annos) {
-    String javadoc = lexer.javadoc();
+    Javadoc javadoc = lexer.javadoc();
     eat(Token.INTERFACE);
     int pos = position;
     Ident name = eatIdent();
     eat(Token.LBRACE);
-    ImmutableList<Tree> members = classMembers();
+    ImmutableList<Tree> members = classMembers(TurbineTyKind.ANNOTATION);
     eat(Token.RBRACE);
     return new TyDecl(
         pos,
@@ -270,7 +282,7 @@ public class Parser {
   }
 
   private TyDecl enumDeclaration(EnumSet<TurbineModifier> access, ImmutableList<Anno> annos) {
-    String javadoc = lexer.javadoc();
+    Javadoc javadoc = lexer.javadoc();
     eat(Token.ENUM);
     int pos = position;
     Ident name = eatIdent();
@@ -283,7 +295,10 @@ public class Parser {
     }
     eat(Token.LBRACE);
     ImmutableList<Tree> members =
-        ImmutableList.<Tree>builder().addAll(enumMembers(name)).addAll(classMembers()).build();
+        ImmutableList.<Tree>builder()
+            .addAll(enumMembers(name))
+            .addAll(classMembers(TurbineTyKind.ENUM))
+            .build();
     eat(Token.RBRACE);
     return new TyDecl(
         pos,
@@ -499,7 +514,7 @@ public class Parser {
   }
 
   private TyDecl classDeclaration(EnumSet<TurbineModifier> access, ImmutableList<Anno> annos) {
-    String javadoc = lexer.javadoc();
+    Javadoc javadoc = lexer.javadoc();
     eat(Token.CLASS);
     int pos = position;
     Ident name = eatIdent();
@@ -520,7 +535,7 @@ public class Parser {
       } while (maybe(Token.COMMA));
     }
     eat(Token.LBRACE);
-    ImmutableList<Tree> members = classMembers();
+    ImmutableList<Tree> members = classMembers(TurbineTyKind.CLASS);
     eat(Token.RBRACE);
     return new TyDecl(
         pos,
@@ -535,7 +550,8 @@ public class Parser {
         javadoc);
   }
 
-  private ImmutableList<Tree> classMembers() {
+  /** Parses the members of a type declaration of the given kind. */
+  private ImmutableList<Tree> classMembers(TurbineTyKind tykind) {
     ImmutableList.Builder<Tree> acc = ImmutableList.builder();
     EnumSet<TurbineModifier> access = EnumSet.noneOf(TurbineModifier.class);
     ImmutableList.Builder<Anno> annos = ImmutableList.builder();
@@ -615,7 +631,7 @@ public class Parser {
         case FLOAT:
         case VOID:
         case LT:
-          acc.addAll(classMember(access, annos.build()));
+          acc.addAll(classMember(tykind, access, annos.build()));
           access = EnumSet.noneOf(TurbineModifier.class);
           annos = ImmutableList.builder();
           break;
@@ -651,7 +667,7 @@ public class Parser {
   }
 
   private ImmutableList<Tree> classMember(
-      EnumSet<TurbineModifier> access, ImmutableList<Anno> annos) {
+      TurbineTyKind tykind, EnumSet<TurbineModifier> access, ImmutableList<Anno> annos) {
     ImmutableList<TyParam> typaram = ImmutableList.of();
     Type result;
     Ident name;
@@ -671,7 +687,7 @@ public class Parser {
           next();
           int pos = position;
           name = eatIdent();
-          return memberRest(pos, access, annos, typaram, result, name);
+          return memberRest(pos, tykind, access, annos, typaram, result, name);
         }
       case BOOLEAN:
       case BYTE:
@@ -685,7 +701,7 @@ public class Parser {
           result = referenceType(ImmutableList.of());
           int pos = position;
           name = eatIdent();
-          return memberRest(pos, access, annos, typaram, result, name);
+          return memberRest(pos, tykind, access, annos, typaram, result, name);
         }
       case IDENT:
         {
@@ -708,7 +724,7 @@ public class Parser {
                         ImmutableList.of());
                 pos = position;
                 name = eatIdent();
-                return memberRest(pos, access, annos, typaram, result, name);
+                return memberRest(pos, tykind, access, annos, typaram, result, name);
               }
             case AT:
             case LBRACK:
@@ -765,7 +781,7 @@ public class Parser {
                 if (!typaram.isEmpty()) {
                   throw error(ErrorKind.UNEXPECTED_TYPE_PARAMETER, typaram);
                 }
-                return fieldRest(pos, access, annos, result, name);
+                return fieldRest(pos, tykind, access, annos, result, name);
               }
             default:
               throw error(token);
@@ -791,6 +807,7 @@ public class Parser {
 
   private ImmutableList<Tree> memberRest(
       int pos,
+      TurbineTyKind tykind,
       EnumSet<TurbineModifier> access,
       ImmutableList<Anno> annos,
       ImmutableList<TyParam> typaram,
@@ -806,7 +823,7 @@ public class Parser {
           if (!typaram.isEmpty()) {
             throw error(ErrorKind.UNEXPECTED_TYPE_PARAMETER, typaram);
           }
-          return fieldRest(pos, access, annos, result, name);
+          return fieldRest(pos, tykind, access, annos, result, name);
         }
       case LPAREN:
         return ImmutableList.of(methodRest(pos, access, annos, typaram, result, name));
@@ -817,11 +834,24 @@ public class Parser {
 
   private ImmutableList<Tree> fieldRest(
       int pos,
+      TurbineTyKind tykind,
       EnumSet<TurbineModifier> access,
       ImmutableList<Anno> annos,
       Type baseTy,
       Ident name) {
-    String javadoc = lexer.javadoc();
+    Javadoc javadoc = lexer.javadoc();
+    if (token == Token.ASSIGN && !maybeConstant(tykind, access, baseTy)) {
+      // The initializer isn't needed, so skip it without tokenizing it, unless this may be a
+      // multi-variable declaration.
+      Token next = lexer.skipInitializer();
+      if (next != null) {
+        token = next;
+        position = lexer.position();
+        eat(Token.SEMI);
+        return ImmutableList.of(
+            new VarDecl(pos, access, annos, baseTy, name, Optional.<Expression>empty(), javadoc));
+      }
+    }
     ImmutableList.Builder<Tree> result = ImmutableList.builder();
     VariableInitializerParser initializerParser = new VariableInitializerParser(token, lexer);
     List<List<SavedToken>> bits = initializerParser.parseInitializers();
@@ -839,7 +869,6 @@ public class Parser {
       }
       Type ty = baseTy;
       ty = parser.extraDims(ty);
-      // TODO(cushon): skip more fields that are definitely non-const
       ConstExpressionParser constExpressionParser = new ConstExpressionParser(lexer, lexer.next());
       expressionStart = lexer.position();
       Expression init = constExpressionParser.expression();
@@ -855,6 +884,35 @@ public class Parser {
     return result.build();
   }
 
+  /**
+   * Returns true if a field of the given type declared in a type of the given kind may be a
+   * constant variable (JLS 4.12.4), i.e. if it is final and its type may be a primitive type or
+   * {@code String}. This is a conservative approximation, since types aren't resolved yet.
+   */
+  private static boolean maybeConstant(
+      TurbineTyKind tykind, EnumSet<TurbineModifier> access, Type ty) {
+    switch (tykind) {
+      case INTERFACE:
+      case ANNOTATION:
+        // fields in interfaces are implicitly final
+        break;
+      case CLASS:
+      case ENUM:
+        if (!access.contains(TurbineModifier.FINAL)) {
+          return false;
+        }
+        break;
+    }
+    switch (ty.kind()) {
+      case PRIM_TY:
+        return true;
+      case CLASS_TY:
+        return ((ClassTy) ty).name().value().equals("String");
+      default:
+        return false;
+    }
+  }
+
   private Tree methodRest(
       int pos,
       EnumSet<TurbineModifier> access,
@@ -862,7 +920,7 @@ public class Parser {
       ImmutableList<TyParam> typaram,
       Type result,
       Ident name) {
-    String javadoc = lexer.javadoc();
+    Javadoc javadoc = lexer.javadoc();
     eat(Token.LPAREN);
     ImmutableList.Builder<VarDecl> formals = ImmutableList.builder();
     formalParams(formals, access);
@@ -1054,23 +1112,15 @@ public class Parser {
     }
   }
 
+  /** Skips a block, e.g. a method body, which is not needed for header compilation. */
   private void dropBlocks() {
-    eat(Token.LBRACE);
-    int depth = 1;
-    while (depth > 0) {
-      switch (token) {
-        case RBRACE:
-          depth--;
-          break;
-        case LBRACE:
-          depth++;
-          break;
-        case EOF:
-          throw error(ErrorKind.UNEXPECTED_EOF);
-        default:
-          break;
-      }
-      next();
+    if (token != Token.LBRACE) {
+      throw error(ErrorKind.EXPECTED_TOKEN, Token.LBRACE);
+    }
+    token = lexer.skipBlock();
+    position = lexer.position();
+    if (token == Token.EOF) {
+      throw error(ErrorKind.UNEXPECTED_EOF);
     }
   }
 
@@ -16,18 +16,24 @@
 
 package com.google.turbine.parse;
 
-import static com.google.common.base.Verify.verify;
 import static com.google.turbine.parse.UnicodeEscapePreprocessor.ASCII_SUB;
 
 import com.google.turbine.diag.SourceFile;
 import com.google.turbine.diag.TurbineError;
 import com.google.turbine.diag.TurbineError.ErrorKind;
+import com.google.turbine.tree.Javadoc;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** A {@link Lexer} that streams input from a {@link UnicodeEscapePreprocessor}. */
 public class StreamLexer implements Lexer {
 
   private final UnicodeEscapePreprocessor reader;
 
+  /** The raw input, which identifiers are read from. */
+  private final String input;
+
+  private final IdentifierTable identifiers;
+
   /** The current input character. */
   private char ch;
 
@@ -40,11 +46,29 @@ public class StreamLexer implements Lexer {
   /** The value of the current string or character literal token. */
   private String value = null;
 
-  /** A saved javadoc comment. */
-  private String javadoc = null;
+  /** Whether javadoc comments are saved. */
+  private final boolean captureJavadoc;
+
+  /** The start position of a saved javadoc comment, or {@code -1}. */
+  private int javadocStart = -1;
+
+  /** The end position of a saved javadoc comment. */
+  private int javadocEnd;
 
   public StreamLexer(UnicodeEscapePreprocessor reader) {
+    this(reader, new IdentifierTable(), /* captureJavadoc= */ true);
+  }
+
+  /**
+   * Creates a lexer that interns identifiers in the given table, and only saves javadoc comments if
+   * {@code captureJavadoc} is true.
+   */
+  public StreamLexer(
+      UnicodeEscapePreprocessor reader, IdentifierTable identifiers, boolean captureJavadoc) {
     this.reader = reader;
+    this.input = reader.source().source();
+    this.identifiers = identifiers;
+    this.captureJavadoc = captureJavadoc;
     eat();
   }
 
@@ -65,14 +89,13 @@ public class StreamLexer implements Lexer {
   }
 
   @Override
-  public String javadoc() {
-    String result = javadoc;
-    javadoc = null;
-    if (result == null) {
+  public @Nullable Javadoc javadoc() {
+    if (javadocStart == -1) {
       return null;
     }
-    verify(result.endsWith("*/"), result);
-    return result.substring(0, result.length() - "*/".length());
+    Javadoc result = new Javadoc(input, javadocStart, javadocEnd);
+    javadocStart = -1;
+    return result;
   }
 
   @Override
@@ -139,7 +162,7 @@ public class StreamLexer implements Lexer {
                     eat();
                     continue OUTER;
                   }
-                  isJavadoc = true;
+                  isJavadoc = captureJavadoc;
                   readFrom();
                 }
                 while (true) {
@@ -152,9 +175,10 @@ public class StreamLexer implements Lexer {
                       eat();
                       if (sawStar) {
                         if (isJavadoc) {
-                          // Save the comment, excluding the leading `/**` and including
-                          // the trailing `/*`. The comment is trimmed and normalized later.
-                          javadoc = stringValue();
+                          // Save the position of the comment, excluding the leading `/**` and
+                          // the trailing `*/`. The comment is trimmed and normalized later.
+                          javadocStart = readFrom;
+                          javadocEnd = reader.position() - "*/".length();
                         }
                         continue OUTER;
                       }
@@ -435,6 +459,251 @@ public class StreamLexer implements Lexer {
     }
   }
 
+  /**
+   * Skips the rest of a block without tokenizing it. The contents of the block are only scanned for
+   * the comments and literals that could contain unbalanced braces, so identifiers and other
+   * literals are not allocated, and javadoc comments in the block are not saved.
+   */
+  @Override
+  public Token skipBlock() {
+    int depth = 1;
+    while (true) {
+      switch (ch) {
+        case '{':
+          eat();
+          depth++;
+          break;
+        case '}':
+          eat();
+          if (--depth == 0) {
+            return next();
+          }
+          break;
+        case '/':
+          eat();
+          if (ch == '/') {
+            skipLineComment();
+          } else if (ch == '*') {
+            skipBlockComment();
+          }
+          break;
+        case '\'':
+          skipCharLiteral();
+          break;
+        case '"':
+          skipStringLiteral();
+          break;
+        case ASCII_SUB:
+          if (reader.done()) {
+            position = reader.position();
+            return Token.EOF;
+          }
+          eat();
+          break;
+        default:
+          eat();
+          break;
+      }
+    }
+  }
+
+  /**
+   * Skips the rest of a variable initializer without tokenizing it, see {@link #skipBlock}. The
+   * initializer ends at the first semicolon that isn't nested in parentheses, brackets or braces. A
+   * comma at the same level may separate the initializer from another variable in a multi-variable
+   * declaration, or be part of a type argument list, which can't be distinguished without parsing
+   * the initializer.
+   */
+  @Override
+  public @Nullable Token skipInitializer() {
+    int mark = reader.mark();
+    char start = ch;
+    int depth = 0;
+    while (true) {
+      switch (ch) {
+        case '(':
+        case '[':
+        case '{':
+          eat();
+          depth++;
+          break;
+        case ')':
+        case ']':
+        case '}':
+          if (depth == 0) {
+            // the declaration is unterminated, let the parser report the error
+            reader.reset(mark);
+            ch = start;
+            return null;
+          }
+          eat();
+          depth--;
+          break;
+        case ',':
+          if (depth == 0) {
+            reader.reset(mark);
+            ch = start;
+            return null;
+          }
+          eat();
+          break;
+        case ';':
+          if (depth == 0) {
+            return next();
+          }
+          eat();
+          break;
+        case '/':
+          eat();
+          if (ch == '/') {
+            skipLineComment();
+          } else if (ch == '*') {
+            skipBlockComment();
+          }
+          break;
+        case '\'':
+          skipCharLiteral();
+          break;
+        case '"':
+          skipStringLiteral();
+          break;
+        case ASCII_SUB:
+          if (reader.done()) {
+            reader.reset(mark);
+            ch = start;
+            return null;
+          }
+          eat();
+          break;
+        default:
+          eat();
+          break;
+      }
+    }
+  }
+
+  /** Skips a line comment, after the leading {@code //}. */
+  private void skipLineComment() {
+    while (true) {
+      eat();
+      switch (ch) {
+        case '\n':
+        case '\r':
+          eat();
+          return;
+        case ASCII_SUB:
+          if (reader.done()) {
+            return;
+          }
+          break;
+        default:
+          break;
+      }
+    }
+  }
+
+  /** Skips a traditional comment, starting at the {@code *} of the leading {@code /*}. */
+  private void skipBlockComment() {
+    int start = reader.position() - 1;
+    eat();
+    boolean sawStar = false;
+    while (true) {
+      switch (ch) {
+        case '*':
+          eat();
+          sawStar = true;
+          break;
+        case '/':
+          eat();
+          if (sawStar) {
+            return;
+          }
+          break;
+        case ASCII_SUB:
+          if (reader.done()) {
+            throw TurbineError.format(reader.source(), start, ErrorKind.UNCLOSED_COMMENT);
+          }
+          eat();
+          sawStar = false;
+          break;
+        default:
+          eat();
+          sawStar = false;
+          break;
+      }
+    }
+  }
+
+  /** Skips a character literal, starting at the opening quote. */
+  private void skipCharLiteral() {
+    eat();
+    switch (ch) {
+      case '\\':
+        eat();
+        eat();
+        break;
+      case '\'':
+        throw error(ErrorKind.EMPTY_CHARACTER_LITERAL);
+      default:
+        eat();
+        break;
+    }
+    // octal escapes are the only escape sequences that are longer than one character
+    while (ch >= '0' && ch <= '7') {
+      eat();
+    }
+    if (ch != '\'') {
+      throw error(ErrorKind.UNTERMINATED_CHARACTER_LITERAL);
+    }
+    eat();
+  }
+
+  /** Skips a string literal or text block, starting at the opening quote. */
+  private void skipStringLiteral() {
+    eat();
+    boolean textBlock = false;
+    if (ch == '"') {
+      eat();
+      if (ch != '"') {
+        // an empty string
+        return;
+      }
+      eat();
+      textBlock = true;
+    }
+    int quotes = 0;
+    while (true) {
+      switch (ch) {
+        case '"':
+          eat();
+          if (!textBlock || ++quotes == 3) {
+            return;
+          }
+          continue;
+        case '\\':
+          eat();
+          eat();
+          break;
+        case '\n':
+          if (!textBlock) {
+            throw error(ErrorKind.UNTERMINATED_STRING);
+          }
+          eat();
+          break;
+        case ASCII_SUB:
+          if (reader.done()) {
+            throw error(ErrorKind.UNTERMINATED_STRING);
+          }
+          eat();
+          break;
+        default:
+          eat();
+          break;
+      }
+      quotes = 0;
+    }
+  }
+
   private char escape() {
     boolean zeroToThree = false;
     switch (ch) {
@@ -1025,120 +1294,12 @@ public class StreamLexer implements Lexer {
       }
       eat();
     }
-    return makeIdent(stringValue());
-  }
-
-  private static Token makeIdent(String s) {
-    switch (s) {
-      case "abstract":
-        return Token.ABSTRACT;
-      case "assert":
-        return Token.ASSERT;
-      case "boolean":
-        return Token.BOOLEAN;
-      case "break":
-        return Token.BREAK;
-      case "byte":
-        return Token.BYTE;
-      case "case":
-        return Token.CASE;
-      case "catch":
-        return Token.CATCH;
-      case "char":
-        return Token.CHAR;
-      case "class":
-        return Token.CLASS;
-      case "const":
-        return Token.CONST;
-      case "continue":
-        return Token.CONTINUE;
-      case "default":
-        return Token.DEFAULT;
-      case "do":
-        return Token.DO;
-      case "double":
-        return Token.DOUBLE;
-      case "else":
-        return Token.ELSE;
-      case "enum":
-        return Token.ENUM;
-      case "extends":
-        return Token.EXTENDS;
-      case "final":
-        return Token.FINAL;
-      case "finally":
-        return Token.FINALLY;
-      case "float":
-        return Token.FLOAT;
-      case "for":
-        return Token.FOR;
-      case "goto":
-        return Token.GOTO;
-      case "if":
-        return Token.IF;
-      case "implements":
-        return Token.IMPLEMENTS;
-      case "import":
-        return Token.IMPORT;
-      case "instanceof":
-        return Token.INSTANCEOF;
-      case "int":
-        return Token.INT;
-      case "interface":
-        return Token.INTERFACE;
-      case "long":
-        return Token.LONG;
-      case "native":
-        return Token.NATIVE;
-      case "new":
-        return Token.NEW;
-      case "package":
-        return Token.PACKAGE;
-      case "private":
-        return Token.PRIVATE;
-      case "protected":
-        return Token.PROTECTED;
-      case "public":
-        return Token.PUBLIC;
-      case "return":
-        return Token.RETURN;
-      case "short":
-        return Token.SHORT;
-      case "static":
-        return Token.STATIC;
-      case "strictfp":
-        return Token.STRICTFP;
-      case "super":
-        return Token.SUPER;
-      case "switch":
-        return Token.SWITCH;
-      case "synchronized":
-        return Token.SYNCHRONIZED;
-      case "this":
-        return Token.THIS;
-      case "throw":
-        return Token.THROW;
-      case "throws":
-        return Token.THROWS;
-      case "transient":
-        return Token.TRANSIENT;
-      case "try":
-        return Token.TRY;
-      case "void":
-        return Token.VOID;
-      case "volatile":
-        return Token.VOLATILE;
-      case "while":
-        return Token.WHILE;
-      case "true":
-        return Token.TRUE;
-      case "false":
-        return Token.FALSE;
-      case "null":
-        return Token.NULL;
-      default:
-        return Token.IDENT;
+    int slot = identifiers.lookup(input, readFrom, reader.position());
+    Token token = identifiers.token(slot);
+    if (token == Token.IDENT) {
+      saveValue(identifiers.name(slot));
     }
+    return token;
   }
 
   private TurbineError error(ErrorKind kind, Object... args) {
@@ -28,14 +28,31 @@ public class UnicodeEscapePreprocessor {
 
   private final SourceFile source;
   private final String input;
+  private final int length;
+
+  /**
+   * True if the input may contain Unicode escapes. Almost no sources contain any, and if there are
+   * none then {@link #next} can return the raw input characters without checking for escapes.
+   */
+  private final boolean escapes;
 
   private int idx = 0;
   private char ch;
   private boolean evenLeadingSlashes = true;
 
   public UnicodeEscapePreprocessor(SourceFile source) {
+    this(source, source.source().contains("\\u"));
+  }
+
+  /**
+   * Creates a preprocessor that only processes escapes if {@code escapes} is true, which must be
+   * the case if the input contains any.
+   */
+  UnicodeEscapePreprocessor(SourceFile source, boolean escapes) {
     this.source = source;
     this.input = source.source();
+    this.length = input.length();
+    this.escapes = escapes;
   }
 
   /** Returns the current position in the input. */
@@ -45,12 +62,15 @@ public class UnicodeEscapePreprocessor {
 
   /** Returns true if all input has been read. */
   public boolean done() {
-    return idx >= input.length();
+    return idx >= length;
   }
 
   /** Returns the next unescaped Unicode input character. */
   public char next() {
     eat();
+    if (!escapes) {
+      return ch;
+    }
     if (ch == '\\' && evenLeadingSlashes) {
       unicodeEscape();
     } else {
@@ -59,6 +79,17 @@ public class UnicodeEscapePreprocessor {
     return ch;
   }
 
+  /** Returns the current state of the preprocessor, which can be restored by {@link #reset}. */
+  int mark() {
+    return evenLeadingSlashes ? idx : ~idx;
+  }
+
+  /** Restores a state returned by {@link #mark}. */
+  void reset(int mark) {
+    evenLeadingSlashes = mark >= 0;
+    idx = evenLeadingSlashes ? mark : ~mark;
+  }
+
   /** Returns a substring of the raw (escaped) input. */
   public String readString(int from, int to) {
     return input.substring(from, to);
@@ -130,8 +161,8 @@ public class UnicodeEscapePreprocessor {
    * it terminates the input avoids some bounds checks in the lexer.
    */
   private void eat() {
-    ch = done() ? ASCII_SUB : input.charAt(idx);
-    idx++;
+    int i = idx++;
+    ch = i < length ? input.charAt(i) : ASCII_SUB;
   }
 
   public SourceFile source() {
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.tree;
+
+/**
+ * A javadoc comment, which is stored as a range of its source file.
+ *
+ * <p>Javadoc is only needed if an annotation processor asks for it, so the text of the comment is
+ * only copied out of the source on demand.
+ */
+public final class Javadoc {
+
+  private final String source;
+  private final int start;
+  private final int end;
+
+  /**
+   * Creates a comment from the range of {@code source} between {@code start} (inclusive) and {@code
+   * end} (exclusive), which excludes the opening and closing delimiters.
+   */
+  public Javadoc(String source, int start, int end) {
+    this.source = source;
+    this.start = start;
+    this.end = end;
+  }
+
+  /**
+   * Returns the text of the comment, excluding the opening and closing delimiters but including all
+   * interior characters and whitespace.
+   */
+  public String value() {
+    return source.substring(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return value();
+  }
+}
@@ -27,6 +27,7 @@ import com.google.turbine.model.TurbineConstantTypeKind;
 import com.google.turbine.model.TurbineTyKind;
 import java.util.Optional;
 import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /** An AST node. */
 public abstract class Tree {
@@ -661,7 +662,7 @@ public abstract class Tree {
     private final Tree ty;
     private final Ident name;
     private final Optional<Expression> init;
-    private final String javadoc;
+    private final @Nullable Javadoc javadoc;
 
     public VarDecl(
         int position,
@@ -670,7 +671,7 @@ public abstract class Tree {
         Tree ty,
         Ident name,
         Optional<Expression> init,
-        String javadoc) {
+        @Nullable Javadoc javadoc) {
       super(position);
       this.mods = ImmutableSet.copyOf(mods);
       this.annos = annos;
@@ -714,8 +715,8 @@ public abstract class Tree {
      * A javadoc comment, excluding the opening and closing delimiters but including all interior
      * characters and whitespace.
      */
-    public String javadoc() {
-      return javadoc;
+    public @Nullable String javadoc() {
+      return javadoc != null ? javadoc.value() : null;
     }
   }
 
@@ -729,7 +730,7 @@ public abstract class Tree {
     private final ImmutableList<VarDecl> params;
     private final ImmutableList<ClassTy> exntys;
     private final Optional<Tree> defaultValue;
-    private final String javadoc;
+    private final @Nullable Javadoc javadoc;
 
     public MethDecl(
         int position,
@@ -741,7 +742,7 @@ public abstract class Tree {
         ImmutableList<VarDecl> params,
         ImmutableList<ClassTy> exntys,
         Optional<Tree> defaultValue,
-        String javadoc) {
+        @Nullable Javadoc javadoc) {
       super(position);
       this.mods = ImmutableSet.copyOf(mods);
       this.annos = annos;
@@ -799,8 +800,8 @@ public abstract class Tree {
      * A javadoc comment, excluding the opening and closing delimiters but including all interior
      * characters and whitespace.
      */
-    public String javadoc() {
-      return javadoc;
+    public @Nullable String javadoc() {
+      return javadoc != null ? javadoc.value() : null;
     }
   }
 
@@ -873,7 +874,7 @@ public abstract class Tree {
     private final ImmutableList<ClassTy> impls;
     private final ImmutableList<Tree> members;
     private final TurbineTyKind tykind;
-    private final String javadoc;
+    private final @Nullable Javadoc javadoc;
 
     public TyDecl(
         int position,
@@ -885,7 +886,7 @@ public abstract class Tree {
         ImmutableList<ClassTy> impls,
         ImmutableList<Tree> members,
         TurbineTyKind tykind,
-        String javadoc) {
+        @Nullable Javadoc javadoc) {
       super(position);
       this.mods = ImmutableSet.copyOf(mods);
       this.annos = annos;
@@ -943,8 +944,8 @@ public abstract class Tree {
      * A javadoc comment, excluding the opening and closing delimiters but including all interior
      * characters and whitespace.
      */
-    public String javadoc() {
-      return javadoc;
+    public @Nullable String javadoc() {
+      return javadoc != null ? javadoc.value() : null;
     }
   }
 
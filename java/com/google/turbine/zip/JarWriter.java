@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.zip;
+
+import static com.google.turbine.zip.Zip.CENHDR;
+import static com.google.turbine.zip.Zip.ENDHDR;
+import static com.google.turbine.zip.Zip.LOCHDR;
+import static com.google.turbine.zip.Zip.ZIP64_ENDHDR;
+import static com.google.turbine.zip.Zip.ZIP64_ENDSIG;
+import static com.google.turbine.zip.Zip.ZIP64_LOCHDR;
+import static com.google.turbine.zip.Zip.ZIP64_MAGICCOUNT;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipException;
+
+/**
+ * Writes jar files with uncompressed entries that all have the same modification time.
+ *
+ * <p>The output is the same as for a {@link java.util.jar.JarOutputStream} with {@link
+ * java.util.zip.ZipEntry#STORED} entries, but the headers and central directory are built up front
+ * and written together with the entry data in a single gathering write, instead of copying each
+ * entry through the stream and computing its CRC twice.
+ */
+public class JarWriter {
+
+  static final int LOCSIG = 0x04034b50;
+  static final int CENSIG = 0x02014b50;
+  static final int ENDSIG = 0x06054b50;
+  static final int ZIP64_LOCSIG = 0x07064b50;
+
+  /** The general purpose flag that indicates entry names are UTF-8. */
+  static final int USE_UTF8 = 0x800;
+
+  /** The version needed to extract uncompressed entries. */
+  static final int STORED_VERSION = 10;
+
+  /** The version needed to extract zip64 archives. */
+  static final int ZIP64_VERSION = 45;
+
+  /** The id of the extra field that marks the first entry of a jar file. */
+  static final int JAR_MAGIC = 0xCAFE;
+
+  /** The size of the jar magic extra field, which has an id and an empty payload. */
+  static final int JAR_MAGIC_LENGTH = 4;
+
+  private final int dosTime;
+  private final List<byte[]> names = new ArrayList<>();
+  private final List<byte[]> data = new ArrayList<>();
+  private final Set<String> seen = new HashSet<>();
+
+  /**
+   * Creates a writer for a jar whose entries have the given modification time, in milliseconds
+   * since the epoch.
+   */
+  public JarWriter(long time) {
+    this.dosTime = dosTime(time);
+  }
+
+  /** Adds an entry with the given name and data. */
+  public JarWriter add(String name, byte[] bytes) throws ZipException {
+    if (!seen.add(name)) {
+      throw new ZipException("duplicate entry: " + name);
+    }
+    names.add(name.getBytes(UTF_8));
+    data.add(bytes);
+    return this;
+  }
+
+  /** Writes the jar to the given path. */
+  public void write(Path path) throws IOException {
+    int count = names.size();
+    long localHeadersSize = 0;
+    long centralDirectorySize = 0;
+    long dataSize = 0;
+    for (int i = 0; i < count; i++) {
+      int nameAndExtraLength = names.get(i).length + (i == 0 ? JAR_MAGIC_LENGTH : 0);
+      localHeadersSize += LOCHDR + nameAndExtraLength;
+      centralDirectorySize += CENHDR + nameAndExtraLength;
+      dataSize += data.get(i).length;
+    }
+    boolean zip64 = count >= ZIP64_MAGICCOUNT;
+    long endSize = ENDHDR + (zip64 ? ZIP64_ENDHDR + ZIP64_LOCHDR : 0);
+    if (localHeadersSize + dataSize + centralDirectorySize + endSize >= 0xFFFFFFFFL) {
+      // this would require zip64 extra fields for the offsets, which isn't supported
+      throw new IOException(String.format("%s: output jar is too large", path));
+    }
+    ByteBuffer headers =
+        ByteBuffer.allocate((int) (localHeadersSize + centralDirectorySize + endSize))
+            .order(ByteOrder.LITTLE_ENDIAN);
+
+    // The local header and data of each entry, followed by the central directory and end records.
+    ByteBuffer[] buffers = new ByteBuffer[2 * count + 1];
+    int[] crcs = new int[count];
+    int[] offsets = new int[count];
+    CRC32 crc = new CRC32();
+    int offset = 0;
+    for (int i = 0; i < count; i++) {
+      byte[] name = names.get(i);
+      byte[] bytes = data.get(i);
+      crc.reset();
+      crc.update(bytes, 0, bytes.length);
+      crcs[i] = (int) crc.getValue();
+      offsets[i] = offset;
+      int start = headers.position();
+      headers.putInt(LOCSIG);
+      headers.putShort((short) STORED_VERSION);
+      headers.putShort((short) USE_UTF8);
+      headers.putShort((short) 0); // compression method
+      headers.putInt(dosTime);
+      headers.putInt(crcs[i]);
+      headers.putInt(bytes.length); // compressed size
+      headers.putInt(bytes.length); // uncompressed size
+      headers.putShort((short) name.length);
+      headers.putShort((short) (i == 0 ? JAR_MAGIC_LENGTH : 0));
+      headers.put(name);
+      if (i == 0) {
+        putJarMagic(headers);
+      }
+      buffers[2 * i] = slice(headers, start, headers.position());
+      buffers[2 * i + 1] = ByteBuffer.wrap(bytes);
+      offset += headers.position() - start + bytes.length;
+    }
+
+    int start = headers.position();
+    for (int i = 0; i < count; i++) {
+      byte[] name = names.get(i);
+      int size = data.get(i).length;
+      headers.putInt(CENSIG);
+      headers.putShort((short) STORED_VERSION); // version made by
+      headers.putShort((short) STORED_VERSION); // version needed to extract
+      headers.putShort((short) USE_UTF8);
+      headers.putShort((short) 0); // compression method
+      headers.putInt(dosTime);
+      headers.putInt(crcs[i]);
+      headers.putInt(size); // compressed size
+      headers.putInt(size); // uncompressed size
+      headers.putShort((short) name.length);
+      headers.putShort((short) (i == 0 ? JAR_MAGIC_LENGTH : 0));
+      headers.putShort((short) 0); // comment length
+      headers.putShort((short) 0); // disk number
+      headers.putShort((short) 0); // internal file attributes
+      headers.putInt(0); // external file attributes
+      headers.putInt(offsets[i]);
+      headers.put(name);
+      if (i == 0) {
+        putJarMagic(headers);
+      }
+    }
+    int centralDirectoryOffset = offset;
+    int centralDirectoryLength = headers.position() - start;
+    if (zip64) {
+      int zip64EndOffset = centralDirectoryOffset + centralDirectoryLength;
+      headers.putInt(ZIP64_ENDSIG);
+      headers.putLong(ZIP64_ENDHDR - 12); // size of the rest of the record
+      headers.putShort((short) ZIP64_VERSION); // version made by
+      headers.putShort((short) ZIP64_VERSION); // version needed to extract
+      headers.putInt(0); // disk number
+      headers.putInt(0); // central directory disk number
+      headers.putLong(count); // entries on this disk
+      headers.putLong(count); // total entries
+      headers.putLong(centralDirectoryLength);
+      headers.putLong(centralDirectoryOffset);
+      headers.putInt(ZIP64_LOCSIG);
+      headers.putInt(0); // zip64 end record disk number
+      headers.putLong(zip64EndOffset);
+      headers.putInt(1); // total number of disks
+    }
+    int endCount = zip64 ? ZIP64_MAGICCOUNT : count;
+    headers.putInt(ENDSIG);
+    headers.putShort((short) 0); // disk number
+    headers.putShort((short) 0); // central directory disk number
+    headers.putShort((short) endCount); // entries on this disk
+    headers.putShort((short) endCount); // total entries
+    headers.putInt(centralDirectoryLength);
+    headers.putInt(centralDirectoryOffset);
+    headers.putShort((short) 0); // comment length
+    buffers[2 * count] = slice(headers, start, headers.position());
+
+    try (FileChannel channel =
+        FileChannel.open(
+            path,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING,
+            StandardOpenOption.WRITE)) {
+      int first = 0;
+      while (first < buffers.length) {
+        channel.write(buffers, first, buffers.length - first);
+        while (first < buffers.length && !buffers[first].hasRemaining()) {
+          first++;
+        }
+      }
+    }
+  }
+
+  private static void putJarMagic(ByteBuffer buffer) {
+    buffer.putShort((short) JAR_MAGIC);
+    buffer.putShort((short) 0);
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+    ByteBuffer slice = buffer.duplicate();
+    slice.position(start);
+    slice.limit(end);
+    return slice;
+  }
+
+  /** Converts a time in milliseconds since the epoch to an MS-DOS date and time. */
+  private static int dosTime(long time) {
+    LocalDateTime dateTime =
+        LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.systemDefault());
+    int year = dateTime.getYear() - 1980;
+    if (year < 0 || year > 0x7f) {
+      throw new IllegalArgumentException("unsupported timestamp: " + dateTime);
+    }
+    return year << 25
+        | dateTime.getMonthValue() << 21
+        | dateTime.getDayOfMonth() << 16
+        | dateTime.getHour() << 11
+        | dateTime.getMinute() << 5
+        | dateTime.getSecond() >> 1;
+  }
+}
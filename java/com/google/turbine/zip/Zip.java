@@ -18,9 +18,7 @@ package com.google.turbine.zip;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
-import com.google.common.io.ByteStreams;
 import com.google.common.primitives.UnsignedInts;
-import java.io.ByteArrayInputStream;
 import java.io.Closeable;
 import java.io.IOError;
 import java.io.IOException;
@@ -34,9 +32,10 @@ import java.nio.charset.CharsetDecoder;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Iterator;
+import java.util.zip.DataFormatException;
 import java.util.zip.Inflater;
-import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipException;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * A fast, minimal, and somewhat garbage zip implementation. This exists because graal <a
@@ -66,7 +65,8 @@ import java.util.zip.ZipException;
  *   <li>UTF-8 is the only supported encoding.
  *   <li>STORED and DEFLATE are the only supported compression methods.
  *   <li>zip64 extensible data sectors are not supported.
- *   <li>Zip files larger than Integer.MAX_VALUE bytes are not supported.
+ *   <li>In zip files larger than Integer.MAX_VALUE bytes, entries larger than about 1GB are not
+ *       supported.
  *   <li>The only supported ZIP64 field is ENDTOT. This implementation assumes that the ZIP64 end
  *       header is present only if ENDTOT in EOCD header is 0xFFFF.
  * </ul>
@@ -86,6 +86,7 @@ public class Zip {
   static final int ENDCOM = 20; // zip file comment length
 
   static final int CENHOW = 10; // compression method
+  static final int CENCRC = 16; // uncompressed data CRC-32
   static final int CENLEN = 24; // uncompressed size
   static final int CENSIZ = 20; // compressed size
   static final int CENNAM = 28; // filename length
@@ -102,17 +103,17 @@ public class Zip {
   /** Iterates over a zip archive. */
   static class ZipIterator implements Iterator<Entry> {
 
-    /** A reader for the backing storage. */
-    private final FileChannel chan;
+    /** The backing storage. */
+    private final Mapping file;
 
     private final Path path;
     private int cdindex = 0;
-    private final MappedByteBuffer cd;
+    private final ByteBuffer cd;
     private final CharsetDecoder decoder = UTF_8.newDecoder();
 
-    ZipIterator(Path path, FileChannel chan, MappedByteBuffer cd) {
+    ZipIterator(Path path, Mapping file, ByteBuffer cd) {
       this.path = path;
-      this.chan = chan;
+      this.file = file;
       this.cd = cd;
     }
 
@@ -129,7 +130,7 @@ public class Zip {
       int nameLength = cd.getChar(cdindex + CENNAM);
       int extLength = cd.getChar(cdindex + CENEXT);
       int commentLength = cd.getChar(cdindex + CENCOM);
-      Entry entry = new Entry(path, chan, string(cd, cdindex + CENHDR, nameLength), cd, cdindex);
+      Entry entry = new Entry(path, file, string(cd, cdindex + CENHDR, nameLength), cd, cdindex);
       cdindex += CENHDR + nameLength + extLength + commentLength;
       return entry;
     }
@@ -147,35 +148,40 @@ public class Zip {
     }
   }
 
-  /** Provides an {@link Iterable} of {@link Entry} over a zip archive. */
+  /**
+   * Provides an {@link Iterable} of {@link Entry} over a zip archive.
+   *
+   * <p>The archive is mapped into memory once, and its file channel is closed as soon as it has
+   * been mapped, so no file descriptors are retained. The central directory and the entries' data
+   * are read from slices of the mapping.
+   */
   public static class ZipIterable implements Iterable<Entry>, Closeable {
 
     private final Path path;
-    private final FileChannel chan;
-    private final MappedByteBuffer cd;
+    private final Mapping file;
+    private final ByteBuffer cd;
 
     public ZipIterable(Path path) throws IOException {
       this.path = path;
-      this.chan = FileChannel.open(path, StandardOpenOption.READ);
+      try (FileChannel chan = FileChannel.open(path, StandardOpenOption.READ)) {
+        this.file = Mapping.map(path, chan);
+      }
       // Locate the EOCD
-      long size = chan.size();
+      long size = file.size();
       if (size < ENDHDR) {
         throw new ZipException("invalid zip archive");
       }
       long eocdOffset = size - ENDHDR;
-      MappedByteBuffer eocd = chan.map(MapMode.READ_ONLY, eocdOffset, ENDHDR);
-      eocd.order(ByteOrder.LITTLE_ENDIAN);
+      ByteBuffer eocd = file.slice(eocdOffset, ENDHDR);
       int index = 0;
       int commentSize = 0;
       if (!isSignature(eocd, 0, 5, 6)) {
         // The archive may contain a zip file comment; keep looking for the EOCD.
         long start = Math.max(0, size - ENDHDR - 0xFFFF);
-        eocd = chan.map(MapMode.READ_ONLY, start, (size - start));
-        eocd.order(ByteOrder.LITTLE_ENDIAN);
+        eocd = file.slice(start, size - start);
         index = (int) ((size - start) - ENDHDR);
         while (index > 0) {
           index--;
-          eocd.position(index);
           if (isSignature(eocd, index, 5, 6)) {
             commentSize = (int) ((size - start) - ENDHDR) - index;
             eocdOffset = start + index;
@@ -196,8 +202,7 @@ public class Zip {
       if (totalEntries == ZIP64_MAGICCOUNT) {
         // Assume the zip64 EOCD has the usual size; we don't support zip64 extensible data sectors.
         long zip64eocdOffset = size - ENDHDR - ZIP64_LOCHDR - ZIP64_ENDHDR;
-        MappedByteBuffer zip64eocd = chan.map(MapMode.READ_ONLY, zip64eocdOffset, ZIP64_ENDHDR);
-        zip64eocd.order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer zip64eocd = file.slice(zip64eocdOffset, ZIP64_ENDHDR);
         // Note that zip reading is necessarily best-effort, since an archive could contain 0xFFFF
         // entries and the last entry's data could contain a ZIP64_ENDSIG. Some implementations
         // read the full EOCD records and compare them.
@@ -206,18 +211,215 @@ public class Zip {
           eocdOffset = zip64eocdOffset;
         }
       }
-      this.cd = chan.map(MapMode.READ_ONLY, eocdOffset - cdsize, cdsize);
-      cd.order(ByteOrder.LITTLE_ENDIAN);
+      this.cd = file.slice(eocdOffset - cdsize, cdsize);
     }
 
     @Override
     public Iterator<Entry> iterator() {
-      return new ZipIterator(path, chan, cd);
+      return new ZipIterator(path, file, cd);
+    }
+
+    /** Returns an {@link Index} of the entries in the archive by name. */
+    public Index index() {
+      return new Index(path, file, cd);
     }
 
+    /**
+     * Does nothing: the archive's file channel was already closed, and the mapping is released when
+     * it is garbage collected, since entries that were read from the archive may still refer to it.
+     */
     @Override
-    public void close() throws IOException {
-      chan.close();
+    public void close() {}
+  }
+
+  /**
+   * A read-only mapping of a whole zip archive.
+   *
+   * <p>A single buffer can map at most {@link Integer#MAX_VALUE} bytes, so larger archives are
+   * mapped in overlapping windows that start every {@link #WINDOW_STRIDE} bytes. A region that
+   * starts in a window and is no longer than {@code Integer.MAX_VALUE - WINDOW_STRIDE} bytes is
+   * always contained in that window.
+   */
+  static class Mapping {
+
+    /** The distance between the starts of consecutive windows. */
+    static final long WINDOW_STRIDE = 1L << 30;
+
+    private final Path path;
+    private final long size;
+    private final MappedByteBuffer[] windows;
+
+    private Mapping(Path path, long size, MappedByteBuffer[] windows) {
+      this.path = path;
+      this.size = size;
+      this.windows = windows;
+    }
+
+    static Mapping map(Path path, FileChannel chan) throws IOException {
+      long size = chan.size();
+      int count = 1;
+      while ((count - 1) * WINDOW_STRIDE + Integer.MAX_VALUE < size) {
+        count++;
+      }
+      MappedByteBuffer[] windows = new MappedByteBuffer[count];
+      for (int i = 0; i < count; i++) {
+        long start = i * WINDOW_STRIDE;
+        windows[i] =
+            chan.map(MapMode.READ_ONLY, start, Math.min(Integer.MAX_VALUE, size - start));
+      }
+      return new Mapping(path, size, windows);
+    }
+
+    /** The size of the archive in bytes. */
+    long size() {
+      return size;
+    }
+
+    /**
+     * Returns a little-endian buffer containing {@code length} bytes of the archive, starting at
+     * {@code offset}.
+     */
+    ByteBuffer slice(long offset, long length) throws ZipException {
+      if (offset < 0 || length < 0 || offset + length > size) {
+        throw new ZipException(
+            String.format(
+                "%s: invalid region at offset %d of length %d in archive of size %d",
+                path, offset, length, size));
+      }
+      int window = (int) Math.min(offset / WINDOW_STRIDE, windows.length - 1);
+      long start = offset - window * WINDOW_STRIDE;
+      if (start + length > windows[window].capacity()) {
+        throw new ZipException(
+            String.format("%s: unsupported region of length %d in large archive", path, length));
+      }
+      ByteBuffer result = windows[window].duplicate();
+      result.position((int) start);
+      result.limit((int) (start + length));
+      return result.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+  }
+
+  /**
+   * An index of the entries in a zip archive by name, which supports lookups without decoding the
+   * names of the other entries.
+   *
+   * <p>The index is an open-addressing hash table of offsets into the mapped central directory,
+   * keyed on the UTF-8 bytes of the entry names, so there are no per-entry objects. If the archive
+   * contains duplicate entries, the last one wins.
+   */
+  public static class Index {
+
+    private final Path path;
+    private final Mapping file;
+    private final ByteBuffer cd;
+
+    /** The central directory offset of the entry in each slot plus one, or 0 for empty slots. */
+    private final int[] offsets;
+
+    /** The hash of the name of the entry in each slot. */
+    private final int[] hashes;
+
+    private final int size;
+
+    Index(Path path, Mapping file, ByteBuffer cd) {
+      this.path = path;
+      this.file = file;
+      this.cd = cd;
+      int entries = 0;
+      for (int cdindex = 0; cdindex < cd.limit(); cdindex = nextEntry(cdindex)) {
+        checkSignature(path, cd, cdindex, 1, 2, "CENSIG");
+        entries++;
+      }
+      // keep the load factor below 0.5
+      int capacity = Integer.highestOneBit(Math.max(entries, 1)) << 2;
+      this.offsets = new int[capacity];
+      this.hashes = new int[capacity];
+      int size = 0;
+      for (int cdindex = 0; cdindex < cd.limit(); cdindex = nextEntry(cdindex)) {
+        int nameOffset = cdindex + CENHDR;
+        int nameLength = cd.getChar(cdindex + CENNAM);
+        int hash = hash(nameOffset, nameLength);
+        int slot = hash & (capacity - 1);
+        while (offsets[slot] != 0
+            && !(hashes[slot] == hash && nameEquals(offsets[slot] - 1, nameOffset, nameLength))) {
+          slot = (slot + 1) & (capacity - 1);
+        }
+        if (offsets[slot] == 0) {
+          size++;
+        }
+        offsets[slot] = cdindex + 1;
+        hashes[slot] = hash;
+      }
+      this.size = size;
+    }
+
+    /** The number of distinct entry names in the archive. */
+    public int size() {
+      return size;
+    }
+
+    /** Returns the entry with the given name, or {@code null} if there is no such entry. */
+    public @Nullable Entry entry(String name) {
+      byte[] bytes = name.getBytes(UTF_8);
+      int hash = hash(bytes);
+      int slot = hash & (offsets.length - 1);
+      while (offsets[slot] != 0) {
+        int cdindex = offsets[slot] - 1;
+        if (hashes[slot] == hash && nameEquals(cdindex, bytes)) {
+          return new Entry(path, file, name, cd, cdindex);
+        }
+        slot = (slot + 1) & (offsets.length - 1);
+      }
+      return null;
+    }
+
+    private int nextEntry(int cdindex) {
+      return cdindex
+          + CENHDR
+          + cd.getChar(cdindex + CENNAM)
+          + cd.getChar(cdindex + CENEXT)
+          + cd.getChar(cdindex + CENCOM);
+    }
+
+    private int hash(int offset, int length) {
+      int hash = 0;
+      for (int i = 0; i < length; i++) {
+        hash = 31 * hash + cd.get(offset + i);
+      }
+      return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(byte[] bytes) {
+      int hash = 0;
+      for (byte b : bytes) {
+        hash = 31 * hash + b;
+      }
+      return hash ^ (hash >>> 16);
+    }
+
+    /** Returns true if the name of the entry at {@code cdindex} is equal to the given name. */
+    private boolean nameEquals(int cdindex, int nameOffset, int nameLength) {
+      if (cd.getChar(cdindex + CENNAM) != nameLength) {
+        return false;
+      }
+      for (int i = 0; i < nameLength; i++) {
+        if (cd.get(cdindex + CENHDR + i) != cd.get(nameOffset + i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private boolean nameEquals(int cdindex, byte[] name) {
+      if (cd.getChar(cdindex + CENNAM) != name.length) {
+        return false;
+      }
+      for (int i = 0; i < name.length; i++) {
+        if (cd.get(cdindex + CENHDR + i) != name[i]) {
+          return false;
+        }
+      }
+      return true;
     }
   }
 
@@ -225,14 +427,14 @@ public class Zip {
   public static class Entry {
 
     private final Path path;
-    private final FileChannel chan;
+    private final Mapping file;
     private final String name;
     private final ByteBuffer cd;
     private final int cdindex;
 
-    public Entry(Path path, FileChannel chan, String name, ByteBuffer cd, int cdindex) {
+    Entry(Path path, Mapping file, String name, ByteBuffer cd, int cdindex) {
       this.path = path;
-      this.chan = chan;
+      this.file = file;
       this.name = name;
       this.cd = cd;
       this.cdindex = cdindex;
@@ -243,84 +445,118 @@ public class Zip {
       return name;
     }
 
+    /** The CRC-32 of the uncompressed entry data, as recorded in the central directory. */
+    public int crc() {
+      return cd.getInt(cdindex + CENCRC);
+    }
+
     /** The entry data. */
     public byte[] data() {
-      // Read the offset and variable lengths from the central directory and then try to map in the
-      // data section in one shot.
+      // Read the offset and variable lengths from the central directory, and then find the data
+      // section after the local header.
       long offset = UnsignedInts.toLong(cd.getInt(cdindex + CENOFF));
       int nameLength = cd.getChar(cdindex + CENNAM);
-      int extLength = cd.getChar(cdindex + CENEXT);
       int compression = cd.getChar(cdindex + CENHOW);
-      switch (compression) {
-        case 0x8:
-          return getBytes(
-              offset,
-              nameLength,
-              extLength,
-              UnsignedInts.toLong(cd.getInt(cdindex + CENSIZ)),
-              /*deflate=*/ true);
-        case 0x0:
-          return getBytes(
-              offset,
-              nameLength,
-              extLength,
-              UnsignedInts.toLong(cd.getInt(cdindex + CENLEN)),
-              /*deflate=*/ false);
-        default:
-          throw new AssertionError(
-              String.format("unsupported compression mode: 0x%x", compression));
+      long compressedSize = UnsignedInts.toLong(cd.getInt(cdindex + CENSIZ));
+      long size = UnsignedInts.toLong(cd.getInt(cdindex + CENLEN));
+      if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("unsupported zip entry size: " + size);
+      }
+      try {
+        ByteBuffer header = file.slice(offset, LOCHDR);
+        checkSignature(path, header, /* index= */ 0, 3, 4, "LOCSIG");
+        // The local header's extra field may be different from the central directory's.
+        long dataOffset = offset + LOCHDR + nameLength + header.getChar(LOCEXT);
+        switch (compression) {
+          case 0x8:
+            return inflate(file.slice(dataOffset, compressedSize), (int) size);
+          case 0x0:
+            {
+              byte[] bytes = new byte[(int) size];
+              file.slice(dataOffset, size).get(bytes);
+              return bytes;
+            }
+          default:
+            throw new AssertionError(
+                String.format("unsupported compression mode: 0x%x", compression));
+        }
+      } catch (ZipException e) {
+        throw new IOError(e);
       }
     }
 
     /**
-     * Number of extra bytes to read for each file, to avoid re-mapping the data if the local header
-     * reports more extra field data than the central directory.
+     * Inflates the compressed data in {@code input} into an array of the uncompressed size recorded
+     * in the central directory.
+     *
+     * <p>{@link Inflater} doesn't accept {@link ByteBuffer} input before JDK 11, so the compressed
+     * data is copied from the mapping into a per-thread buffer, and inflated from there directly
+     * into the result.
      */
-    static final int EXTRA_FIELD_SLACK = 128;
-
-    private byte[] getBytes(
-        long offset, int nameLength, int cenExtLength, long size, boolean deflate) {
-      if (size > Integer.MAX_VALUE) {
-        throw new IllegalArgumentException("unsupported zip entry size: " + size);
-      }
+    private byte[] inflate(ByteBuffer input, int size) throws ZipException {
+      InflaterState state = INFLATER_STATE.get();
+      int compressedSize = input.remaining();
+      byte[] compressed = state.buffer(compressedSize);
+      input.get(compressed, 0, compressedSize);
+      Inflater inflater = state.inflater;
+      inflater.reset();
+      inflater.setInput(compressed, 0, compressedSize);
+      byte[] bytes = new byte[size];
       try {
-        MappedByteBuffer fc =
-            chan.map(
-                MapMode.READ_ONLY,
-                offset,
-                Math.min(
-                    LOCHDR + nameLength + cenExtLength + size + EXTRA_FIELD_SLACK,
-                    chan.size() - offset));
-        fc.order(ByteOrder.LITTLE_ENDIAN);
-        checkSignature(path, fc, /* index= */ 0, 3, 4, "LOCSIG");
-        int locExtLength = fc.getChar(LOCEXT);
-        if (locExtLength > cenExtLength + EXTRA_FIELD_SLACK) {
-          // If the local header's extra fields don't match the central directory and we didn't
-          // leave enough slac, re-map the data section with the correct extra field length.
-          fc = chan.map(MapMode.READ_ONLY, offset + LOCHDR + nameLength + locExtLength, size);
-          fc.order(ByteOrder.LITTLE_ENDIAN);
-        } else {
-          // Otherwise seek past the local header, name, and extra fields to the data.
-          fc.position(LOCHDR + nameLength + locExtLength);
-          fc.limit((int) (LOCHDR + nameLength + locExtLength + size));
+        int n = 0;
+        while (n < size) {
+          int count = inflater.inflate(bytes, n, size - n);
+          if (count == 0 && (inflater.finished() || inflater.needsInput())) {
+            break;
+          }
+          n += count;
         }
-        byte[] bytes = new byte[(int) size];
-        fc.get(bytes);
-        if (deflate) {
-          bytes =
-              ByteStreams.toByteArray(
-                  new InflaterInputStream(
-                      new ByteArrayInputStream(bytes), new Inflater(/*nowrap=*/ true)));
+        if (n != size || (!inflater.finished() && inflater.inflate(state.extra) > 0)) {
+          throw new ZipException(
+              String.format(
+                  "%s: %s: uncompressed size didn't match the central directory, expected %d",
+                  path, name, size));
         }
-        return bytes;
-      } catch (IOException e) {
-        throw new IOError(e);
+      } catch (DataFormatException e) {
+        throw new ZipException(String.format("%s: %s: %s", path, name, e.getMessage()));
+      }
+      return bytes;
+    }
+  }
+
+  /**
+   * An {@link Inflater} and a buffer for compressed data that are re-used for every entry read on
+   * the same thread. There is one per thread, so the inflaters' native memory is bounded and they
+   * are never {@link Inflater#end}ed, instead of allocating an inflater per entry and waiting for
+   * it to be finalized.
+   */
+  private static class InflaterState {
+    final Inflater inflater = new Inflater(/*nowrap=*/ true);
+
+    /** Receives any output beyond the expected uncompressed size. */
+    final byte[] extra = new byte[1];
+
+    /** The largest buffer that is retained between entries. */
+    static final int MAX_BUFFER_SIZE = 1 << 20;
+
+    private byte[] buffer = new byte[8192];
+
+    /** Returns a buffer with room for at least {@code size} bytes. */
+    byte[] buffer(int size) {
+      if (buffer.length < size) {
+        if (size > MAX_BUFFER_SIZE) {
+          return new byte[size];
+        }
+        buffer = new byte[Math.max(size, Math.min(buffer.length * 2, MAX_BUFFER_SIZE))];
       }
+      return buffer;
     }
   }
 
-  static void checkSignature(
-      Path path, MappedByteBuffer buf, int index, int i, int j, String name) {
+  private static final ThreadLocal<InflaterState> INFLATER_STATE =
+      ThreadLocal.withInitial(InflaterState::new);
+
+  static void checkSignature(Path path, ByteBuffer buf, int index, int i, int j, String name) {
     if (!isSignature(buf, index, i, j)) {
       throw new AssertionError(
           String.format(
@@ -329,7 +565,7 @@ public class Zip {
     }
   }
 
-  static boolean isSignature(MappedByteBuffer buf, int index, int i, int j) {
+  static boolean isSignature(ByteBuffer buf, int index, int i, int j) {
     return (buf.get(index) == 'P')
         && (buf.get(index + 1) == 'K')
         && (buf.get(index + 2) == i)
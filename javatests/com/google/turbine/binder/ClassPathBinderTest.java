@@ -178,4 +178,148 @@ public class ClassPathBinderTest {
     assertThat(new String(classPath.resource("foo/bar/hello.txt").get(), UTF_8)).isEqualTo("hello");
     assertThat(classPath.resource("foo/bar/Baz.class")).isNull();
   }
+
+  @Test
+  public void lazyPackages() throws Exception {
+    Path liba = temporaryFolder.newFile("liba.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(liba))) {
+      jos.putNextEntry(new JarEntry("java/util/ArrayList.class"));
+      jos.write(
+          ByteStreams.toByteArray(
+              getClass().getClassLoader().getResourceAsStream("java/util/ArrayList.class")));
+      // malformed class files are not read until they are used
+      jos.putNextEntry(new JarEntry("p/Broken.class"));
+      jos.write("hello".getBytes(UTF_8));
+    }
+    Path libb = temporaryFolder.newFile("libb.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(libb))) {
+      jos.putNextEntry(new JarEntry("java/util/ArrayList.class"));
+      jos.write("goodbye".getBytes(UTF_8));
+      jos.putNextEntry(new JarEntry("java/util/HashMap.class"));
+      jos.write(
+          ByteStreams.toByteArray(
+              getClass().getClassLoader().getResourceAsStream("java/util/HashMap.class")));
+      jos.putNextEntry(new JarEntry(ClassPathBinder.TRANSITIVE_PREFIX + "java/util/HashMap.class"));
+      jos.write("goodbye".getBytes(UTF_8));
+      jos.putNextEntry(new JarEntry(ClassPathBinder.TRANSITIVE_PREFIX + "java/util/List.class"));
+      jos.write(
+          ByteStreams.toByteArray(
+              getClass().getClassLoader().getResourceAsStream("java/util/List.class")));
+    }
+
+    ClassPath classPath = ClassPathBinder.bindClasspath(ImmutableList.of(liba, libb));
+
+    // the first definition of a class wins, and transitive classes are only used as a fallback
+    assertThat(classPath.env().get(new ClassSymbol("java/util/ArrayList")).superclass())
+        .isEqualTo(new ClassSymbol("java/util/AbstractList"));
+    assertThat(classPath.env().get(new ClassSymbol("java/util/HashMap")).superclass())
+        .isEqualTo(new ClassSymbol("java/util/AbstractMap"));
+    assertThat(classPath.env().get(new ClassSymbol("java/util/List")).kind())
+        .isEqualTo(TurbineTyKind.INTERFACE);
+    assertThat(classPath.env().get(new ClassSymbol("java/util/NoSuch"))).isNull();
+    assertThat(classPath.env().get(new ClassSymbol("q/NoSuch"))).isNull();
+
+    assertThat(classPath.index().lookupPackage(ImmutableList.of("java", "util")).classes())
+        .containsExactly(
+            new ClassSymbol("java/util/ArrayList"),
+            new ClassSymbol("java/util/HashMap"),
+            new ClassSymbol("java/util/List"));
+    assertThat(classPath.index().lookupPackage(ImmutableList.of("java")).classes()).isEmpty();
+    assertThat(classPath.index().lookupPackage(ImmutableList.of("java", "lang"))).isNull();
+
+    LookupResult result =
+        classPath
+            .index()
+            .scope()
+            .lookup(
+                new LookupKey(
+                    ImmutableList.of(
+                        new Ident(-1, "java"),
+                        new Ident(-1, "util"),
+                        new Ident(-1, "HashMap"),
+                        new Ident(-1, "Entry"))));
+    assertThat(result.sym()).isEqualTo(new ClassSymbol("java/util/HashMap"));
+    assertThat(getOnlyElement(result.remaining()).value()).isEqualTo("Entry");
+    LookupKey noSuch =
+        new LookupKey(ImmutableList.of(new Ident(-1, "java"), new Ident(-1, "NoSuch")));
+    assertThat(classPath.index().scope().lookup(noSuch)).isNull();
+
+    BytecodeBoundClass broken = classPath.env().get(new ClassSymbol("p/Broken"));
+    assertThat(broken).isNotNull();
+    try {
+      broken.superclass();
+      fail();
+    } catch (AssertionError e) {
+      assertThat(e).hasMessageThat().contains("bad magic");
+    }
+  }
+
+  @Test
+  public void cachedClasspath() throws Exception {
+    Path lib = temporaryFolder.newFile("lib.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(lib))) {
+      jos.putNextEntry(new JarEntry("foo/bar/hello.txt"));
+      jos.write("hello".getBytes(UTF_8));
+      jos.putNextEntry(new JarEntry("java/util/ArrayList.class"));
+      jos.write(
+          ByteStreams.toByteArray(
+              getClass().getClassLoader().getResourceAsStream("java/util/ArrayList.class")));
+    }
+    ClassPathCache cache = ClassPathCache.create(/* maxBytes= */ 1 << 20);
+
+    ClassPath first = ClassPathBinder.bindClasspath(ImmutableList.of(lib), cache);
+    ClassPath second = ClassPathBinder.bindClasspath(ImmutableList.of(lib), cache);
+    ClassSymbol sym = new ClassSymbol("java/util/ArrayList");
+    assertThat(first.env().get(sym)).isSameInstanceAs(second.env().get(sym));
+    assertThat(second.env().get(sym).superclass())
+        .isEqualTo(new ClassSymbol("java/util/AbstractList"));
+    assertThat(new String(second.resource("foo/bar/hello.txt").get(), UTF_8)).isEqualTo("hello");
+    assertThat(cache.stats().hitCount()).isEqualTo(1);
+
+    // the jar is re-bound if it changes
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(lib))) {
+      jos.putNextEntry(new JarEntry("foo/bar/hello.txt"));
+      jos.write("goodbye".getBytes(UTF_8));
+    }
+    ClassPath third = ClassPathBinder.bindClasspath(ImmutableList.of(lib), cache);
+    assertThat(third.env().get(sym)).isNull();
+    assertThat(new String(third.resource("foo/bar/hello.txt").get(), UTF_8)).isEqualTo("goodbye");
+  }
+
+  @Test
+  public void cachedClasspathPrecedence() throws Exception {
+    Path liba = temporaryFolder.newFile("liba.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(liba))) {
+      jos.putNextEntry(new JarEntry("hello.txt"));
+      jos.write("a".getBytes(UTF_8));
+    }
+    Path libb = temporaryFolder.newFile("libb.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(libb))) {
+      jos.putNextEntry(new JarEntry("hello.txt"));
+      jos.write("b".getBytes(UTF_8));
+    }
+    ClassPathCache cache = ClassPathCache.create(/* maxBytes= */ 1 << 20);
+
+    // later definitions of resources take precedence, as they do for uncached classpaths
+    ClassPath classPath = ClassPathBinder.bindClasspath(ImmutableList.of(liba, libb));
+    assertThat(new String(classPath.resource("hello.txt").get(), UTF_8)).isEqualTo("b");
+    classPath = ClassPathBinder.bindClasspath(ImmutableList.of(liba, libb), cache);
+    assertThat(new String(classPath.resource("hello.txt").get(), UTF_8)).isEqualTo("b");
+  }
+
+  @Test
+  public void cachedPlatformClassPath() throws Exception {
+    ClassPathCache cache = ClassPathCache.create(/* maxBytes= */ 0);
+    int[] loads = {0};
+    ClassPathCache.PlatformClassPathLoader loader =
+        () -> {
+          loads[0]++;
+          return TURBINE_BOOTCLASSPATH;
+        };
+    ClassPath first = cache.platformClassPath("--release 8", loader);
+    ClassPath second = cache.platformClassPath("--release 8", loader);
+    assertThat(first).isSameInstanceAs(TURBINE_BOOTCLASSPATH);
+    assertThat(second).isSameInstanceAs(TURBINE_BOOTCLASSPATH);
+    assertThat(loads[0]).isEqualTo(1);
+  }
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.binder;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.turbine.testing.TestClassPaths.TURBINE_BOOTCLASSPATH;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.turbine.binder.CompUnitPreprocessor.PreprocessedCompUnit;
+import com.google.turbine.binder.bound.SourceTypeBoundClass;
+import com.google.turbine.binder.bytecode.BytecodeBoundClass;
+import com.google.turbine.binder.env.Env;
+import com.google.turbine.binder.lookup.CompoundTopLevelIndex;
+import com.google.turbine.binder.lookup.SimpleTopLevelIndex;
+import com.google.turbine.binder.lookup.TopLevelIndex;
+import com.google.turbine.binder.sym.ClassSymbol;
+import com.google.turbine.diag.Profiler;
+import com.google.turbine.parse.Parser;
+import com.google.turbine.tree.Tree;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ClassPathPrefetcherTest {
+
+  private static final ImmutableList<Tree.CompUnit> UNITS =
+      ImmutableList.of(
+          Parser.parse(
+              Joiner.on('\n')
+                  .join(
+                      "package p;",
+                      "import java.util.ArrayList;",
+                      "import static java.util.Collections.emptyList;",
+                      "import java.io.*;",
+                      "class A extends Thread implements java.io.Serializable, B {",
+                      "  ArrayList<String> xs;",
+                      "}",
+                      "interface B extends Runnable {}")));
+
+  @Test
+  public void candidates() {
+    ImmutableList<PreprocessedCompUnit> units = CompUnitPreprocessor.preprocess(UNITS);
+    assertThat(ClassPathPrefetcher.candidates(units, tli(units)))
+        .containsExactly(
+            new ClassSymbol("java/util/ArrayList"),
+            new ClassSymbol("java/util/Collections"),
+            new ClassSymbol("java/lang/Thread"),
+            new ClassSymbol("java/io/Serializable"),
+            new ClassSymbol("p/B"),
+            new ClassSymbol("java/lang/Runnable"));
+  }
+
+  @Test
+  public void prefetchSupertypes() throws Exception {
+    ImmutableSet<ClassSymbol> expected =
+        ImmutableSet.of(
+            new ClassSymbol("java/util/ArrayList"),
+            new ClassSymbol("java/util/AbstractList"),
+            new ClassSymbol("java/util/AbstractCollection"),
+            new ClassSymbol("java/util/List"),
+            new ClassSymbol("java/util/Collection"),
+            new ClassSymbol("java/lang/Iterable"),
+            new ClassSymbol("java/lang/Object"));
+    Set<ClassSymbol> requested = ConcurrentHashMap.newKeySet();
+    CountDownLatch latch = new CountDownLatch(expected.size());
+    Env<ClassSymbol, BytecodeBoundClass> env =
+        new Env<ClassSymbol, BytecodeBoundClass>() {
+          @Override
+          public BytecodeBoundClass get(ClassSymbol sym) {
+            if (requested.add(sym) && expected.contains(sym)) {
+              latch.countDown();
+            }
+            return TURBINE_BOOTCLASSPATH.env().get(sym);
+          }
+        };
+    ImmutableList<PreprocessedCompUnit> units = CompUnitPreprocessor.preprocess(UNITS);
+    try (ClassPathPrefetcher unused =
+        ClassPathPrefetcher.start(/* parallelism= */ 2, units, tli(units), env)) {
+      assertThat(latch.await(1, TimeUnit.MINUTES)).isTrue();
+    }
+    assertThat(requested).containsAtLeastElementsIn(expected);
+  }
+
+  @Test
+  public void sameResult() throws Exception {
+    ImmutableMap<ClassSymbol, SourceTypeBoundClass> serial = bind(/* parallelism= */ 1);
+    ImmutableMap<ClassSymbol, SourceTypeBoundClass> parallel = bind(/* parallelism= */ 4);
+    assertThat(parallel.keySet()).containsExactlyElementsIn(serial.keySet());
+    for (ClassSymbol sym : serial.keySet()) {
+      assertThat(parallel.get(sym).superClassType()).isEqualTo(serial.get(sym).superClassType());
+      assertThat(parallel.get(sym).interfaceTypes()).isEqualTo(serial.get(sym).interfaceTypes());
+      assertThat(parallel.get(sym).fields().size()).isEqualTo(serial.get(sym).fields().size());
+      for (int i = 0; i < serial.get(sym).fields().size(); i++) {
+        assertThat(parallel.get(sym).fields().get(i).type())
+            .isEqualTo(serial.get(sym).fields().get(i).type());
+      }
+    }
+  }
+
+  private static ImmutableMap<ClassSymbol, SourceTypeBoundClass> bind(int parallelism)
+      throws IOException {
+    return Binder.bind(
+            UNITS,
+            ClassPathBinder.bindClasspath(ImmutableList.of()),
+            Processing.ProcessorInfo.empty(),
+            TURBINE_BOOTCLASSPATH,
+            /* moduleVersion= */ Optional.empty(),
+            Profiler.NONE,
+            parallelism)
+        .units();
+  }
+
+  private static TopLevelIndex tli(ImmutableList<PreprocessedCompUnit> units) {
+    return CompoundTopLevelIndex.of(
+        SimpleTopLevelIndex.of(Binder.bindSourceBoundClasses(units).asMap().keySet()),
+        TURBINE_BOOTCLASSPATH.index());
+  }
+}
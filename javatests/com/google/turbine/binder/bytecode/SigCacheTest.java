@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.binder.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.cache.CacheStats;
+import com.google.turbine.binder.sym.ClassSymbol;
+import com.google.turbine.binder.sym.TyVarSymbol;
+import com.google.turbine.bytecode.sig.Sig.TySig;
+import com.google.turbine.type.Type;
+import java.util.function.Function;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class SigCacheTest {
+
+  private static final Function<String, TyVarSymbol> NO_TY_VARS =
+      x -> {
+        throw new IllegalStateException(x);
+      };
+
+  @Test
+  public void sigs() {
+    CacheStats before = SigCache.stats();
+    String signature = "<T:Ljava/lang/Object;>(TT;Ljava/util/List<-TT;>;)V^Ljava/io/IOException;";
+    assertThat(SigCache.methodSig(signature)).isSameInstanceAs(SigCache.methodSig(signature));
+    assertThat(SigCache.typeSig("Ljava/lang/String;"))
+        .isSameInstanceAs(SigCache.typeSig("Ljava/lang/String;"));
+    assertThat(SigCache.classSig("Ljava/lang/Object;Ljava/io/Serializable;"))
+        .isSameInstanceAs(SigCache.classSig("Ljava/lang/Object;Ljava/io/Serializable;"));
+    CacheStats stats = SigCache.stats().minus(before);
+    assertThat(stats.hitCount()).isAtLeast(3);
+  }
+
+  @Test
+  public void sharedType() {
+    TySig sig = SigCache.typeSig("Ljava/util/Map<Ljava/lang/String;[Ljava/lang/Integer;>;");
+    Type type = SigCache.bindTy(sig, NO_TY_VARS);
+    assertThat(((Type.ClassTy) type).sym()).isEqualTo(new ClassSymbol("java/util/Map"));
+    assertThat(SigCache.bindTy(sig, NO_TY_VARS)).isSameInstanceAs(type);
+  }
+
+  @Test
+  public void tyVarsAreNotShared() {
+    TySig sig = SigCache.typeSig("Ljava/util/List<+TT;>;");
+    ClassSymbol owner = new ClassSymbol("p/A");
+    ClassSymbol other = new ClassSymbol("p/B");
+    Type.ClassTy a = (Type.ClassTy) SigCache.bindTy(sig, x -> new TyVarSymbol(owner, x));
+    Type.ClassTy b = (Type.ClassTy) SigCache.bindTy(sig, x -> new TyVarSymbol(other, x));
+    assertThat(a).isNotEqualTo(b);
+    Type.WildUpperBoundedTy wild = (Type.WildUpperBoundedTy) a.classes().get(0).targs().get(0);
+    assertThat(((Type.TyVar) wild.bound()).sym()).isEqualTo(new TyVarSymbol(owner, "T"));
+  }
+}
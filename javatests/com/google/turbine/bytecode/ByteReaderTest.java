@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ByteReaderTest {
+
+  @Test
+  public void sequential() {
+    ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    output.writeByte(0xfe);
+    output.writeShort(0xcafe);
+    output.writeInt(0xcafebabe);
+    output.writeByte(42);
+    ByteReader reader = new ByteReader(output.toByteArray(), 0);
+    assertThat(reader.u1()).isEqualTo(0xfe);
+    assertThat(reader.u2()).isEqualTo(0xcafe);
+    assertThat(reader.u4()).isEqualTo(0xcafebabe);
+    assertThat(reader.pos()).isEqualTo(7);
+    reader.skip(1);
+    assertThat(reader.pos()).isEqualTo(8);
+    try {
+      reader.skip(1);
+      fail();
+    } catch (IndexOutOfBoundsException expected) {
+    }
+  }
+
+  @Test
+  public void positioned() {
+    ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    output.writeByte(0);
+    output.writeLong(0x0123456789abcdefL);
+    output.writeLong(-1L);
+    ByteReader reader = new ByteReader(output.toByteArray(), 0);
+    assertThat(reader.u1(1)).isEqualTo(0x01);
+    assertThat(reader.u2(1)).isEqualTo(0x0123);
+    assertThat(reader.u4(1)).isEqualTo(0x01234567);
+    assertThat(reader.u8(1)).isEqualTo(0x0123456789abcdefL);
+    assertThat(reader.u8(9)).isEqualTo(-1L);
+    // positioned reads don't move the cursor
+    assertThat(reader.pos()).isEqualTo(0);
+  }
+
+  @Test
+  public void utf8() {
+    for (String string :
+        new String[] {
+          "",
+          "hello",
+          "java/lang/Object",
+          "\0",
+          "\u00e9",
+          "\u0800",
+          "\uffff",
+          "\u2603",
+          "\ud83d\ude00",
+          "a\0b\u2603c",
+        }) {
+      ByteArrayDataOutput output = ByteStreams.newDataOutput();
+      output.writeByte(42);
+      output.writeUTF(string);
+      byte[] bytes = output.toByteArray();
+      ByteReader reader = new ByteReader(bytes, 0);
+      assertThat(reader.utf8(3, reader.u2(1))).isEqualTo(string);
+    }
+  }
+
+  @Test
+  public void malformedUtf8() {
+    for (byte[] bytes :
+        new byte[][] {
+          {(byte) 0x80}, {(byte) 0xc3}, {(byte) 0xe2, (byte) 0x98}, {(byte) 0xc3, (byte) 0x41},
+          {(byte) 0xf0, (byte) 0x9f, (byte) 0x98, (byte) 0x80},
+        }) {
+      try {
+        new ByteReader(bytes, 0).utf8(0, bytes.length);
+        fail();
+      } catch (IllegalArgumentException expected) {
+        assertThat(expected).hasMessageThat().contains("malformed modified UTF-8");
+      }
+    }
+  }
+}
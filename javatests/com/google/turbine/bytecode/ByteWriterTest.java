@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ByteWriterTest {
+
+  @Test
+  public void sameAsDataOutput() {
+    ByteArrayDataOutput expected = ByteStreams.newDataOutput();
+    // start small to exercise growing the buffer
+    ByteWriter actual = new ByteWriter(1);
+    for (int i = 0; i < 100; i++) {
+      expected.writeByte(i);
+      actual.writeByte(i);
+      expected.writeShort(0xcafe + i);
+      actual.writeShort(0xcafe + i);
+      expected.writeInt(0xcafebabe + i);
+      actual.writeInt(0xcafebabe + i);
+      expected.writeLong(0x0123456789abcdefL * i);
+      actual.writeLong(0x0123456789abcdefL * i);
+      expected.writeFloat(i / 3.0f);
+      actual.writeFloat(i / 3.0f);
+      expected.writeDouble(i / 3.0);
+      actual.writeDouble(i / 3.0);
+      expected.writeUTF("hello\0é☃😀" + i);
+      actual.writeUTF("hello\0é☃😀" + i);
+      expected.write(new byte[] {1, 2, 3});
+      actual.write(new byte[] {1, 2, 3});
+    }
+    assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+  }
+
+  @Test
+  public void utf8() throws IOException {
+    List<String> strings = new ArrayList<>();
+    strings.add("");
+    strings.add("java/lang/Object");
+    strings.add("\0");
+    // every char, including unpaired surrogates
+    StringBuilder sb = new StringBuilder();
+    for (int c = 0; c <= Character.MAX_VALUE; c++) {
+      sb.append((char) c);
+      if (sb.length() == 1000) {
+        strings.add(sb.toString());
+        sb.setLength(0);
+      }
+    }
+    strings.add(sb.toString());
+    strings.add(new String(Character.toChars(Character.MAX_CODE_POINT)));
+    for (String string : strings) {
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      new DataOutputStream(expected).writeUTF(string);
+      ByteWriter actual = new ByteWriter(1);
+      actual.writeUTF(string);
+      assertThat(actual.toByteArray()).isEqualTo(expected.toByteArray());
+      assertThat(ByteWriter.utf8Length(string)).isEqualTo(expected.size() - 2);
+    }
+  }
+
+  @Test
+  public void utf8TooLong() {
+    ByteWriter writer = new ByteWriter();
+    writer.writeUTF(Strings.repeat("a", ByteWriter.MAX_UTF8_LENGTH));
+    assertThat(writer.pos()).isEqualTo(ByteWriter.MAX_UTF8_LENGTH + 2);
+    for (String string :
+        new String[] {
+          Strings.repeat("a", ByteWriter.MAX_UTF8_LENGTH + 1),
+          // 3 bytes per char
+          Strings.repeat("\u0800", ByteWriter.MAX_UTF8_LENGTH / 3 + 1),
+        }) {
+      try {
+        writer.writeUTF(string);
+        fail();
+      } catch (IllegalArgumentException expected) {
+        assertThat(expected).hasMessageThat().contains("string constant too long");
+        assertThat(expected).hasMessageThat().contains("the limit is 65535");
+      }
+    }
+  }
+
+  @Test
+  public void patch() {
+    ByteWriter writer = new ByteWriter();
+    writer.writeShort(0);
+    writer.writeInt(0);
+    writer.writeByte(42);
+    writer.putShort(0, 0xcafe);
+    writer.putInt(2, 0xcafebabe);
+    assertThat(writer.pos()).isEqualTo(7);
+    assertThat(writer.toByteArray())
+        .isEqualTo(
+            new byte[] {
+              (byte) 0xca, (byte) 0xfe, (byte) 0xca, (byte) 0xfe, (byte) 0xba, (byte) 0xbe, 42
+            });
+  }
+
+  @Test
+  public void reset() {
+    ByteWriter writer = new ByteWriter();
+    writer.writeInt(1);
+    writer.reset();
+    writer.writeByte(2);
+    byte[] dest = new byte[3];
+    writer.copyTo(dest, 1);
+    assertThat(dest).isEqualTo(new byte[] {0, 2, 0});
+  }
+}
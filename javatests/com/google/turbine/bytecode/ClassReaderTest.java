@@ -220,6 +220,63 @@ public class ClassReaderTest {
     assertThat(b.outerClass()).isEqualTo("test/Hello$Inner");
   }
 
+  @Test
+  public void localClass() {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(52, Opcodes.ACC_SUPER, "test/Hello$1Local", null, "java/lang/Object", null);
+    cw.visitInnerClass("test/Hello$1Local", null, "Local", 0);
+    cw.visitInnerClass("test/Hello$1", null, null, 0);
+    byte[] bytes = cw.toByteArray();
+
+    ClassFile classFile = com.google.turbine.bytecode.ClassReader.read(null, bytes);
+
+    assertThat(classFile.innerClasses()).isEmpty();
+  }
+
+  @Test
+  public void lazy() {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(
+        52,
+        Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER,
+        "test/Hello",
+        "<T:Ljava/lang/Object;>Ljava/lang/Object;Ljava/lang/Runnable;",
+        "java/lang/Object",
+        new String[] {"java/lang/Runnable", "java/io/Serializable"});
+    cw.visitAnnotation("Ljava/lang/Deprecated;", true);
+    cw.visitAnnotation("Ltest/Invisible;", false);
+    cw.visitInnerClass("test/Hello$Inner", "test/Hello", "Inner", Opcodes.ACC_STATIC);
+    cw.visitField(Opcodes.ACC_PRIVATE, "x", "I", null, null);
+    cw.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+    byte[] bytes = cw.toByteArray();
+
+    LazyClassFile lazy = ClassReader.readLazy(null, bytes);
+    assertThat(lazy.access()).isEqualTo(TurbineFlag.ACC_PUBLIC | TurbineFlag.ACC_SUPER);
+    assertThat(lazy.name()).isEqualTo("test/Hello");
+    assertThat(lazy.signature())
+        .isEqualTo("<T:Ljava/lang/Object;>Ljava/lang/Object;Ljava/lang/Runnable;");
+    assertThat(lazy.superName()).isEqualTo("java/lang/Object");
+    assertThat(lazy.interfaces())
+        .containsExactly("java/lang/Runnable", "java/io/Serializable")
+        .inOrder();
+    assertThat(Iterables.getOnlyElement(lazy.innerClasses()).innerName()).isEqualTo("Inner");
+    assertThat(lazy.annotations().stream().map(a -> a.typeName()).collect(toImmutableList()))
+        .containsExactly("Ljava/lang/Deprecated;", "Ltest/Invisible;")
+        .inOrder();
+    assertThat(Iterables.getOnlyElement(lazy.fields()).name()).isEqualTo("x");
+    assertThat(Iterables.getOnlyElement(lazy.methods()).name()).isEqualTo("run");
+    assertThat(lazy.module()).isNull();
+
+    // sections are only decoded once
+    assertThat(lazy.methods()).isSameInstanceAs(lazy.methods());
+    assertThat(lazy.fields()).isSameInstanceAs(lazy.fields());
+
+    ClassFile classFile = ClassReader.read(null, bytes);
+    assertThat(classFile.interfaces()).isEqualTo(lazy.interfaces());
+    assertThat(classFile.annotations()).hasSize(2);
+    assertThat(classFile.methods()).hasSize(1);
+  }
+
   @Test
   public void largeConstant() {
     String jumbo = Strings.repeat("a", Short.MAX_VALUE + 1);
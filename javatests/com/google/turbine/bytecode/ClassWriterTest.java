@@ -21,8 +21,6 @@ import static com.google.common.truth.Truth.assertWithMessage;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import com.google.common.jimfs.Configuration;
 import com.google.common.jimfs.Jimfs;
 import com.google.turbine.testing.AsmUtils;
@@ -104,7 +102,7 @@ public class ClassWriterTest {
       String value = "c" + i++;
       entries.put(pool.classInfo(value), value);
     }
-    ByteArrayDataOutput bytes = ByteStreams.newDataOutput();
+    ByteWriter bytes = new ByteWriter();
     ClassWriter.writeConstantPool(pool, bytes);
     ConstantPoolReader reader =
         ConstantPoolReader.readConstantPool(new ByteReader(bytes.toByteArray(), 0));
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConstantPoolReaderTest {
+
+  @Test
+  public void memoized() {
+    ConstantPool pool = new ConstantPool();
+    int utf8 = pool.utf8("hello");
+    int classInfo = pool.classInfo("java/lang/Object");
+    ConstantPoolReader reader = read(pool);
+    String first = reader.utf8(utf8);
+    assertThat(first).isEqualTo("hello");
+    assertThat(reader.utf8(utf8)).isSameInstanceAs(first);
+    String className = reader.classInfo(classInfo);
+    assertThat(className).isEqualTo("java/lang/Object");
+    assertThat(reader.classInfo(classInfo)).isSameInstanceAs(className);
+  }
+
+  @Test
+  public void shared() {
+    ConstantPool a = new ConstantPool();
+    int aIndex = a.classInfo("com/example/Shared");
+    ConstantPool b = new ConstantPool();
+    b.utf8("padding");
+    int bIndex = b.classInfo("com/example/Shared");
+    String first = read(a).classInfo(aIndex);
+    assertThat(read(b).classInfo(bIndex)).isSameInstanceAs(first);
+  }
+
+  @Test
+  public void notShared() {
+    String longString = Strings.repeat("x", 1000);
+    for (String string : new String[] {"", "été", "\0", "☃", longString}) {
+      ConstantPool pool = new ConstantPool();
+      int index = pool.utf8(string);
+      assertThat(read(pool).utf8(index)).isEqualTo(string);
+      assertThat(read(pool).utf8(index)).isEqualTo(string);
+    }
+  }
+
+  @Test
+  public void wrongTag() {
+    ConstantPool pool = new ConstantPool();
+    int index = pool.utf8("hello");
+    ConstantPoolReader reader = read(pool);
+    assertThat(reader.utf8(index)).isEqualTo("hello");
+    try {
+      reader.classInfo(index);
+      fail();
+    } catch (AssertionError expected) {
+      assertThat(expected).hasMessageThat().contains("bad tag");
+    }
+  }
+
+  private static ConstantPoolReader read(ConstantPool pool) {
+    ByteWriter bytes = new ByteWriter();
+    ClassWriter.writeConstantPool(pool, bytes);
+    return ConstantPoolReader.readConstantPool(new ByteReader(bytes.toByteArray(), 0));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.bytecode;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Strings;
+import com.google.turbine.model.Const;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ConstantPoolTest {
+
+  @Test
+  public void deduplicated() {
+    ConstantPool pool = new ConstantPool();
+    int utf8 = pool.utf8("a");
+    assertThat(pool.utf8("a")).isEqualTo(utf8);
+    int classInfo = pool.classInfo("a");
+    assertThat(pool.classInfo("a")).isEqualTo(classInfo);
+    // a CONSTANT_Class_info and CONSTANT_String_info can share a CONSTANT_Utf8_info, but are
+    // separate entries
+    int string = pool.string("a");
+    assertThat(string).isNotEqualTo(classInfo);
+    assertThat(pool.string("a")).isEqualTo(string);
+    assertThat(pool.nextEntry).isEqualTo(4);
+  }
+
+  @Test
+  public void numbers() {
+    ConstantPool pool = new ConstantPool();
+    Set<Integer> indices = new HashSet<>();
+    // entries that share the same raw bits, but have different kinds, are distinct
+    indices.add(pool.integer(0));
+    indices.add(pool.floatInfo(0.0f));
+    indices.add(pool.longInfo(0L));
+    indices.add(pool.doubleInfo(0.0));
+    indices.add(pool.floatInfo(-0.0f));
+    indices.add(pool.doubleInfo(-0.0));
+    indices.add(pool.integer(-1));
+    indices.add(pool.longInfo(-1L));
+    indices.add(pool.longInfo(0xffffffffL));
+    indices.add(pool.doubleInfo(Double.NaN));
+    assertThat(indices).hasSize(10);
+
+    assertThat(pool.integer(0)).isEqualTo(pool.integer(0));
+    assertThat(pool.floatInfo(-0.0f)).isEqualTo(pool.floatInfo(-0.0f));
+    assertThat(pool.longInfo(0xffffffffL)).isEqualTo(pool.longInfo(0xffffffffL));
+    assertThat(pool.doubleInfo(Double.NaN)).isEqualTo(pool.doubleInfo(0.0 / 0.0));
+  }
+
+  @Test
+  public void utf8TooLong() {
+    ConstantPool pool = new ConstantPool();
+    try {
+      pool.utf8(Strings.repeat("\u00e9", 0x8000));
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected)
+          .hasMessageThat()
+          .contains("the encoded length is 65536 bytes, and the limit is 65535");
+    }
+  }
+
+  @Test
+  public void roundTrip() {
+    ConstantPool pool = new ConstantPool();
+    int integer = pool.integer(Integer.MIN_VALUE);
+    int floatInfo = pool.floatInfo(1.5f);
+    int longInfo = pool.longInfo(Long.MIN_VALUE);
+    int doubleInfo = pool.doubleInfo(-2.5);
+    int string = pool.string("hello");
+    int classInfo = pool.classInfo("java/lang/Object");
+    // grow the tables past their initial capacity
+    for (int i = 0; i < 1000; i++) {
+      pool.utf8("s" + i);
+      pool.integer(i);
+    }
+    int last = pool.utf8("last");
+
+    ByteWriter bytes = new ByteWriter();
+    ClassWriter.writeConstantPool(pool, bytes);
+    ConstantPoolReader reader =
+        ConstantPoolReader.readConstantPool(new ByteReader(bytes.toByteArray(), 0));
+    assertThat(reader.constant(integer)).isEqualTo(new Const.IntValue(Integer.MIN_VALUE));
+    assertThat(reader.constant(floatInfo)).isEqualTo(new Const.FloatValue(1.5f));
+    assertThat(reader.constant(longInfo)).isEqualTo(new Const.LongValue(Long.MIN_VALUE));
+    assertThat(reader.constant(doubleInfo)).isEqualTo(new Const.DoubleValue(-2.5));
+    assertThat(reader.constant(string)).isEqualTo(new Const.StringValue("hello"));
+    assertThat(reader.classInfo(classInfo)).isEqualTo("java/lang/Object");
+    assertThat(reader.utf8(last)).isEqualTo("last");
+    for (int i = 0; i < 1000; i++) {
+      assertThat(reader.utf8(pool.utf8("s" + i))).isEqualTo("s" + i);
+      assertThat(reader.constant(pool.integer(i))).isEqualTo(new Const.IntValue(i));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.diag;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.turbine.diag.Profiler.Event;
+import java.io.StringWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class ProfilerTest {
+
+  @Test
+  public void none() throws Exception {
+    try (Profiler.Phase unused = Profiler.NONE.start("parse")) {
+      // nothing is recorded
+    }
+    assertThat(Profiler.NONE.events()).isEmpty();
+  }
+
+  @Test
+  public void phases() throws Exception {
+    Profiler profiler = Profiler.create();
+    byte[] allocated;
+    try (Profiler.Phase outer = profiler.start("bind")) {
+      try (Profiler.Phase inner = profiler.start("bind types")) {
+        allocated = new byte[1 << 20];
+      }
+    }
+    assertThat(allocated).hasLength(1 << 20);
+
+    // events are recorded when phases complete
+    assertThat(profiler.events().stream().map(Event::name).collect(toImmutableList()))
+        .containsExactly("bind types", "bind")
+        .inOrder();
+    Event inner = profiler.events().get(0);
+    Event outer = profiler.events().get(1);
+    assertThat(inner.threadId()).isEqualTo(Thread.currentThread().getId());
+    assertThat(inner.startMicros()).isAtLeast(outer.startMicros());
+    assertThat(inner.wallMicros()).isAtMost(outer.wallMicros());
+    if (inner.allocatedBytes() != -1) {
+      assertThat(inner.allocatedBytes()).isAtLeast(1L << 20);
+      assertThat(outer.allocatedBytes()).isAtLeast(inner.allocatedBytes());
+    }
+  }
+
+  @Test
+  public void threads() throws Exception {
+    Profiler profiler = Profiler.create();
+    Thread thread =
+        new Thread(
+            () -> {
+              try (Profiler.Phase unused = profiler.start("lower")) {
+                // recorded on the worker thread
+              }
+            },
+            "worker");
+    thread.start();
+    thread.join();
+
+    Event event = profiler.events().get(0);
+    assertThat(event.threadId()).isEqualTo(thread.getId());
+
+    StringWriter writer = new StringWriter();
+    profiler.writeTrace(writer);
+    assertThat(writer.toString())
+        .contains(
+            String.format(
+                "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,"
+                    + "\"args\":{\"name\":\"worker\"}}",
+                thread.getId()));
+  }
+
+  @Test
+  public void writeTrace() throws Exception {
+    Profiler profiler = Profiler.create();
+    try (Profiler.Phase unused = profiler.start("say \"hello\"\n")) {
+      // escaped in the output
+    }
+    Event event = profiler.events().get(0);
+
+    StringWriter writer = new StringWriter();
+    profiler.writeTrace(writer);
+    String trace = writer.toString();
+    assertThat(trace).startsWith("{\"traceEvents\":[");
+    assertThat(trace).endsWith("],\"displayTimeUnit\":\"ms\"}\n");
+    assertThat(trace)
+        .contains(
+            String.format(
+                "{\"name\":\"say \\\"hello\\\"\\u000a\",\"cat\":\"turbine\",\"ph\":\"X\",\"pid\":1,"
+                    + "\"tid\":%d,\"ts\":%d,\"dur\":%d,",
+                event.threadId(), event.startMicros(), event.wallMicros()));
+    if (event.cpuMicros() != -1) {
+      assertThat(trace).contains("\"cpu_time_micros\":" + event.cpuMicros());
+    }
+    if (event.allocatedBytes() != -1) {
+      assertThat(trace).contains("\"allocated_bytes\":" + event.allocatedBytes());
+    }
+  }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.lower;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.turbine.testing.TestClassPaths.TURBINE_BOOTCLASSPATH;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.google.turbine.binder.Binder;
+import com.google.turbine.binder.Binder.BindingResult;
+import com.google.turbine.binder.ClassPathBinder;
+import com.google.turbine.diag.Profiler;
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.lower.Lower.Lowered;
+import com.google.turbine.parse.Parser;
+import com.google.turbine.tree.Tree.CompUnit;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class LowerCacheTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final HashCode INPUTS = HashCode.fromInt(42);
+
+  private static final FileTime EPOCH = FileTime.fromMillis(0);
+
+  private Path dir;
+
+  @Before
+  public void setUp() throws IOException {
+    dir = temporaryFolder.newFolder().toPath();
+  }
+
+  @Test
+  public void bodyChange() throws IOException {
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { void f() {} }",
+                    "B.java", "class B { A a; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(3);
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { void f() { System.err.println(); } }",
+                    "B.java", "class B { A a; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(1);
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { void f() { System.err.println(); } }",
+                    "B.java", "class B { A a; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(0);
+  }
+
+  @Test
+  public void signatureChange() throws IOException {
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { void f() {} }",
+                    "B.java", "class B { A a; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(3);
+    // B references A, and is lowered again when A's bytecode changes
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { int f() { return 0; } }",
+                    "B.java", "class B { A a; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void constantChange() throws IOException {
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { static final int X = 1; }",
+                    "B.java", "class B { static final int Y = A.X + 1; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(3);
+    // B's bytecode doesn't reference A, but its constant value depends on A.X
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A { static final int X = 2; }",
+                    "B.java", "class B { static final int Y = A.X + 1; }",
+                    "C.java", "class C {}")))
+        .isEqualTo(3);
+  }
+
+  @Test
+  public void hierarchyChange() throws IOException {
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A extends S {}",
+                    "B.java", "class B { A.I i; }",
+                    "S.java", "class S { static class I {} }",
+                    "T.java", "class T { static class I {} }")))
+        .isEqualTo(6);
+    // A.I in B now resolves to T.I
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "class A extends T {}",
+                    "B.java", "class B { A.I i; }",
+                    "S.java", "class S { static class I {} }",
+                    "T.java", "class T { static class I {} }")))
+        .isEqualTo(6);
+  }
+
+  @Test
+  public void retentionChange() throws IOException {
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "@B class A {}",
+                    "B.java",
+                    "import java.lang.annotation.*;"
+                        + " @Retention(RetentionPolicy.SOURCE) @interface B {}")))
+        .isEqualTo(2);
+    // A's bytecode doesn't reference B while it has SOURCE retention
+    assertThat(
+            lower(
+                ImmutableMap.of(
+                    "A.java", "@B class A {}",
+                    "B.java",
+                    "import java.lang.annotation.*;"
+                        + " @Retention(RetentionPolicy.RUNTIME) @interface B {}")))
+        .isEqualTo(2);
+  }
+
+  @Test
+  public void inputsChange() throws IOException {
+    ImmutableMap<String, String> sources =
+        ImmutableMap.of("A.java", "class A {}", "B.java", "class B {}");
+    assertThat(lower(sources)).isEqualTo(2);
+    assertThat(lower(sources)).isEqualTo(0);
+    assertThat(lower(sources, HashCode.fromInt(43))).isEqualTo(2);
+  }
+
+  @Test
+  public void prune() throws IOException {
+    assertThat(lower(ImmutableMap.of("A.java", "class A {}", "B.java", "class B {}")))
+        .isEqualTo(2);
+    assertThat(lower(ImmutableMap.of("A.java", "class A {}"))).isEqualTo(1);
+    assertThat(entries()).hasSize(1);
+  }
+
+  @Test
+  public void pruneOnlyEntries() throws IOException {
+    Path other = dir.resolve("Other.java");
+    Files.write(other, new byte[] {1});
+    Path subdirectory = Files.createDirectory(dir.resolve("sub"));
+    Files.write(subdirectory.resolve("A.java"), new byte[] {1});
+    assertThat(lower(ImmutableMap.of("A.java", "class A {}", "B.java", "class B {}")))
+        .isEqualTo(2);
+    assertThat(lower(ImmutableMap.of("A.java", "class A {}"))).isEqualTo(1);
+    assertThat(entries()).hasSize(3);
+    assertThat(Files.exists(other)).isTrue();
+    assertThat(Files.exists(subdirectory.resolve("A.java"))).isTrue();
+  }
+
+  @Test
+  public void corruptEntry() throws IOException {
+    ImmutableMap<String, String> sources =
+        ImmutableMap.of("A.java", "class A {}", "B.java", "class B {}");
+    assertThat(lower(sources)).isEqualTo(2);
+    Path entry = entries().get(0);
+    Files.write(entry, new byte[] {0, 0});
+    assertThat(lower(sources)).isEqualTo(1);
+  }
+
+  @Test
+  public void corruptLength() throws IOException {
+    ImmutableMap<String, String> sources = ImmutableMap.of("A.java", "class A {}");
+    assertThat(lower(sources)).isEqualTo(1);
+    Path entry = entries().get(0);
+    // the version, followed by a negative length
+    Files.write(entry, new byte[] {0, 0, 0, 1, -1, -1, -1, -1});
+    assertThat(lower(sources)).isEqualTo(1);
+    // the version, followed by a length that is larger than the entry
+    Files.write(entry, new byte[] {0, 0, 0, 1, 0x7f, -1, -1, -1});
+    assertThat(lower(sources)).isEqualTo(1);
+  }
+
+  @Test
+  public void corruptName() throws IOException {
+    ImmutableMap<String, String> sources = ImmutableMap.of("A.java", "class A {}");
+    assertThat(lower(sources)).isEqualTo(1);
+    Path entry = entries().get(0);
+    byte[] bytes = Files.readAllBytes(entry);
+    // the version, the length and bytes of the class, the number of symbols, and an invalid
+    // modified UTF-8 name
+    int offset = 4 + 4 + ByteBuffer.wrap(bytes).getInt(4) + 4;
+    bytes[offset + 2] = (byte) 0xff;
+    Files.write(entry, bytes);
+    assertThat(lower(sources)).isEqualTo(1);
+  }
+
+  private int lower(ImmutableMap<String, String> sources) throws IOException {
+    return lower(sources, INPUTS);
+  }
+
+  /**
+   * Lowers the given sources using the cache, checks that the output is the same as for a
+   * non-incremental compilation, and returns the number of cache entries that were written.
+   */
+  private int lower(ImmutableMap<String, String> sources, HashCode inputs) throws IOException {
+    for (Path entry : entries()) {
+      Files.setLastModifiedTime(entry, EPOCH);
+    }
+    BindingResult bound = bind(sources);
+    Lowered expected = Lower.lowerAll(bound.units(), bound.modules(), bound.classPathEnv());
+    Lowered actual =
+        LowerCache.create(dir, inputs)
+            .lowerAll(
+                bound.units(),
+                bound.modules(),
+                bound.classPathEnv(),
+                /* parallelism= */ 2,
+                Profiler.NONE);
+    assertThat(actual.bytes().keySet()).containsExactlyElementsIn(expected.bytes().keySet());
+    for (Map.Entry<String, byte[]> e : expected.bytes().entrySet()) {
+      assertThat(actual.bytes().get(e.getKey())).isEqualTo(e.getValue());
+    }
+    assertThat(actual.symbols()).containsExactlyElementsIn(expected.symbols()).inOrder();
+    int written = 0;
+    for (Path entry : entries()) {
+      if (!Files.getLastModifiedTime(entry).equals(EPOCH)) {
+        written++;
+      }
+    }
+    return written;
+  }
+
+  private ImmutableList<Path> entries() throws IOException {
+    ImmutableList.Builder<Path> entries = ImmutableList.builder();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+      for (Path entry : stream) {
+        entries.add(entry);
+      }
+    }
+    return entries.build();
+  }
+
+  private static BindingResult bind(ImmutableMap<String, String> sources) throws IOException {
+    ImmutableList.Builder<CompUnit> units = ImmutableList.builder();
+    for (Map.Entry<String, String> e : sources.entrySet()) {
+      units.add(Parser.parse(new SourceFile(e.getKey(), e.getValue())));
+    }
+    return Binder.bind(
+        units.build(),
+        ClassPathBinder.bindClasspath(ImmutableList.of()),
+        TURBINE_BOOTCLASSPATH,
+        /* moduleVersion=*/ Optional.empty());
+  }
+}
@@ -22,6 +22,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.fail;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteStreams;
@@ -43,6 +44,7 @@ import com.google.turbine.model.TurbineFlag;
 import com.google.turbine.model.TurbineTyKind;
 import com.google.turbine.parse.Parser;
 import com.google.turbine.testing.AsmUtils;
+import com.google.turbine.tree.Tree;
 import com.google.turbine.type.Type;
 import com.google.turbine.type.Type.ClassTy;
 import com.google.turbine.type.Type.ClassTy.SimpleClassTy;
@@ -646,6 +648,69 @@ public class LowerTest {
     assertThat((testAccess[0] & TurbineFlag.ACC_PROTECTED)).isNotEqualTo(TurbineFlag.ACC_PROTECTED);
   }
 
+  @Test
+  public void parallelLowering() throws Exception {
+    ImmutableList.Builder<Tree.CompUnit> units = ImmutableList.builder();
+    for (int i = 0; i < 50; i++) {
+      units.add(
+          Parser.parse(
+              String.format(
+                  lines(
+                      "package p;",
+                      "import java.util.List;",
+                      "public class Test%d<T extends Number> extends java.util.AbstractList<T> {",
+                      "  public static final int X = %d;",
+                      "  public List<String> f(Runnable r) { return null; }",
+                      "  class Inner%d implements java.io.Serializable {}",
+                      "}"),
+                  i,
+                  i,
+                  i)));
+    }
+    BindingResult bound =
+        Binder.bind(
+            units.build(),
+            ClassPathBinder.bindClasspath(ImmutableList.of()),
+            TURBINE_BOOTCLASSPATH,
+            /* moduleVersion=*/ Optional.empty());
+
+    Lower.Lowered sequential =
+        Lower.lowerAll(bound.units(), bound.modules(), bound.classPathEnv());
+    Lower.Lowered parallel =
+        Lower.lowerAll(
+            bound.units(), bound.modules(), bound.classPathEnv(), /* parallelism= */ 4);
+
+    assertThat(parallel.bytes().keySet())
+        .containsExactlyElementsIn(sequential.bytes().keySet())
+        .inOrder();
+    for (Map.Entry<String, byte[]> e : sequential.bytes().entrySet()) {
+      assertThat(parallel.bytes().get(e.getKey())).isEqualTo(e.getValue());
+    }
+    assertThat(parallel.symbols()).containsExactlyElementsIn(sequential.symbols()).inOrder();
+  }
+
+  @Test
+  public void constantStringTooLong() throws Exception {
+    // 'é' is encoded as two bytes of modified UTF-8
+    String value = Strings.repeat("\\u00e9", 0x8000);
+    ImmutableMap<String, String> sources =
+        ImmutableMap.of(
+            "Test.java",
+            lines(
+                "class Test {", //
+                "  static final String OK = \"" + Strings.repeat("a", 0xffff) + "\";",
+                "  static final String C = \"" + value + "\";",
+                "}"));
+    try {
+      IntegrationTestSupport.runTurbine(sources, /* classpath= */ ImmutableList.of());
+      fail();
+    } catch (TurbineError error) {
+      assertThat(error)
+          .hasMessageThat()
+          .contains("Test.java:3: error: constant string too long in initializer of C");
+    }
+  }
+
   static String lines(String... lines) {
     return Joiner.on(System.lineSeparator()).join(lines);
   }
@@ -137,6 +137,154 @@ public class MainTest {
     assertThat(data.keySet()).containsExactly("test/package-info.class");
   }
 
+  @Test
+  public void parallelParse() throws IOException {
+    ImmutableList.Builder<String> sources = ImmutableList.builder();
+    for (int i = 0; i < 20; i++) {
+      Path src = temporaryFolder.newFile("Test" + i + ".java").toPath();
+      MoreFiles.asCharSink(src, UTF_8)
+          .write(
+              String.format(
+                  "package p; public class Test%d { public static final int X = %d; }", i, i));
+      sources.add(src.toString());
+    }
+    Path srcjar = temporaryFolder.newFile("lib.srcjar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(srcjar))) {
+      for (int i = 0; i < 20; i++) {
+        jos.putNextEntry(new JarEntry("q/Lib" + i + ".java"));
+        jos.write(
+            String.format("package q; class Lib%d extends p.Test%d {}", i, i).getBytes(UTF_8));
+      }
+    }
+
+    Path sequential = temporaryFolder.newFile("sequential.jar").toPath();
+    Main.compile(
+        optionsWithBootclasspath()
+            .setSources(sources.build())
+            .setSourceJars(ImmutableList.of(srcjar.toString()))
+            .setOutput(sequential.toString())
+            .build());
+
+    Path parallel = temporaryFolder.newFile("parallel.jar").toPath();
+    Main.compile(
+        optionsWithBootclasspath()
+            .setSources(sources.build())
+            .setSourceJars(ImmutableList.of(srcjar.toString()))
+            .setOutput(parallel.toString())
+            .setParallelism(4)
+            .build());
+
+    assertThat(Files.readAllBytes(parallel)).isEqualTo(Files.readAllBytes(sequential));
+  }
+
+  @Test
+  public void parallelParseError() throws IOException {
+    ImmutableList.Builder<String> sources = ImmutableList.builder();
+    for (int i = 0; i < 10; i++) {
+      Path src = temporaryFolder.newFile("Test" + i + ".java").toPath();
+      // Test2, Test5, and Test8 have syntax errors
+      MoreFiles.asCharSink(src, UTF_8)
+          .write(i % 3 == 2 ? "class Test" + i : "class Test" + i + " {}");
+      sources.add(src.toString());
+    }
+    Path output = temporaryFolder.newFile("output.jar").toPath();
+
+    try {
+      Main.compile(
+          optionsWithBootclasspath()
+              .setSources(sources.build())
+              .setOutput(output.toString())
+              .setParallelism(4)
+              .build());
+      fail();
+    } catch (TurbineError e) {
+      // the first error in source order is reported, regardless of the order tasks complete in
+      assertThat(e).hasMessageThat().contains("Test2.java");
+    }
+  }
+
+  @Test
+  public void profile() throws IOException {
+    Path src = temporaryFolder.newFile("Test.java").toPath();
+    MoreFiles.asCharSink(src, UTF_8).write("public class Test { static final int X = 1 + 2; }");
+
+    Path output = temporaryFolder.newFile("output.jar").toPath();
+    Path profile = temporaryFolder.newFile("turbine.json").toPath();
+    Main.compile(
+        optionsWithBootclasspath()
+            .setSources(ImmutableList.of(src.toString()))
+            .setOutput(output.toString())
+            .setProfile(profile.toString())
+            .build());
+
+    String trace = new String(Files.readAllBytes(profile), UTF_8);
+    assertThat(trace).startsWith("{\"traceEvents\":[");
+    for (String phase :
+        ImmutableList.of(
+            "parse",
+            "bind bootclasspath",
+            "bind classpath",
+            "bind",
+            "bind types",
+            "bind constants",
+            "lower",
+            "transitive",
+            "write output")) {
+      assertThat(trace).contains("{\"name\":\"" + phase + "\",\"cat\":\"turbine\",\"ph\":\"X\"");
+    }
+  }
+
+  @Test
+  public void profileWriteFailure() throws IOException {
+    Path src = temporaryFolder.newFile("Test.java").toPath();
+    MoreFiles.asCharSink(src, UTF_8).write("public class Test { NoSuch x; }");
+
+    Path output = temporaryFolder.newFile("output.jar").toPath();
+    // the profile can't be written, because its path is a directory
+    Path profile = temporaryFolder.newFolder("turbine.json").toPath();
+    try {
+      Main.compile(
+          optionsWithBootclasspath()
+              .setSources(ImmutableList.of(src.toString()))
+              .setOutput(output.toString())
+              .setProfile(profile.toString())
+              .build());
+      fail();
+    } catch (TurbineError e) {
+      assertThat(e).hasMessageThat().contains("could not resolve NoSuch");
+      assertThat(e.getSuppressed()).hasLength(1);
+      assertThat(e.getSuppressed()[0]).isInstanceOf(IOException.class);
+    }
+  }
+
+  @Test
+  public void incrementalCache() throws IOException {
+    Path src = temporaryFolder.newFile("Test.java").toPath();
+    MoreFiles.asCharSink(src, UTF_8).write("public class Test { static final int X = 1 + 2; }");
+    Path cache = temporaryFolder.newFolder().toPath();
+
+    Map<String, byte[]> expected = null;
+    for (int i = 0; i < 2; i++) {
+      Path output = temporaryFolder.newFile("output" + i + ".jar").toPath();
+      Main.compile(
+          optionsWithBootclasspath()
+              .setSources(ImmutableList.of(src.toString()))
+              .setOutput(output.toString())
+              .setIncrementalCacheDir(cache.toString())
+              .build());
+      Map<String, byte[]> data = readJar(output);
+      if (expected == null) {
+        expected = data;
+      } else {
+        assertThat(data.keySet()).containsExactlyElementsIn(expected.keySet()).inOrder();
+        for (Map.Entry<String, byte[]> e : expected.entrySet()) {
+          assertThat(data.get(e.getKey())).isEqualTo(e.getValue());
+        }
+      }
+    }
+    assertThat(cache.toFile().list()).hasLength(1);
+  }
+
   private Map<String, byte[]> readJar(Path output) throws IOException {
     Map<String, byte[]> data = new LinkedHashMap<>();
     try (JarFile jf = new JarFile(output.toFile())) {
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.main;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.turbine.testing.TestClassPaths.optionsWithBootclasspath;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.MoreFiles;
+import com.google.turbine.binder.ClassPathCache;
+import com.google.turbine.options.TurbineOptions;
+import com.google.turbine.proto.WorkerProto.WorkRequest;
+import com.google.turbine.proto.WorkerProto.WorkResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class WorkerTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void processRequests() throws IOException {
+    Path lib = compileLib();
+
+    Path src = temporaryFolder.newFile("Test.java").toPath();
+    MoreFiles.asCharSink(src, UTF_8).write("class Test extends Lib {}");
+    Path output = temporaryFolder.newFile("output.jar").toPath();
+    Path bad = temporaryFolder.newFile("Bad.java").toPath();
+    MoreFiles.asCharSink(bad, UTF_8).write("class Bad extends NoSuch {}");
+    Path badOutput = temporaryFolder.newFile("bad.jar").toPath();
+
+    ByteArrayOutputStream requests = new ByteArrayOutputStream();
+    WorkRequest.newBuilder()
+        .addAllArguments(
+            args(
+                optionsWithBootclasspath(),
+                "--sources",
+                src.toString(),
+                "--classpath",
+                lib.toString(),
+                "--output",
+                output.toString()))
+        .setRequestId(1)
+        .build()
+        .writeDelimitedTo(requests);
+    WorkRequest.newBuilder()
+        .addAllArguments(
+            args(
+                optionsWithBootclasspath(),
+                "--sources",
+                bad.toString(),
+                "--classpath",
+                lib.toString(),
+                "--output",
+                badOutput.toString()))
+        .setRequestId(2)
+        .build()
+        .writeDelimitedTo(requests);
+
+    ClassPathCache cache = ClassPathCache.create(/* maxBytes= */ 1 << 30);
+    ByteArrayOutputStream responses = new ByteArrayOutputStream();
+    new Worker(cache, /* maxConcurrentRequests= */ 2)
+        .processRequests(new ByteArrayInputStream(requests.toByteArray()), responses);
+
+    // requests are processed concurrently, so the responses may be out of order
+    Map<Integer, WorkResponse> responsesById = new HashMap<>();
+    ByteArrayInputStream in = new ByteArrayInputStream(responses.toByteArray());
+    WorkResponse response;
+    while ((response = WorkResponse.parseDelimitedFrom(in)) != null) {
+      responsesById.put(response.getRequestId(), response);
+    }
+    assertThat(responsesById.keySet()).containsExactly(1, 2);
+
+    WorkResponse first = responsesById.get(1);
+    assertThat(first.getExitCode()).isEqualTo(0);
+    assertThat(first.getOutput()).isEmpty();
+    assertThat(first.getWallTimeMicros()).isGreaterThan(0L);
+    try (JarFile jf = new JarFile(output.toFile())) {
+      assertThat(jf.getEntry("Test.class")).isNotNull();
+    }
+
+    WorkResponse second = responsesById.get(2);
+    assertThat(second.getExitCode()).isEqualTo(1);
+    assertThat(second.getOutput()).contains("could not resolve NoSuch");
+    assertThat(second.getWallTimeMicros()).isGreaterThan(0L);
+  }
+
+  private Path compileLib() throws IOException {
+    Path src = temporaryFolder.newFile("Lib.java").toPath();
+    MoreFiles.asCharSink(src, UTF_8).write("public class Lib {}");
+    Path lib = temporaryFolder.newFile("lib.jar").toPath();
+    Main.compile(
+        optionsWithBootclasspath()
+            .setSources(ImmutableList.of(src.toString()))
+            .setOutput(lib.toString())
+            .build());
+    assertThat(Files.exists(lib)).isTrue();
+    return lib;
+  }
+
+  /** Returns command line arguments that reproduce the bootclasspath options of the builder. */
+  private static List<String> args(TurbineOptions.Builder builder, String... args) {
+    TurbineOptions options = builder.setOutput("unused").build();
+    List<String> result = new ArrayList<>();
+    if (options.release().isPresent()) {
+      result.add("--release");
+      result.add(options.release().get());
+    }
+    if (!options.bootClassPath().isEmpty()) {
+      result.add("--bootclasspath");
+      result.addAll(options.bootClassPath());
+    }
+    result.addAll(ImmutableList.copyOf(args));
+    return result;
+  }
+}
@@ -330,9 +330,16 @@ public class TurbineOptionsTest {
         TurbineOptionsParser.parse(
             Iterables.concat(
                 BASE_ARGS,
-                ImmutableList.of("--gensrc_output", "gensrc.jar", "--profile", "turbine.prof")));
+                ImmutableList.of(
+                    "--gensrc_output",
+                    "gensrc.jar",
+                    "--profile",
+                    "turbine.prof",
+                    "--incremental_cache_dir",
+                    "cache")));
     assertThat(options.gensrcOutput()).hasValue("gensrc.jar");
     assertThat(options.profile()).hasValue("turbine.prof");
+    assertThat(options.incrementalCacheDir()).hasValue("cache");
   }
 
   @Test
@@ -373,4 +380,26 @@ public class TurbineOptionsTest {
       assertThat(options.reducedClasspathMode()).isEqualTo(mode);
     }
   }
+
+  @Test
+  public void parallelism() throws Exception {
+    TurbineOptions options = TurbineOptionsParser.parse(BASE_ARGS);
+    assertThat(options.parallelism()).isEqualTo(1);
+
+    options =
+        TurbineOptionsParser.parse(
+            Iterables.concat(BASE_ARGS, ImmutableList.of("--parallelism", "4")));
+    assertThat(options.parallelism()).isEqualTo(4);
+  }
+
+  @Test
+  public void invalidParallelism() throws Exception {
+    try {
+      TurbineOptionsParser.parse(
+          Iterables.concat(BASE_ARGS, ImmutableList.of("--parallelism", "0")));
+      fail();
+    } catch (IllegalArgumentException expected) {
+      assertThat(expected).hasMessageThat().contains("invalid --parallelism: 0");
+    }
+  }
 }
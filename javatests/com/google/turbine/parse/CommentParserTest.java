@@ -21,6 +21,7 @@ import static com.google.common.collect.Iterables.getOnlyElement;
 import static com.google.common.truth.Truth.assertThat;
 
 import com.google.common.base.Joiner;
+import com.google.turbine.diag.SourceFile;
 import com.google.turbine.tree.Tree;
 import com.google.turbine.tree.Tree.MethDecl;
 import com.google.turbine.tree.Tree.TyDecl;
@@ -75,4 +76,30 @@ public class CommentParserTest {
     VarDecl g = (VarDecl) a.members().get(1);
     assertThat(g.javadoc()).isEqualTo(" This is a field ");
   }
+
+  @Test
+  public void emptyComment() {
+    Tree.CompUnit unit = Parser.parse("/***/ class Test {}");
+    assertThat(getOnlyElement(unit.decls()).javadoc()).isEmpty();
+  }
+
+  @Test
+  public void javadocNotSaved() {
+    Tree.CompUnit unit =
+        Parser.parse(
+            new SourceFile(
+                "Test.java",
+                Joiner.on('\n')
+                    .join(
+                        "/** hello world */",
+                        "class Test {",
+                        "  /** This is a method */",
+                        "  void f() {}",
+                        "}\n")),
+            new IdentifierTable(),
+            /* javadoc= */ false);
+    TyDecl decl = getOnlyElement(unit.decls());
+    assertThat(decl.javadoc()).isNull();
+    assertThat(((MethDecl) getOnlyElement(decl.members())).javadoc()).isNull();
+  }
 }
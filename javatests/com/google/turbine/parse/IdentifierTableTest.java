@@ -0,0 +1,86 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.parse;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.turbine.diag.SourceFile;
+import com.google.turbine.tree.Tree;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class IdentifierTableTest {
+
+  @Test
+  public void keywords() {
+    IdentifierTable table = new IdentifierTable();
+    String input = "class classes null int interface";
+    assertThat(table.token(table.lookup(input, 0, 5))).isEqualTo(Token.CLASS);
+    assertThat(table.token(table.lookup(input, 6, 13))).isEqualTo(Token.IDENT);
+    assertThat(table.token(table.lookup(input, 14, 18))).isEqualTo(Token.NULL);
+    assertThat(table.token(table.lookup(input, 19, 22))).isEqualTo(Token.INT);
+    assertThat(table.token(table.lookup(input, 23, 32))).isEqualTo(Token.INTERFACE);
+    assertThat(table.token(table.lookup(input, 19, 21))).isEqualTo(Token.IDENT);
+    assertThat(table.token(table.lookup(input, 19, 20))).isEqualTo(Token.IDENT);
+  }
+
+  @Test
+  public void interning() {
+    IdentifierTable table = new IdentifierTable();
+    String input = "List String List";
+    String first = table.name(table.lookup(input, 0, 4));
+    assertThat(first).isEqualTo("List");
+    assertThat(table.name(table.lookup(input, 5, 11))).isEqualTo("String");
+    assertThat(table.name(table.lookup(input, 12, 16))).isSameInstanceAs(first);
+  }
+
+  @Test
+  public void grow() {
+    IdentifierTable table = new IdentifierTable();
+    List<String> names = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      String input = "x" + i;
+      String name = table.name(table.lookup(input, 0, input.length()));
+      assertThat(name).isEqualTo(input);
+      names.add(name);
+    }
+    for (int i = 0; i < names.size(); i++) {
+      String input = "x" + i;
+      int slot = table.lookup(input, 0, input.length());
+      assertThat(table.name(slot)).isSameInstanceAs(names.get(i));
+      assertThat(table.token(slot)).isEqualTo(Token.IDENT);
+    }
+    assertThat(table.token(table.lookup("while", 0, 5))).isEqualTo(Token.WHILE);
+  }
+
+  @Test
+  public void sharedBetweenSources() {
+    IdentifierTable table = new IdentifierTable();
+    Tree.CompUnit a =
+        Parser.parse(
+            new SourceFile("A.java", "package p; class A {}"), table, /* javadoc= */ false);
+    Tree.CompUnit b =
+        Parser.parse(
+            new SourceFile("B.java", "package p; class B {}"), table, /* javadoc= */ false);
+    assertThat(b.pkg().get().name().get(0).value())
+        .isSameInstanceAs(a.pkg().get().name().get(0).value());
+  }
+}
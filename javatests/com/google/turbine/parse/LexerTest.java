@@ -328,6 +328,77 @@ public class LexerTest {
     lexerComparisonTest("foo /*/*/ bar");
   }
 
+  @Test
+  public void skipBlock() {
+    assertThat(lexAfterBlock("{ int x = 1; { } } a")).containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ // }\n /* } */ /** } */ /*/ } */ } a"))
+        .containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ x = 1 / 2; y = x/ {}.z; } a")).containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ s = \"}\\\"}\" + \"\"; c = '}'; d = '\\''; e = '\\177'; } a"))
+        .containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ s = \"\"\"\n  }\"\" \\\"\"\"\n  \"\"\"; } a"))
+        .containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ \\u007b \\u007d \\u007d a")).containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ '\\u007d' } a")).containsExactly("IDENT(a)", "EOF");
+    assertThat(lexAfterBlock("{ { }")).containsExactly("EOF");
+  }
+
+  @Test
+  public void skipInitializer() {
+    assertThat(lexAfterInitializer("= 1; a")).containsExactly("SEMI", "IDENT(a)", "EOF");
+    assertThat(lexAfterInitializer("= f(a, b[1, 2], new C() { int x = 1; }) + 1; a"))
+        .containsExactly("SEMI", "IDENT(a)", "EOF");
+    assertThat(lexAfterInitializer("= \"; ,\" + ';' + ',' /* ; */ // ;\n; a"))
+        .containsExactly("SEMI", "IDENT(a)", "EOF");
+    assertThat(lexAfterInitializer("= 1, b = 2; a"))
+        .containsExactly(
+            "null", "INT_LITERAL", "COMMA", "IDENT(b)", "ASSIGN", "INT_LITERAL", "SEMI",
+            "IDENT(a)", "EOF");
+    assertThat(lexAfterInitializer("= \\u0031 \\u002c b;"))
+        .containsExactly("null", "INT_LITERAL", "COMMA", "IDENT(b)", "SEMI", "EOF");
+    assertThat(lexAfterInitializer("= 1 }"))
+        .containsExactly("null", "INT_LITERAL", "RBRACE", "EOF");
+    assertThat(lexAfterInitializer("= (1;"))
+        .containsExactly("null", "LPAREN", "INT_LITERAL", "SEMI", "EOF");
+  }
+
+  /**
+   * Skips the initializer at the start of the input, and lexes the rest. If the initializer can't
+   * be skipped, the first token is {@code "null"}.
+   */
+  private static List<String> lexAfterInitializer(String input) {
+    Lexer lexer = new StreamLexer(new UnicodeEscapePreprocessor(new SourceFile(null, input)));
+    assertThat(lexer.next()).isEqualTo(Token.ASSIGN);
+    List<String> tokens = new ArrayList<>();
+    Token token = lexer.skipInitializer();
+    if (token == null) {
+      tokens.add("null");
+      token = lexer.next();
+    }
+    while (true) {
+      tokens.add(token == Token.IDENT ? "IDENT(" + lexer.stringValue() + ")" : token.name());
+      if (token == Token.EOF) {
+        return tokens;
+      }
+      token = lexer.next();
+    }
+  }
+
+  /** Skips the block at the start of the input, and lexes the rest. */
+  private static List<String> lexAfterBlock(String input) {
+    Lexer lexer = new StreamLexer(new UnicodeEscapePreprocessor(new SourceFile(null, input)));
+    assertThat(lexer.next()).isEqualTo(Token.LBRACE);
+    List<String> tokens = new ArrayList<>();
+    Token token = lexer.skipBlock();
+    while (true) {
+      tokens.add(token == Token.IDENT ? "IDENT(" + lexer.stringValue() + ")" : token.name());
+      if (token == Token.EOF) {
+        return tokens;
+      }
+      token = lexer.next();
+    }
+  }
+
   private void lexerComparisonTest(String s) {
     assertThat(lex(s)).containsExactlyElementsIn(JavacLexer.javacLex(s));
   }
@@ -279,6 +279,57 @@ public class ParseErrorTest {
     }
   }
 
+  @Test
+  public void unterminatedStringInMethodBody() {
+    String input = "class T { void f() { String s = \"hello\nworld\"; } }";
+    try {
+      Parser.parse(input);
+      fail("expected parsing to fail");
+    } catch (TurbineError e) {
+      assertThat(e)
+          .hasMessageThat()
+          .isEqualTo(
+              lines(
+                  "<>:1: error: unterminated string literal", //
+                  "class T { void f() { String s = \"hello",
+                  "                                      ^"));
+    }
+  }
+
+  @Test
+  public void unclosedCommentInMethodBody() {
+    String input = "class T { void f() { /* } }";
+    try {
+      Parser.parse(input);
+      fail("expected parsing to fail");
+    } catch (TurbineError e) {
+      assertThat(e)
+          .hasMessageThat()
+          .isEqualTo(
+              lines(
+                  "<>:1: error: unclosed comment", //
+                  "class T { void f() { /* } }",
+                  "                     ^"));
+    }
+  }
+
+  @Test
+  public void unterminatedMethodBody() {
+    String input = "class T { void f() { { } }";
+    try {
+      Parser.parse(input);
+      fail("expected parsing to fail");
+    } catch (TurbineError e) {
+      assertThat(e)
+          .hasMessageThat()
+          .isEqualTo(
+              lines(
+                  "<>:1: error: unexpected end of input", //
+                  "class T { void f() { { } }",
+                  "                         ^"));
+    }
+  }
+
   private static String lines(String... lines) {
     return Joiner.on(System.lineSeparator()).join(lines);
   }
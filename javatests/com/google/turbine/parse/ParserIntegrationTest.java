@@ -24,6 +24,7 @@ import com.google.common.base.Function;
 import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
 import com.google.common.io.CharStreams;
+import com.google.turbine.diag.SourceFile;
 import com.google.turbine.tree.Tree;
 import java.io.IOException;
 import java.io.InputStream;
@@ -64,6 +65,7 @@ public class ParserIntegrationTest {
       "member2.input",
       "member3.input",
       "member4.input",
+      "member5.input",
       "methoddecl1.input",
       "methoddecl2.input",
       "methoddecl3.input",
@@ -94,16 +96,35 @@ public class ParserIntegrationTest {
 
   @Test
   public void test() throws IOException {
+    List<String> pieces = pieces();
+    String input = pieces.get(0).trim();
+    String expected = pieces.size() > 1 ? pieces.get(1).trim() : input;
+    Tree.CompUnit unit = Parser.parse(input);
+    assertThat(unit.toString().trim()).isEqualTo(expected);
+  }
+
+  /** Parses the input without skipping escape processing for inputs that don't contain escapes. */
+  @Test
+  public void escapes() throws IOException {
+    List<String> pieces = pieces();
+    String input = pieces.get(0).trim();
+    String expected = pieces.size() > 1 ? pieces.get(1).trim() : input;
+    Tree.CompUnit unit =
+        new Parser(
+                new StreamLexer(
+                    new UnicodeEscapePreprocessor(
+                        new SourceFile(null, input), /* escapes= */ true)))
+            .compilationUnit();
+    assertThat(unit.toString().trim()).isEqualTo(expected);
+  }
+
+  private List<String> pieces() throws IOException {
     InputStream stream =
         verifyNotNull(ParserIntegrationTest.class.getResourceAsStream("testdata/" + input), input);
     String result;
     try (InputStreamReader in = new InputStreamReader(stream, UTF_8)) {
       result = CharStreams.toString(in);
     }
-    List<String> pieces = Splitter.onPattern("===+").splitToList(result);
-    String input = pieces.get(0).trim();
-    String expected = pieces.size() > 1 ? pieces.get(1).trim() : input;
-    Tree.CompUnit unit = Parser.parse(input);
-    assertThat(unit.toString().trim()).isEqualTo(expected);
+    return Splitter.onPattern("===+").splitToList(result);
   }
 }
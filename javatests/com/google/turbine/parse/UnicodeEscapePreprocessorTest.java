@@ -87,8 +87,23 @@ public class UnicodeEscapePreprocessorTest {
     }
   }
 
+  @Test
+  public void noEscapes() {
+    String input = "\\\\ \\n \\U2122 \\";
+    assertThat(readAll(input))
+        .containsExactly('\\', '\\', ' ', '\\', 'n', ' ', '\\', 'U', '2', '1', '2', '2', ' ', '\\')
+        .inOrder();
+    assertThat(
+            readAll(
+                new UnicodeEscapePreprocessor(new SourceFile(null, input), /* escapes= */ true)))
+        .isEqualTo(readAll(input));
+  }
+
   private List<Character> readAll(String input) {
-    UnicodeEscapePreprocessor reader = new UnicodeEscapePreprocessor(new SourceFile(null, input));
+    return readAll(new UnicodeEscapePreprocessor(new SourceFile(null, input)));
+  }
+
+  private List<Character> readAll(UnicodeEscapePreprocessor reader) {
     List<Character> result = new ArrayList<>();
     for (char ch = reader.next(); ch != UnicodeEscapePreprocessor.ASCII_SUB; ch = reader.next()) {
       result.add(ch);
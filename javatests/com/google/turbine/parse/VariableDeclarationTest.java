@@ -195,7 +195,7 @@ public class VariableDeclarationTest {
 
   @Test
   public void test() {
-    Tree.CompUnit unit = Parser.parse("class Test {" + input + "}");
+    Tree.CompUnit unit = Parser.parse("interface Test {" + input + "}");
     assertThat(Joiner.on(" ").join(getOnlyElement(unit.decls()).members())).isEqualTo(expected);
   }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.turbine.zip;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.fail;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+@RunWith(JUnit4.class)
+public class JarWriterTest {
+
+  @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  private static final long TIMESTAMP =
+      LocalDateTime.of(2010, 1, 1, 0, 0, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+  @Test
+  public void empty() throws IOException {
+    assertSameAsJarOutputStream(ImmutableMap.of());
+  }
+
+  @Test
+  public void entries() throws IOException {
+    assertSameAsJarOutputStream(
+        ImmutableMap.of(
+            "a/A.class", "hello".getBytes(UTF_8),
+            "META-INF/", new byte[0],
+            "☃/é.txt", "world".getBytes(UTF_8),
+            "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\r\n\r\n".getBytes(UTF_8)));
+  }
+
+  @Test
+  public void zip64() throws IOException {
+    Map<String, byte[]> entries = new LinkedHashMap<>();
+    for (int i = 0; i < 70000; i++) {
+      entries.put("entry" + i, ("data" + i).getBytes(UTF_8));
+    }
+    assertSameAsJarOutputStream(entries);
+    Path path = temporaryFolder.newFile().toPath();
+    write(entries, path);
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(path)) {
+      int i = 0;
+      for (Zip.Entry entry : zip) {
+        assertThat(entry.name()).isEqualTo("entry" + i);
+        assertThat(new String(entry.data(), UTF_8)).isEqualTo("data" + i);
+        i++;
+      }
+      assertThat(i).isEqualTo(70000);
+    }
+  }
+
+  @Test
+  public void duplicate() throws IOException {
+    JarWriter writer = new JarWriter(TIMESTAMP).add("A.class", new byte[0]);
+    try {
+      writer.add("A.class", new byte[0]);
+      fail();
+    } catch (ZipException e) {
+      assertThat(e).hasMessageThat().isEqualTo("duplicate entry: A.class");
+    }
+  }
+
+  private void assertSameAsJarOutputStream(Map<String, byte[]> entries) throws IOException {
+    Path expected = temporaryFolder.newFile().toPath();
+    try (OutputStream os = Files.newOutputStream(expected);
+        JarOutputStream jos = new JarOutputStream(os)) {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+        JarEntry je = new JarEntry(entry.getKey());
+        je.setTime(TIMESTAMP);
+        je.setMethod(ZipEntry.STORED);
+        je.setSize(entry.getValue().length);
+        je.setCrc(Hashing.crc32().hashBytes(entry.getValue()).padToLong());
+        jos.putNextEntry(je);
+        jos.write(entry.getValue());
+      }
+    }
+    Path actual = temporaryFolder.newFile().toPath();
+    write(entries, actual);
+    assertThat(Files.readAllBytes(actual)).isEqualTo(Files.readAllBytes(expected));
+  }
+
+  private static void write(Map<String, byte[]> entries, Path path) throws IOException {
+    JarWriter writer = new JarWriter(TIMESTAMP);
+    for (Map.Entry<String, byte[]> entry : entries.entrySet()) {
+      writer.add(entry.getKey(), entry.getValue());
+    }
+    writer.write(path);
+  }
+}
@@ -17,26 +17,35 @@
 package com.google.turbine.zip;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.TruthJUnit.assume;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.fail;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.hash.Hashing;
 import com.google.common.io.ByteStreams;
+import java.io.IOError;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.FileSystem;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
 import java.util.zip.ZipException;
 import java.util.zip.ZipOutputStream;
 import org.junit.Rule;
@@ -75,6 +84,127 @@ public class ZipTest {
     assertThat(actual(path)).isEqualTo(expected(path));
   }
 
+  @Test
+  public void crc() throws IOException {
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      jos.putNextEntry(new JarEntry("deflated"));
+      jos.write("hello".getBytes(UTF_8));
+      createEntry(jos, "stored", "world".getBytes(UTF_8));
+    }
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(path)) {
+      for (Zip.Entry entry : zip) {
+        assertThat(entry.crc()).isEqualTo(Hashing.crc32().hashBytes(entry.data()).asInt());
+      }
+    }
+  }
+
+  @Test
+  public void deflatedSizes() throws IOException {
+    Random random = new Random(42);
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      for (int size : new int[] {0, 1, 8191, 8193, 100_000, 2_000_000}) {
+        byte[] bytes = new byte[size];
+        // incompressible data, so the compressed size is about the same as the uncompressed size
+        random.nextBytes(bytes);
+        jos.putNextEntry(new JarEntry("random" + size));
+        jos.write(bytes);
+        jos.putNextEntry(new JarEntry("zeros" + size));
+        jos.write(new byte[size]);
+      }
+    }
+    // read the entries twice, re-using the buffers from the first pass
+    assertThat(actual(path)).isEqualTo(expected(path));
+    assertThat(actual(path)).isEqualTo(expected(path));
+  }
+
+  @Test
+  public void wrongUncompressedSize() throws IOException {
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      jos.putNextEntry(new JarEntry("hello"));
+      jos.write("hello world".getBytes(UTF_8));
+    }
+    // decrement the uncompressed size in the central directory
+    byte[] bytes = Files.readAllBytes(path);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    int cen = 0;
+    while (buffer.getInt(cen) != 0x02014b50) {
+      cen++;
+    }
+    buffer.putInt(cen + Zip.CENLEN, buffer.getInt(cen + Zip.CENLEN) - 1);
+    Files.write(path, bytes);
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(path)) {
+      Zip.Entry entry = zip.iterator().next();
+      try {
+        entry.data();
+        fail();
+      } catch (IOError e) {
+        assertThat(e).hasCauseThat().isInstanceOf(ZipException.class);
+        assertThat(e)
+            .hasCauseThat()
+            .hasMessageThat()
+            .contains("hello: uncompressed size didn't match the central directory, expected 10");
+      }
+    }
+  }
+
+  @Test
+  public void fileDescriptorsAreNotRetained() throws IOException {
+    Path fds = Paths.get("/proc/self/fd");
+    assume().that(Files.isDirectory(fds)).isTrue();
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      jos.putNextEntry(new JarEntry("hello"));
+      jos.write("world".getBytes(UTF_8));
+    }
+    long before = count(fds);
+    List<Zip.ZipIterable> zips = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      // the archives are deliberately not closed
+      zips.add(new Zip.ZipIterable(path));
+    }
+    assertThat(count(fds)).isLessThan(before + 10);
+    for (Zip.ZipIterable zip : zips) {
+      Zip.Entry entry = zip.iterator().next();
+      assertThat(new String(entry.data(), UTF_8)).isEqualTo("world");
+    }
+  }
+
+  private static long count(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.count();
+    }
+  }
+
+  @Test
+  public void invalidRegion() throws IOException {
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      createEntry(jos, "hello", "world".getBytes(UTF_8));
+    }
+    // point the entry's local header offset past the end of the archive
+    byte[] bytes = Files.readAllBytes(path);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    int cen = 0;
+    while (buffer.getInt(cen) != 0x02014b50) {
+      cen++;
+    }
+    buffer.putInt(cen + Zip.CENOFF, bytes.length);
+    Files.write(path, bytes);
+    try (Zip.ZipIterable zip = new Zip.ZipIterable(path)) {
+      Zip.Entry entry = zip.iterator().next();
+      try {
+        entry.data();
+        fail();
+      } catch (IOError e) {
+        assertThat(e).hasCauseThat().isInstanceOf(ZipException.class);
+        assertThat(e).hasCauseThat().hasMessageThat().contains("invalid region");
+      }
+    }
+  }
+
   private void testEntries(int entries) throws IOException {
     Path path = temporaryFolder.newFile("test.jar").toPath();
     try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
@@ -87,6 +217,68 @@ public class ZipTest {
     assertThat(actual(path)).isEqualTo(expected(path));
   }
 
+  @Test
+  public void index() throws IOException {
+    index(1000);
+  }
+
+  @Test
+  public void zip64_index() throws IOException {
+    index(70000);
+  }
+
+  private void index(int entries) throws IOException {
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      for (int i = 0; i < entries; i++) {
+        String name = "entry" + i;
+        createEntry(jos, name, name.getBytes(UTF_8));
+      }
+    }
+    Zip.Index index = new Zip.ZipIterable(path).index();
+    assertThat(index.size()).isEqualTo(entries);
+    for (int i = 0; i < entries; i++) {
+      String name = "entry" + i;
+      Zip.Entry entry = index.entry(name);
+      assertThat(entry.name()).isEqualTo(name);
+      assertThat(new String(entry.data(), UTF_8)).isEqualTo(name);
+    }
+    assertThat(index.entry("entry" + entries)).isNull();
+    assertThat(index.entry("entry")).isNull();
+    assertThat(index.entry("")).isNull();
+  }
+
+  @Test
+  public void indexNames() throws IOException {
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {
+      createEntry(jos, "a/b/c.txt", "one".getBytes(UTF_8));
+      createEntry(jos, "a/b/\u00e9\u4e2d.txt", "two".getBytes(UTF_8));
+      createEntry(jos, "a/b/", new byte[0]);
+      // the hashes of "Aa" and "BB" collide
+      createEntry(jos, "Aa", "three".getBytes(UTF_8));
+      createEntry(jos, "BB", "four".getBytes(UTF_8));
+    }
+    Zip.Index index = new Zip.ZipIterable(path).index();
+    assertThat(index.size()).isEqualTo(5);
+    assertThat(new String(index.entry("a/b/c.txt").data(), UTF_8)).isEqualTo("one");
+    assertThat(new String(index.entry("a/b/\u00e9\u4e2d.txt").data(), UTF_8)).isEqualTo("two");
+    assertThat(index.entry("a/b/").data()).isEmpty();
+    assertThat(new String(index.entry("Aa").data(), UTF_8)).isEqualTo("three");
+    assertThat(new String(index.entry("BB").data(), UTF_8)).isEqualTo("four");
+    assertThat(index.entry("a/b")).isNull();
+    assertThat(index.entry("a/b/c.tx")).isNull();
+  }
+
+  @Test
+  public void indexEmpty() throws IOException {
+    Path path = temporaryFolder.newFile("test.jar").toPath();
+    try (JarOutputStream jos = new JarOutputStream(Files.newOutputStream(path))) {}
+    Zip.Index index = new Zip.ZipIterable(path).index();
+    assertThat(index.size()).isEqualTo(0);
+    assertThat(index.entry("hello")).isNull();
+  }
+
   private static void createEntry(ZipOutputStream jos, String name, byte[] bytes)
       throws IOException {
     JarEntry je = new JarEntry(name);